@@ -1,7 +1,10 @@
 package org.mediasoup.droid.demo;
 
+import android.preference.PreferenceManager;
+
 import org.mediasoup.droid.Logger;
 import org.mediasoup.droid.MediasoupClient;
+import org.mediasoup.droid.lib.PeerConnectionUtils;
 
 public class Application extends android.app.Application {
 
@@ -12,5 +15,9 @@ public class Application extends android.app.Application {
     Logger.setLogLevel(Logger.LogLevel.LOG_TRACE);
     Logger.setDefaultHandler();
     MediasoupClient.initialize(getApplicationContext());
+    // The preferences are read on the warm-up thread, not during app start.
+    PeerConnectionUtils.warmUp(
+        this,
+        () -> PreferenceManager.getDefaultSharedPreferences(this).getBoolean("warmUpMedia", true));
   }
 }
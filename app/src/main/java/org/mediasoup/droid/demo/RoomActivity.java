@@ -102,6 +102,15 @@ public class RoomActivity extends AppCompatActivity {
     mOptions.setProduce(preferences.getBoolean("produce", true));
     mOptions.setConsume(preferences.getBoolean("consume", true));
     mOptions.setForceTcp(preferences.getBoolean("forceTcp", false));
+    mOptions.setPipelineJoin(preferences.getBoolean("pipelineJoin", true));
+    mOptions.setBinaryFraming(preferences.getBoolean("binaryFraming", false));
+    mOptions.setSignallingCompression(preferences.getBoolean("signallingCompression", false));
+    mOptions.setResumeSession(preferences.getBoolean("resumeSession", true));
+    mOptions.setPersistRtpCapabilities(preferences.getBoolean("persistRtpCapabilities", true));
+    mOptions.setAdaptiveCapture(preferences.getBoolean("adaptiveCapture", true));
+    mOptions.setSimulcast(preferences.getBoolean("simulcast", true));
+    mOptions.setRecordStats(preferences.getBoolean("recordStats", true));
+    mOptions.setUseDataChannel(preferences.getBoolean("useDataChannel", false));
 
     // Device config.
     String camera = preferences.getString("camera", "front");
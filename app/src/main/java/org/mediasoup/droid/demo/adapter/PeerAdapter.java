@@ -8,6 +8,8 @@ import android.view.ViewGroup;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.lifecycle.LifecycleOwner;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import org.mediasoup.droid.Logger;
@@ -18,18 +20,40 @@ import org.mediasoup.droid.lib.RoomClient;
 import org.mediasoup.droid.lib.lv.RoomStore;
 import org.mediasoup.droid.lib.model.Peer;
 
-import java.util.LinkedList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class PeerAdapter extends RecyclerView.Adapter<PeerAdapter.PeerViewHolder> {
 
   private static final String TAG = "PeerAdapter";
 
+  // Row height changed because the number of peers did, the bound peer is the same.
+  private static final Object PAYLOAD_HEIGHT = new Object();
+
+  // A row observes its own peer through RoomStore.getPeer(), so renames and consumer changes never
+  // require a rebind. Only joins, leaves and moves are dispatched to the adapter.
+  private static final DiffUtil.ItemCallback<Peer> DIFF_CALLBACK =
+      new DiffUtil.ItemCallback<Peer>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Peer oldItem, @NonNull Peer newItem) {
+          return oldItem.getId().equals(newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Peer oldItem, @NonNull Peer newItem) {
+          return true;
+        }
+      };
+
   @NonNull private RoomStore mStore;
   @NonNull private LifecycleOwner mLifecycleOwner;
   @NonNull private RoomClient mRoomClient;
 
-  private List<Peer> mPeers = new LinkedList<>();
+  private final AsyncListDiffer<Peer> mDiffer = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+  // Stable ids by peer id, only touched on the main thread.
+  private final Map<String, Long> mItemIds = new HashMap<>();
+  private long mNextItemId;
 
   private int containerHeight;
 
@@ -40,11 +64,19 @@ public class PeerAdapter extends RecyclerView.Adapter<PeerAdapter.PeerViewHolder
     mStore = store;
     mLifecycleOwner = lifecycleOwner;
     mRoomClient = roomClient;
+    setHasStableIds(true);
   }
 
+  /** Diff {@code peers} against the current list in background and dispatch the changed rows. */
   public void replacePeers(@NonNull List<Peer> peers) {
-    mPeers = peers;
-    notifyDataSetChanged();
+    int oldHeight = getItemHeight();
+    mDiffer.submitList(
+        peers,
+        () -> {
+          if (getItemHeight() != oldHeight) {
+            notifyItemRangeChanged(0, getItemCount(), PAYLOAD_HEIGHT);
+          }
+        });
   }
 
   @NonNull
@@ -59,17 +91,45 @@ public class PeerAdapter extends RecyclerView.Adapter<PeerAdapter.PeerViewHolder
 
   @Override
   public void onBindViewHolder(@NonNull PeerViewHolder holder, int position) {
-    // update height
-    ViewGroup.LayoutParams layoutParams = holder.mPeerView.getLayoutParams();
-    layoutParams.height = getItemHeight();
-    holder.mPeerView.setLayoutParams(layoutParams);
+    updateHeight(holder);
     // bind
-    holder.bind(mLifecycleOwner, mRoomClient, mPeers.get(position));
+    holder.bind(mLifecycleOwner, mRoomClient, mDiffer.getCurrentList().get(position));
+  }
+
+  @Override
+  public void onBindViewHolder(
+      @NonNull PeerViewHolder holder, int position, @NonNull List<Object> payloads) {
+    if (payloads.isEmpty()) {
+      onBindViewHolder(holder, position);
+      return;
+    }
+    // Partial rebind, keep the props and renderer connected to the same peer.
+    updateHeight(holder);
+  }
+
+  @Override
+  public long getItemId(int position) {
+    String peerId = mDiffer.getCurrentList().get(position).getId();
+    Long itemId = mItemIds.get(peerId);
+    if (itemId == null) {
+      itemId = mNextItemId++;
+      mItemIds.put(peerId, itemId);
+    }
+    return itemId;
   }
 
   @Override
   public int getItemCount() {
-    return mPeers.size();
+    return mDiffer.getCurrentList().size();
+  }
+
+  private void updateHeight(@NonNull PeerViewHolder holder) {
+    ViewGroup.LayoutParams layoutParams = holder.mPeerView.getLayoutParams();
+    int height = getItemHeight();
+    if (layoutParams.height != height) {
+      layoutParams.height = height;
+      holder.mPeerView.setLayoutParams(layoutParams);
+    }
   }
 
   private int getItemHeight() {
@@ -69,10 +69,8 @@ public class MeView extends RelativeLayout {
           }
           return false;
         });
-    mBinding.peerView.stats.setOnClickListener(
-        view -> {
-          // TODO(HaiyangWU): Handle inner click event;
-        });
+    mBinding.peerView.stats.setOnClickListener(view -> props.toggleStats());
+    mBinding.peerView.statsView.setProps(props, roomClient);
 
     mBinding.peerView.videoRenderer.setZOrderMediaOverlay(true);
 
@@ -10,12 +10,14 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import androidx.databinding.DataBindingUtil;
+import androidx.databinding.Observable;
 
 import org.mediasoup.droid.demo.R;
 import org.mediasoup.droid.demo.databinding.ViewPeerBinding;
 import org.mediasoup.droid.demo.vm.PeerProps;
 import org.mediasoup.droid.lib.PeerConnectionUtils;
 import org.mediasoup.droid.lib.RoomClient;
+import org.webrtc.RendererCommon;
 
 public class PeerView extends RelativeLayout {
 
@@ -43,13 +45,97 @@ public class PeerView extends RelativeLayout {
 
   ViewPeerBinding mBinding;
 
+  // Video consumer shown here, its viewport goes to the consumer layer controller. Read by the
+  // renderer thread as well.
+  private volatile RoomClient mRoomClient;
+  private volatile String mVideoConsumerId;
+  private PeerProps mProps;
+  private boolean mAttached;
+
+  private final Observable.OnPropertyChangedCallback mVideoConsumerIdCallback =
+      new Observable.OnPropertyChangedCallback() {
+        @Override
+        public void onPropertyChanged(Observable sender, int propertyId) {
+          setVideoConsumerId(mProps != null ? mProps.getVideoConsumerId().get() : null);
+        }
+      };
+
   private void init(Context context) {
     mBinding =
         DataBindingUtil.inflate(LayoutInflater.from(context), R.layout.view_peer, this, true);
-    mBinding.peerView.videoRenderer.init(PeerConnectionUtils.getEglContext(), null);
+    mBinding.peerView.videoRenderer.init(
+        PeerConnectionUtils.getEglContext(),
+        new RendererCommon.RendererEvents() {
+          @Override
+          public void onFirstFrameRendered() {}
+
+          @Override
+          public void onFrameResolutionChanged(int width, int height, int rotation) {
+            RoomClient roomClient = mRoomClient;
+            String consumerId = mVideoConsumerId;
+            if (roomClient != null && consumerId != null) {
+              roomClient.getConsumerLayerController().onFrameSize(consumerId, width, height);
+            }
+          }
+        });
+  }
+
+  @Override
+  protected void onAttachedToWindow() {
+    super.onAttachedToWindow();
+    mAttached = true;
+    reportViewport();
+  }
+
+  @Override
+  protected void onDetachedFromWindow() {
+    mAttached = false;
+    reportViewport();
+    super.onDetachedFromWindow();
+  }
+
+  @Override
+  protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+    super.onSizeChanged(w, h, oldw, oldh);
+    reportViewport();
+  }
+
+  private void setVideoConsumerId(String videoConsumerId) {
+    String oldVideoConsumerId = mVideoConsumerId;
+    if (oldVideoConsumerId == null
+        ? videoConsumerId == null
+        : oldVideoConsumerId.equals(videoConsumerId)) {
+      return;
+    }
+    if (oldVideoConsumerId != null && mRoomClient != null) {
+      // Not shown here anymore.
+      mRoomClient.getConsumerLayerController().onViewport(oldVideoConsumerId, 0, 0, false);
+    }
+    mVideoConsumerId = videoConsumerId;
+    reportViewport();
+  }
+
+  private void reportViewport() {
+    RoomClient roomClient = mRoomClient;
+    String consumerId = mVideoConsumerId;
+    if (roomClient == null || consumerId == null) {
+      return;
+    }
+    // The renderer fills this view, whose size is final here unlike the one of the renderer.
+    roomClient
+        .getConsumerLayerController()
+        .onViewport(consumerId, getWidth(), getHeight(), mAttached && getVisibility() == VISIBLE);
   }
 
   public void setProps(PeerProps props, RoomClient roomClient) {
+    if (mProps != null) {
+      mProps.getVideoConsumerId().removeOnPropertyChangedCallback(mVideoConsumerIdCallback);
+    }
+    mProps = props;
+    mRoomClient = roomClient;
+    props.getVideoConsumerId().addOnPropertyChangedCallback(mVideoConsumerIdCallback);
+    setVideoConsumerId(props.getVideoConsumerId().get());
+
     // set view model into included layout
     mBinding.peerView.setPeerViewProps(props);
 
@@ -60,10 +146,8 @@ public class PeerView extends RelativeLayout {
           props.getShowInfo().set(showInfo != null && showInfo ? Boolean.FALSE : Boolean.TRUE);
         });
 
-    mBinding.peerView.stats.setOnClickListener(
-        view -> {
-          // TODO(HaiyangWU): Handle inner click event;
-        });
+    mBinding.peerView.stats.setOnClickListener(view -> props.toggleStats());
+    mBinding.peerView.statsView.setProps(props, roomClient);
 
     // set view model
     mBinding.setPeerProps(props);
@@ -0,0 +1,328 @@
+package org.mediasoup.droid.demo.view;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.os.SystemClock;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.databinding.Observable;
+
+import org.mediasoup.droid.demo.vm.PeerViewProps;
+import org.mediasoup.droid.lib.RoomClient;
+import org.mediasoup.droid.lib.stats.StatsRecord;
+import org.mediasoup.droid.lib.stats.StatsSampler;
+
+import java.util.Locale;
+
+/**
+ * Overlay with the bitrate, round trip time, loss and framerate of one peer as sparklines.
+ *
+ * <p>Only listens to the {@link StatsSampler} while shown. Samples go into primitive ring
+ * buffers on the sampler thread, and redraws are limited to one per {@link #REDRAW_INTERVAL_MS}
+ * whatever the sample rate, so the overlay costs next to nothing next to the video it covers.
+ */
+public class StatsView extends View implements StatsSampler.Listener {
+
+  static final long REDRAW_INTERVAL_MS = 1000;
+  private static final int CAPACITY = 30;
+
+  private static final int BITRATE = 0;
+  private static final int RTT = 1;
+  private static final int LOSS = 2;
+  private static final int FPS = 3;
+  private static final String[] LABELS = {"kbps", "rtt ms", "loss %", "fps"};
+  private static final int[] COLORS = {
+    Color.rgb(0x44, 0xc5, 0xd6), Color.rgb(0xff, 0xa5, 0x00), Color.rgb(0xff, 0x55, 0x55),
+    Color.rgb(0x30, 0xbd, 0x18)
+  };
+
+  // Ring buffers, one row per series, guarded by mValues.
+  private final float[][] mValues = new float[LABELS.length][CAPACITY];
+  private int mStart;
+  private int mSize;
+  // Copy of a row being drawn, only touched on the main thread.
+  private final float[] mDrawn = new float[CAPACITY];
+
+  private final Paint mBackgroundPaint = new Paint();
+  private final Paint mLinePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+  private final Paint mTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+  private final Path mPath = new Path();
+  private final float mRowHeight;
+  private final float mPadding;
+  private final float mLabelWidth;
+
+  private final Runnable mRedraw =
+      () -> {
+        mRedrawScheduled = false;
+        mLastRedraw = SystemClock.uptimeMillis();
+        invalidate();
+      };
+  private volatile boolean mRedrawScheduled;
+  private volatile long mLastRedraw;
+
+  private RoomClient mRoomClient;
+  private PeerViewProps mProps;
+  private boolean mListening;
+  // Entities of the shown peer, read by the sampler thread.
+  private volatile String mTransportId;
+  private volatile String mAudioId;
+  private volatile String mVideoId;
+  private volatile boolean mMe;
+  // Frame counter of the previous sample, -1 after clear().
+  private volatile long mLastFrames = -1;
+  private volatile long mLastFramesTimestamp;
+
+  private final Observable.OnPropertyChangedCallback mEntitiesCallback =
+      new Observable.OnPropertyChangedCallback() {
+        @Override
+        public void onPropertyChanged(Observable sender, int propertyId) {
+          updateEntities();
+        }
+      };
+
+  public StatsView(@NonNull Context context) {
+    this(context, null);
+  }
+
+  public StatsView(@NonNull Context context, @Nullable AttributeSet attrs) {
+    this(context, attrs, 0);
+  }
+
+  public StatsView(@NonNull Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+    super(context, attrs, defStyleAttr);
+    mRowHeight = dp(24);
+    mPadding = dp(4);
+    mLabelWidth = dp(96);
+    mBackgroundPaint.setColor(0x99000000);
+    mLinePaint.setStyle(Paint.Style.STROKE);
+    mLinePaint.setStrokeWidth(dp(1.5f));
+    mTextPaint.setColor(Color.WHITE);
+    mTextPaint.setTextSize(
+        TypedValue.applyDimension(
+            TypedValue.COMPLEX_UNIT_SP, 11, getResources().getDisplayMetrics()));
+  }
+
+  private float dp(float value) {
+    return TypedValue.applyDimension(
+        TypedValue.COMPLEX_UNIT_DIP, value, getResources().getDisplayMetrics());
+  }
+
+  /** Show the stats of the peer of {@code props}, following its consumers as they change. */
+  public void setProps(@NonNull PeerViewProps props, @NonNull RoomClient roomClient) {
+    if (mProps != null) {
+      mProps.getAudioConsumerId().removeOnPropertyChangedCallback(mEntitiesCallback);
+      mProps.getVideoConsumerId().removeOnPropertyChangedCallback(mEntitiesCallback);
+    }
+    stopListening();
+    mProps = props;
+    mRoomClient = roomClient;
+    props.getAudioConsumerId().addOnPropertyChangedCallback(mEntitiesCallback);
+    props.getVideoConsumerId().addOnPropertyChangedCallback(mEntitiesCallback);
+    updateEntities();
+    updateListening();
+  }
+
+  private void updateEntities() {
+    PeerViewProps props = mProps;
+    boolean me = props.isMe();
+    String transportId = me ? RoomClient.SEND_TRANSPORT_STATS : RoomClient.RECV_TRANSPORT_STATS;
+    String audioId = me ? RoomClient.MIC_STATS : props.getAudioConsumerId().get();
+    String videoId = me ? RoomClient.CAM_STATS : props.getVideoConsumerId().get();
+    if (me == mMe
+        && transportId.equals(mTransportId)
+        && sameId(audioId, mAudioId)
+        && sameId(videoId, mVideoId)) {
+      return;
+    }
+    mMe = me;
+    mTransportId = transportId;
+    mAudioId = audioId;
+    mVideoId = videoId;
+    clear();
+  }
+
+  private static boolean sameId(String a, String b) {
+    return a == null ? b == null : a.equals(b);
+  }
+
+  private void clear() {
+    synchronized (mValues) {
+      mStart = 0;
+      mSize = 0;
+    }
+    mLastFrames = -1;
+    invalidate();
+  }
+
+  @Override
+  protected void onAttachedToWindow() {
+    super.onAttachedToWindow();
+    updateListening();
+  }
+
+  @Override
+  protected void onDetachedFromWindow() {
+    stopListening();
+    super.onDetachedFromWindow();
+  }
+
+  @Override
+  protected void onVisibilityChanged(@NonNull View changedView, int visibility) {
+    super.onVisibilityChanged(changedView, visibility);
+    updateListening();
+  }
+
+  private void updateListening() {
+    if (mRoomClient == null) {
+      return;
+    }
+    boolean listen = isShown() && getWindowToken() != null;
+    if (listen == mListening) {
+      return;
+    }
+    mListening = listen;
+    if (listen) {
+      // Start over, the previous samples are stale.
+      clear();
+      mRoomClient.getStatsSampler().addListener(this);
+    } else {
+      mRoomClient.getStatsSampler().removeListener(this);
+    }
+  }
+
+  private void stopListening() {
+    if (mListening) {
+      mListening = false;
+      mRoomClient.getStatsSampler().removeListener(this);
+    }
+    removeCallbacks(mRedraw);
+    mRedrawScheduled = false;
+  }
+
+  @WorkerThread
+  @Override
+  public void onSampled(@NonNull StatsSampler sampler) {
+    boolean me = mMe;
+    StatsRecord transport = latest(sampler, mTransportId);
+    StatsRecord audio = latest(sampler, mAudioId);
+    StatsRecord video = latest(sampler, mVideoId);
+    if (audio == null && video == null) {
+      return;
+    }
+
+    float bitrate = 0;
+    float loss = 0;
+    float rtt = transport != null ? (float) transport.getRoundTripTimeMs() : -1;
+    for (int k = 0; k < 2; k++) {
+      StatsRecord record = k == 0 ? audio : video;
+      if (record == null) {
+        continue;
+      }
+      long recordBitrate = me ? record.getSendBitrate() : record.getReceiveBitrate();
+      bitrate += Math.max(0, recordBitrate) / 1000f;
+      loss = Math.max(loss, (float) record.getFractionLost() * 100);
+      if (rtt < 0) {
+        rtt = (float) record.getRoundTripTimeMs();
+      }
+    }
+    float fps = 0;
+    if (video != null) {
+      long frames = me ? video.getFramesEncoded() : video.getFramesDecoded();
+      long interval = video.getTimestamp() - mLastFramesTimestamp;
+      if (mLastFrames >= 0 && frames >= mLastFrames && interval > 0) {
+        fps = (frames - mLastFrames) * 1000f / interval;
+      }
+      mLastFrames = frames;
+      mLastFramesTimestamp = video.getTimestamp();
+    }
+
+    synchronized (mValues) {
+      int i;
+      if (mSize < CAPACITY) {
+        i = (mStart + mSize++) % CAPACITY;
+      } else {
+        i = mStart;
+        mStart = (mStart + 1) % CAPACITY;
+      }
+      mValues[BITRATE][i] = bitrate;
+      mValues[RTT][i] = Math.max(0, rtt);
+      mValues[LOSS][i] = loss;
+      mValues[FPS][i] = fps;
+    }
+    scheduleRedraw();
+  }
+
+  @Nullable
+  private static StatsRecord latest(StatsSampler sampler, @Nullable String id) {
+    return id != null ? sampler.getLatest(id) : null;
+  }
+
+  private void scheduleRedraw() {
+    if (mRedrawScheduled) {
+      return;
+    }
+    mRedrawScheduled = true;
+    long wait = REDRAW_INTERVAL_MS - (SystemClock.uptimeMillis() - mLastRedraw);
+    postDelayed(mRedraw, Math.max(0, wait));
+  }
+
+  @Override
+  protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+    int height = (int) (LABELS.length * mRowHeight + 2 * mPadding);
+    setMeasuredDimension(
+        getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec),
+        resolveSize(height, heightMeasureSpec));
+  }
+
+  @Override
+  protected void onDraw(Canvas canvas) {
+    canvas.drawRect(0, 0, getWidth(), getHeight(), mBackgroundPaint);
+    float chartLeft = mPadding + mLabelWidth;
+    float chartWidth = getWidth() - chartLeft - mPadding;
+    for (int series = 0; series < LABELS.length; series++) {
+      int count;
+      synchronized (mValues) {
+        count = mSize;
+        for (int k = 0; k < count; k++) {
+          mDrawn[k] = mValues[series][(mStart + k) % CAPACITY];
+        }
+      }
+      float top = mPadding + series * mRowHeight;
+      float baseline = top + mRowHeight - mPadding;
+      String text =
+          count > 0
+              ? String.format(Locale.US, "%.0f %s", mDrawn[count - 1], LABELS[series])
+              : "- " + LABELS[series];
+      mTextPaint.setColor(COLORS[series]);
+      canvas.drawText(text, mPadding, baseline, mTextPaint);
+      if (count < 2 || chartWidth <= 0) {
+        continue;
+      }
+
+      float max = 0;
+      for (int k = 0; k < count; k++) {
+        max = Math.max(max, mDrawn[k]);
+      }
+      float scale = max > 0 ? (mRowHeight - 2 * mPadding) / max : 0;
+      float step = chartWidth / (CAPACITY - 1);
+      // Newest sample on the right edge.
+      float x = chartLeft + (CAPACITY - count) * step;
+      mPath.reset();
+      mPath.moveTo(x, baseline - mDrawn[0] * scale);
+      for (int k = 1; k < count; k++) {
+        x += step;
+        mPath.lineTo(x, baseline - mDrawn[k] * scale);
+      }
+      mLinePaint.setColor(COLORS[series]);
+      canvas.drawPath(mPath, mLinePaint);
+    }
+  }
+}
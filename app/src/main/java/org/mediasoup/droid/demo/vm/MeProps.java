@@ -1,6 +1,7 @@
 package org.mediasoup.droid.demo.vm;
 
 import android.app.Application;
+import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
 import androidx.databinding.BaseObservable;
@@ -13,6 +14,7 @@ import org.mediasoup.droid.lib.RoomClient;
 import org.mediasoup.droid.lib.lv.RoomStore;
 import org.mediasoup.droid.lib.model.Me;
 import org.mediasoup.droid.lib.model.Producers;
+import org.mediasoup.droid.lib.model.ScoreHistory;
 import org.webrtc.AudioTrack;
 import org.webrtc.VideoTrack;
 
@@ -66,6 +68,10 @@ public class MeProps extends PeerViewProps {
             // mVideoCodec.set(videoProducer != null ? videoProducer.getCodec() : null);
             mAudioScore.set(audioPW != null ? audioPW.getScore() : null);
             mVideoScore.set(videoPW != null ? videoPW.getScore() : null);
+            mAudioScoreHistory.set(
+                audioPW != null ? audioPW.getScoreHistory() : ScoreHistory.EMPTY);
+            mVideoScoreHistory.set(
+                videoPW != null ? videoPW.getScoreHistory() : ScoreHistory.EMPTY);
 
             DeviceState micState;
             if (me == null || !me.isCanSendMic()) {
@@ -151,7 +157,12 @@ public class MeProps extends PeerViewProps {
         .observe(
             owner,
             roomInfo -> {
+              Me me = mMe.get();
               mFaceDetection.set(roomInfo.isFaceDetection());
+              mShowStats.set(
+                  me != null
+                      && !TextUtils.isEmpty(me.getId())
+                      && me.getId().equals(roomInfo.getStatsPeerId()));
               mConnected.set(
                   RoomClient.ConnectionState.CONNECTED.equals(roomInfo.getConnectionState()));
             });
@@ -7,17 +7,24 @@ import androidx.databinding.BaseObservable;
 import androidx.databinding.Observable;
 import androidx.databinding.ObservableField;
 import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LiveData;
 import androidx.lifecycle.Observer;
 
 import org.mediasoup.droid.Consumer;
 import org.mediasoup.droid.Logger;
 import org.mediasoup.droid.lib.lv.RoomStore;
 import org.mediasoup.droid.lib.model.Consumers;
+import org.mediasoup.droid.lib.model.Me;
 import org.mediasoup.droid.lib.model.Peer;
-import org.mediasoup.droid.lib.model.Peers;
+import org.mediasoup.droid.lib.model.RoomInfo;
+import org.mediasoup.droid.lib.model.ScoreHistory;
 import org.webrtc.AudioTrack;
 import org.webrtc.VideoTrack;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
 public class PeerProps extends PeerViewProps {
@@ -27,6 +34,13 @@ public class PeerProps extends PeerViewProps {
   private final ObservableField<Boolean> mAudioEnabled;
   private final ObservableField<Boolean> mVideoVisible;
   private final StateComposer mStateComposer;
+  private final Observer<Me> mMeObserver = me -> mAudioMuted.set(me.isAudioMuted());
+  private String mPeerId;
+  private final Observer<RoomInfo> mRoomInfoObserver =
+      roomInfo -> {
+        mFaceDetection.set(roomInfo.isFaceDetection());
+        mShowStats.set(mPeerId != null && mPeerId.equals(roomInfo.getStatsPeerId()));
+      };
 
   public PeerProps(@NonNull Application application, @NonNull RoomStore roomStore) {
     super(application, roomStore);
@@ -46,6 +60,8 @@ public class PeerProps extends PeerViewProps {
             mPeer.set(mStateComposer.mPeer);
             mAudioProducerId.set(audioConsumer != null ? audioConsumer.getId() : null);
             mVideoProducerId.set(videoConsumer != null ? videoConsumer.getId() : null);
+            mAudioConsumerId.set(audioConsumer != null ? audioConsumer.getId() : null);
+            mVideoConsumerId.set(videoConsumer != null ? videoConsumer.getId() : null);
             mAudioRtpParameters.set(
                 audioConsumer != null ? audioConsumer.getRtpParameters() : null);
             mVideoRtpParameters.set(
@@ -57,6 +73,10 @@ public class PeerProps extends PeerViewProps {
             // mVideoCodec.set(videoConsumer != null ? videoConsumer.getCodec() : null);
             mAudioScore.set(audioCW != null ? audioCW.getScore() : null);
             mVideoScore.set(videoCW != null ? videoCW.getScore() : null);
+            mAudioScoreHistory.set(
+                audioCW != null ? audioCW.getScoreHistory() : ScoreHistory.EMPTY);
+            mVideoScoreHistory.set(
+                videoCW != null ? videoCW.getScoreHistory() : ScoreHistory.EMPTY);
 
             mAudioEnabled.set(
                 audioCW != null && !audioCW.isLocallyPaused() && !audioCW.isRemotelyPaused());
@@ -76,10 +96,11 @@ public class PeerProps extends PeerViewProps {
   }
 
   public void connect(LifecycleOwner owner, @NonNull String peerId) {
-    getRoomStore().getMe().observe(owner, me -> mAudioMuted.set(me.isAudioMuted()));
-    getRoomStore()
-        .getRoomInfo()
-        .observe(owner, roomInfo -> mFaceDetection.set(roomInfo.isFaceDetection()));
+    mPeerId = peerId;
+    getRoomStore().getMe().removeObserver(mMeObserver);
+    getRoomStore().getMe().observe(owner, mMeObserver);
+    getRoomStore().getRoomInfo().removeObserver(mRoomInfoObserver);
+    getRoomStore().getRoomInfo().observe(owner, mRoomInfoObserver);
     mStateComposer.connect(owner, getRoomStore(), peerId);
   }
 
@@ -88,56 +109,105 @@ public class PeerProps extends PeerViewProps {
     throw new IllegalAccessError("use connect with peer Id");
   }
 
+  /**
+   * Composes the state of one peer from its own channel and the channels of its consumers, so
+   * changes to other peers never wake it up.
+   */
   public static class StateComposer extends BaseObservable {
 
+    private LifecycleOwner mOwner;
+    private RoomStore mStore;
     private String mPeerId;
     private Peer mPeer;
-    private Consumers mConsumers;
-    private Observer<Peers> mPeersObservable =
-        peers -> {
-          mPeer = peers.getPeer(mPeerId);
-          Logger.w(
+    private LiveData<Peer> mPeerLiveData;
+    private final Map<String, LiveData<Consumers.ConsumerWrapper>> mConsumerLiveData =
+        new HashMap<>();
+    private final Map<String, Observer<Consumers.ConsumerWrapper>> mConsumerObservers =
+        new HashMap<>();
+    private final Map<String, Consumers.ConsumerWrapper> mConsumers = new HashMap<>();
+    // Kind -> consumer, kept in step with mConsumers so getConsumer(kind) is a single lookup. Both
+    // only hold the consumers of this peer, the repair on removal scans a couple of entries.
+    private final Map<String, Consumers.ConsumerWrapper> mConsumersByKind = new HashMap<>();
+
+    private Observer<Peer> mPeerObserver =
+        peer -> {
+          mPeer = peer;
+          Logger.d(
               TAG,
               "onChanged() id: "
                   + mPeerId
                   + ", name:"
-                  + (mPeer != null ? mPeer.getDisplayName() : ""));
-          // TODO(HaiyangWu): check whether need notify change.
-          notifyChange();
-        };
-
-    private Observer<Consumers> mConsumersObserver =
-        consumers -> {
-          mConsumers = consumers;
-          // TODO(HaiyangWu): check whether need notify change.
+                  + (peer != null ? peer.getDisplayName() : ""));
+          syncConsumers();
           notifyChange();
         };
 
     void connect(@NonNull LifecycleOwner owner, RoomStore store, String peerId) {
+      if (mPeerLiveData != null) {
+        mPeerLiveData.removeObserver(mPeerObserver);
+      }
+      mOwner = owner;
+      mStore = store;
       mPeerId = peerId;
-      store.getPeers().removeObserver(mPeersObservable);
-      store.getPeers().observe(owner, mPeersObservable);
-
-      store.getConsumers().removeObserver(mConsumersObserver);
-      store.getConsumers().observe(owner, mConsumersObserver);
+      mPeer = null;
+      syncConsumers();
+      mPeerLiveData = store.getPeer(peerId);
+      mPeerLiveData.observe(owner, mPeerObserver);
     }
 
-    Consumers.ConsumerWrapper getConsumer(String kind) {
-      if (mPeer == null || mConsumers == null) {
-        return null;
+    // Follow the consumer channels of the consumers currently owned by the peer.
+    private void syncConsumers() {
+      Set<String> consumerIds =
+          mPeer != null ? mPeer.getConsumers() : Collections.<String>emptySet();
+
+      Iterator<Map.Entry<String, LiveData<Consumers.ConsumerWrapper>>> it =
+          mConsumerLiveData.entrySet().iterator();
+      while (it.hasNext()) {
+        Map.Entry<String, LiveData<Consumers.ConsumerWrapper>> entry = it.next();
+        if (!consumerIds.contains(entry.getKey())) {
+          entry.getValue().removeObserver(mConsumerObservers.remove(entry.getKey()));
+          removeConsumer(entry.getKey());
+          it.remove();
+        }
       }
 
-      Set<String> consumerIds = mPeer.getConsumers();
       for (String consumerId : consumerIds) {
-        Consumers.ConsumerWrapper wp = mConsumers.getConsumer(consumerId);
-        if (wp == null || wp.getConsumer() == null) {
+        if (mConsumerLiveData.containsKey(consumerId)) {
           continue;
         }
-        if (kind.equals(wp.getConsumer().getKind())) {
-          return wp;
+        Observer<Consumers.ConsumerWrapper> observer =
+            wrapper -> {
+              if (wrapper != null) {
+                mConsumers.put(consumerId, wrapper);
+                mConsumersByKind.put(wrapper.getKind(), wrapper);
+              } else {
+                removeConsumer(consumerId);
+              }
+              notifyChange();
+            };
+        LiveData<Consumers.ConsumerWrapper> liveData = mStore.getConsumer(consumerId);
+        mConsumerLiveData.put(consumerId, liveData);
+        mConsumerObservers.put(consumerId, observer);
+        liveData.observe(mOwner, observer);
+      }
+    }
+
+    private void removeConsumer(String consumerId) {
+      Consumers.ConsumerWrapper removed = mConsumers.remove(consumerId);
+      if (removed == null || mConsumersByKind.get(removed.getKind()) != removed) {
+        return;
+      }
+      mConsumersByKind.remove(removed.getKind());
+      for (Consumers.ConsumerWrapper wp : mConsumers.values()) {
+        if (removed.getKind().equals(wp.getKind())) {
+          mConsumersByKind.put(wp.getKind(), wp);
+          break;
         }
       }
-      return null;
+    }
+
+    Consumers.ConsumerWrapper getConsumer(String kind) {
+      return mConsumersByKind.get(kind);
     }
   }
 }
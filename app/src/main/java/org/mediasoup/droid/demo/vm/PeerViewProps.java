@@ -1,13 +1,15 @@
 package org.mediasoup.droid.demo.vm;
 
 import android.app.Application;
+import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
 import androidx.databinding.ObservableField;
 
-import org.json.JSONArray;
 import org.mediasoup.droid.lib.lv.RoomStore;
 import org.mediasoup.droid.lib.model.Info;
+import org.mediasoup.droid.lib.model.Score;
+import org.mediasoup.droid.lib.model.ScoreHistory;
 import org.webrtc.AudioTrack;
 import org.webrtc.VideoTrack;
 
@@ -16,6 +18,8 @@ public abstract class PeerViewProps extends EdiasProps {
 
   boolean mIsMe;
   ObservableField<Boolean> mShowInfo;
+  // Whether this peer is RoomInfo#getStatsPeerId().
+  ObservableField<Boolean> mShowStats;
   ObservableField<Info> mPeer;
   ObservableField<String> mAudioProducerId;
   ObservableField<String> mVideoProducerId;
@@ -36,14 +40,17 @@ public abstract class PeerViewProps extends EdiasProps {
   ObservableField<Boolean> mVideoMultiLayer;
   ObservableField<String> mAudioCodec;
   ObservableField<String> mVideoCodec;
-  ObservableField<JSONArray> mAudioScore;
-  ObservableField<JSONArray> mVideoScore;
+  ObservableField<Score> mAudioScore;
+  ObservableField<Score> mVideoScore;
+  ObservableField<ScoreHistory> mAudioScoreHistory;
+  ObservableField<ScoreHistory> mVideoScoreHistory;
   ObservableField<Boolean> mFaceDetection;
 
   public PeerViewProps(@NonNull Application application, @NonNull RoomStore roomStore) {
     super(application, roomStore);
     // Add default value to avoid null check in layout.
     mShowInfo = new ObservableField<>(Boolean.FALSE);
+    mShowStats = new ObservableField<>(Boolean.FALSE);
     mPeer = new ObservableField<>(new Info());
     mAudioProducerId = new ObservableField<>();
     mVideoProducerId = new ObservableField<>();
@@ -66,6 +73,8 @@ public abstract class PeerViewProps extends EdiasProps {
     mVideoCodec = new ObservableField<>();
     mAudioScore = new ObservableField<>();
     mVideoScore = new ObservableField<>();
+    mAudioScoreHistory = new ObservableField<>(ScoreHistory.EMPTY);
+    mVideoScoreHistory = new ObservableField<>(ScoreHistory.EMPTY);
     mFaceDetection = new ObservableField<>();
   }
 
@@ -81,6 +90,19 @@ public abstract class PeerViewProps extends EdiasProps {
     return mShowInfo;
   }
 
+  public ObservableField<Boolean> getShowStats() {
+    return mShowStats;
+  }
+
+  /** Show the stats of this peer instead of the ones of any other peer, or hide them. */
+  public void toggleStats() {
+    Info peer = mPeer.get();
+    if (peer == null || TextUtils.isEmpty(peer.getId())) {
+      return;
+    }
+    getRoomStore().setRoomStatsPeerId(Boolean.TRUE.equals(mShowStats.get()) ? null : peer.getId());
+  }
+
   public ObservableField<Info> getPeer() {
     return mPeer;
   }
@@ -161,14 +183,22 @@ public abstract class PeerViewProps extends EdiasProps {
     return mVideoCodec;
   }
 
-  public ObservableField<JSONArray> getAudioScore() {
+  public ObservableField<Score> getAudioScore() {
     return mAudioScore;
   }
 
-  public ObservableField<JSONArray> getVideoScore() {
+  public ObservableField<Score> getVideoScore() {
     return mVideoScore;
   }
 
+  public ObservableField<ScoreHistory> getAudioScoreHistory() {
+    return mAudioScoreHistory;
+  }
+
+  public ObservableField<ScoreHistory> getVideoScoreHistory() {
+    return mVideoScoreHistory;
+  }
+
   public ObservableField<Boolean> getFaceDetection() {
     return mFaceDetection;
   }
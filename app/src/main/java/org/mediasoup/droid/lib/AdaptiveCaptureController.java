@@ -0,0 +1,274 @@
+package org.mediasoup.droid.lib;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Handler;
+import android.os.Process;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import org.mediasoup.droid.Logger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Steps the camera capture format down a ladder when the device cannot keep up, and back up when
+ * it has been comfortable for a while.
+ *
+ * <p>Every tick looks at the CPU time of the process and of its busiest thread, the battery
+ * temperature (the only thermal signal below API 29), the score of the webcam producer and the
+ * uplink bandwidth estimate. One bad signal for {@link #DOWN_TICKS} ticks in a row steps down, all
+ * of them good for {@link #UP_TICKS} ticks steps up. Signals that were never reported do not count
+ * either way.
+ *
+ * <p>Ticks run on the handler given to the constructor, so does the listener.
+ */
+@SuppressWarnings("WeakerAccess")
+public class AdaptiveCaptureController {
+
+  private static final String TAG = "AdaptiveCapture";
+
+  public static class CaptureFormat {
+
+    public final int width;
+    public final int height;
+    public final int framerate;
+    // Uplink below which this format is not worth encoding.
+    public final long minBitrate;
+
+    CaptureFormat(int width, int height, int framerate, long minBitrate) {
+      this.width = width;
+      this.height = height;
+      this.framerate = framerate;
+      this.minBitrate = minBitrate;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+      return String.format(Locale.US, "%dx%d@%d", width, height, framerate);
+    }
+  }
+
+  public interface Listener {
+    void onCaptureFormatChanged(@NonNull CaptureFormat format);
+  }
+
+  // From lowest to highest, the top one is the format the camera starts with.
+  private static final CaptureFormat[] LADDER = {
+    new CaptureFormat(320, 240, 15, 150_000),
+    new CaptureFormat(480, 360, 20, 300_000),
+    new CaptureFormat(640, 480, 30, 600_000),
+  };
+
+  public static final CaptureFormat DEFAULT_FORMAT = LADDER[LADDER.length - 1];
+
+  static final long TICK_MS = 2000;
+  static final int DOWN_TICKS = 2;
+  static final int UP_TICKS = 10;
+
+  // The busiest thread as a share of one core, or the process as a share of all cores, whichever
+  // is higher. One thread (the encoder, the capturer) saturates its core long before the process
+  // adds up to all the cores of the device.
+  private static final double CPU_HIGH = 0.75;
+  private static final double CPU_LOW = 0.45;
+  // USER_HZ of the /proc times, 100 on every Android kernel.
+  private static final long MS_PER_CLOCK_TICK = 10;
+  // Battery temperature, in tenths of a degree Celsius.
+  private static final int TEMPERATURE_HIGH = 420;
+  private static final int TEMPERATURE_LOW = 390;
+  // Producer score, 0 to 10.
+  private static final int SCORE_LOW = 7;
+  private static final int SCORE_HIGH = 9;
+
+  private final Context mContext;
+  private final Handler mHandler;
+  private final Listener mListener;
+  private final int mCores = Math.max(1, Runtime.getRuntime().availableProcessors());
+  private final Runnable mTick = this::tick;
+
+  private boolean mStarted;
+  private int mLevel = LADDER.length - 1;
+  private int mBadTicks;
+  private int mGoodTicks;
+  private long mLastCpuTime;
+  private long mLastWallTime;
+  // CPU time of every thread at the last tick, in clock ticks, by thread id.
+  private Map<String, Long> mThreadCpuTicks = new HashMap<>();
+  private int mProducerScore = -1;
+  private volatile long mUplinkBitrate = -1;
+  private int mStepsDown;
+  private int mStepsUp;
+
+  public AdaptiveCaptureController(
+      @NonNull Context context, @NonNull Handler handler, @NonNull Listener listener) {
+    mContext = context.getApplicationContext();
+    mHandler = handler;
+    mListener = listener;
+  }
+
+  @WorkerThread
+  public void start() {
+    if (mStarted) {
+      return;
+    }
+    mStarted = true;
+    mLastCpuTime = Process.getElapsedCpuTime();
+    mLastWallTime = SystemClock.elapsedRealtime();
+    readBusiestThreadTicks();
+    mHandler.postDelayed(mTick, TICK_MS);
+  }
+
+  @WorkerThread
+  public void stop() {
+    mStarted = false;
+    mHandler.removeCallbacks(mTick);
+    Logger.d(TAG, "stop() " + this);
+  }
+
+  /** Overall score of the webcam producer, from its producerScore notifications. */
+  @WorkerThread
+  public void onProducerScore(int score) {
+    mProducerScore = score;
+  }
+
+  /** Available outgoing bitrate of the send transport, in bits per second. */
+  public void onUplinkBandwidthEstimate(long bitrate) {
+    mUplinkBitrate = bitrate;
+  }
+
+  @NonNull
+  public CaptureFormat getFormat() {
+    return LADDER[mLevel];
+  }
+
+  @WorkerThread
+  private void tick() {
+    if (!mStarted) {
+      return;
+    }
+    long cpuTime = Process.getElapsedCpuTime();
+    long wallTime = SystemClock.elapsedRealtime();
+    long busiestThreadMs = readBusiestThreadTicks() * MS_PER_CLOCK_TICK;
+    double cpu =
+        wallTime > mLastWallTime
+            ? Math.max(
+                (double) (cpuTime - mLastCpuTime) / ((wallTime - mLastWallTime) * mCores),
+                (double) busiestThreadMs / (wallTime - mLastWallTime))
+            : 0;
+    mLastCpuTime = cpuTime;
+    mLastWallTime = wallTime;
+    int temperature = readBatteryTemperature();
+    int score = mProducerScore;
+    long bitrate = mUplinkBitrate;
+
+    boolean bad =
+        cpu > CPU_HIGH
+            || temperature >= TEMPERATURE_HIGH
+            || (score >= 0 && score < SCORE_LOW)
+            || (bitrate >= 0 && bitrate < LADDER[mLevel].minBitrate);
+    boolean good =
+        !bad
+            && cpu < CPU_LOW
+            && temperature < TEMPERATURE_LOW
+            && (score < 0 || score >= SCORE_HIGH)
+            && (mLevel == LADDER.length - 1
+                || bitrate < 0
+                || bitrate >= LADDER[mLevel + 1].minBitrate);
+
+    mBadTicks = bad ? mBadTicks + 1 : 0;
+    mGoodTicks = good ? mGoodTicks + 1 : 0;
+    if (mBadTicks >= DOWN_TICKS && mLevel > 0) {
+      mStepsDown++;
+      setLevel(mLevel - 1, cpu, temperature, score, bitrate);
+    } else if (mGoodTicks >= UP_TICKS && mLevel < LADDER.length - 1) {
+      mStepsUp++;
+      setLevel(mLevel + 1, cpu, temperature, score, bitrate);
+    }
+    mHandler.postDelayed(mTick, TICK_MS);
+  }
+
+  private void setLevel(int level, double cpu, int temperature, int score, long bitrate) {
+    mLevel = level;
+    mBadTicks = 0;
+    mGoodTicks = 0;
+    Logger.d(
+        TAG,
+        String.format(
+            Locale.US,
+            "capture format %s (cpu=%.2f, temperature=%d, score=%d, bitrate=%d)",
+            LADDER[level],
+            cpu,
+            temperature,
+            score,
+            bitrate));
+    mListener.onCaptureFormatChanged(LADDER[level]);
+  }
+
+  // CPU time of the busiest thread since the last call, in clock ticks, 0 if /proc is unreadable.
+  private long readBusiestThreadTicks() {
+    File[] tasks = new File("/proc/self/task").listFiles();
+    Map<String, Long> threadCpuTicks = new HashMap<>();
+    long busiest = 0;
+    for (int i = 0; tasks != null && i < tasks.length; i++) {
+      long ticks = readThreadCpuTicks(tasks[i]);
+      if (ticks < 0) {
+        continue;
+      }
+      String tid = tasks[i].getName();
+      threadCpuTicks.put(tid, ticks);
+      Long previous = mThreadCpuTicks.get(tid);
+      if (previous != null) {
+        busiest = Math.max(busiest, ticks - previous);
+      }
+    }
+    mThreadCpuTicks = threadCpuTicks;
+    return busiest;
+  }
+
+  // utime + stime from /proc/self/task/<tid>/stat, in clock ticks, or -1 if the thread is gone.
+  private static long readThreadCpuTicks(File task) {
+    try (BufferedReader reader = new BufferedReader(new FileReader(new File(task, "stat")))) {
+      String line = reader.readLine();
+      // The thread name, in parentheses, may contain spaces.
+      int nameEnd = line != null ? line.lastIndexOf(')') : -1;
+      if (nameEnd < 0) {
+        return -1;
+      }
+      String[] fields = line.substring(nameEnd + 2).split(" ");
+      // Fields 14 and 15 of the line, the first one after the name being field 3.
+      return Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+    } catch (IOException | RuntimeException e) {
+      return -1;
+    }
+  }
+
+  // Battery temperature in tenths of a degree, or 0 if unknown.
+  private int readBatteryTemperature() {
+    // Sticky broadcast, no receiver is registered.
+    Intent battery =
+        mContext.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+    return battery != null ? battery.getIntExtra(BatteryManager.EXTRA_TEMPERATURE, 0) : 0;
+  }
+
+  @NonNull
+  @Override
+  public String toString() {
+    return String.format(
+        Locale.US,
+        "AdaptiveCaptureController{format=%s, stepsDown=%d, stepsUp=%d}",
+        LADDER[mLevel],
+        mStepsDown,
+        mStepsUp);
+  }
+}
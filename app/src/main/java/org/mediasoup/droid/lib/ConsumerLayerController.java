@@ -0,0 +1,221 @@
+package org.mediasoup.droid.lib;
+
+import android.os.Handler;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.mediasoup.droid.Logger;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Picks the preferred layers of every simulcast/SVC video consumer from the size of the view that
+ * renders it.
+ *
+ * <p>A view reports its pixel size and whether it is on screen. Off-screen consumers get the
+ * lowest layers. Visible ones get the smallest spatial layer that roughly covers the view, and
+ * every temporal layer. Changes are collected for {@link #DEBOUNCE_MS} so that a scroll or a
+ * relayout ends up as at most one request per consumer, and only actual changes are sent.
+ *
+ * <p>Reports may come from any thread, the work and the {@link Sender} run on the handler.
+ */
+@SuppressWarnings("WeakerAccess")
+public class ConsumerLayerController {
+
+  private static final String TAG = "ConsumerLayerController";
+
+  static final long DEBOUNCE_MS = 500;
+  // Layer area below this share of the view area looks too blurry.
+  private static final double MIN_COVERAGE = 0.6;
+  // Size of the top layer until a frame tells otherwise, the default webcam of the web client.
+  private static final long DEFAULT_TOP_LAYER_AREA = 1280 * 720;
+  private static final Pattern SCALABILITY_MODE = Pattern.compile("^[LS](\\d+)T(\\d+)");
+
+  public interface Sender {
+    @WorkerThread
+    void setConsumerPreferredLayers(
+        @NonNull String consumerId, int spatialLayer, int temporalLayer);
+  }
+
+  private static class LayeredConsumer {
+
+    final int mSpatialLayers;
+    final int mTemporalLayers;
+    long mTopLayerArea = DEFAULT_TOP_LAYER_AREA;
+    // Last rendered frame and the layer the server said it forwards, -1 until known.
+    long mFrameArea = -1;
+    int mCurrentSpatialLayer = -1;
+    int mViewWidth;
+    int mViewHeight;
+    boolean mVisible;
+    int mSentSpatialLayer = -1;
+    int mSentTemporalLayer = -1;
+
+    LayeredConsumer(int spatialLayers, int temporalLayers) {
+      mSpatialLayers = spatialLayers;
+      mTemporalLayers = temporalLayers;
+    }
+  }
+
+  private final Handler mHandler;
+  private final Sender mSender;
+  private final Runnable mFlush = this::flush;
+  // Only touched on mHandler.
+  private final Map<String, LayeredConsumer> mConsumers = new HashMap<>();
+  private final Map<String, LayeredConsumer> mDirty = new HashMap<>();
+
+  public ConsumerLayerController(@NonNull Handler handler, @NonNull Sender sender) {
+    mHandler = handler;
+    mSender = sender;
+  }
+
+  /** Track a new consumer, ignored unless it has several layers. */
+  public void addConsumer(@NonNull String consumerId, @Nullable String rtpParameters) {
+    int[] layers = parseLayers(rtpParameters);
+    if (layers[0] <= 1 && layers[1] <= 1) {
+      return;
+    }
+    mHandler.post(() -> mConsumers.put(consumerId, new LayeredConsumer(layers[0], layers[1])));
+  }
+
+  public void removeConsumer(@NonNull String consumerId) {
+    mHandler.post(
+        () -> {
+          mConsumers.remove(consumerId);
+          mDirty.remove(consumerId);
+        });
+  }
+
+  /** Size of the view rendering the consumer, and whether it is on screen. */
+  public void onViewport(@NonNull String consumerId, int width, int height, boolean visible) {
+    mHandler.post(
+        () -> {
+          LayeredConsumer consumer = mConsumers.get(consumerId);
+          if (consumer == null) {
+            return;
+          }
+          consumer.mViewWidth = width;
+          consumer.mViewHeight = height;
+          consumer.mVisible = visible && width > 0 && height > 0;
+          markDirty(consumerId, consumer);
+        });
+  }
+
+  /** Size of a rendered frame of the consumer. */
+  public void onFrameSize(@NonNull String consumerId, int width, int height) {
+    mHandler.post(
+        () -> {
+          LayeredConsumer consumer = mConsumers.get(consumerId);
+          if (consumer != null) {
+            consumer.mFrameArea = (long) width * height;
+            updateTopLayerArea(consumerId, consumer);
+          }
+        });
+  }
+
+  /** Spatial layer the server forwards, from consumerLayersChanged, -1 for none. */
+  public void onCurrentSpatialLayer(@NonNull String consumerId, int spatialLayer) {
+    mHandler.post(
+        () -> {
+          LayeredConsumer consumer = mConsumers.get(consumerId);
+          if (consumer != null) {
+            consumer.mCurrentSpatialLayer = spatialLayer;
+            updateTopLayerArea(consumerId, consumer);
+          }
+        });
+  }
+
+  // The frame size at a known layer tells the size of the top layer. The two may arrive in any
+  // order, which is why both are kept.
+  @WorkerThread
+  private void updateTopLayerArea(String consumerId, LayeredConsumer consumer) {
+    int layer = consumer.mCurrentSpatialLayer;
+    if (consumer.mFrameArea <= 0 || layer < 0 || layer >= consumer.mSpatialLayers) {
+      return;
+    }
+    // Each spatial layer doubles both dimensions.
+    long area = consumer.mFrameArea << (2 * (consumer.mSpatialLayers - 1 - layer));
+    if (area != consumer.mTopLayerArea) {
+      consumer.mTopLayerArea = area;
+      markDirty(consumerId, consumer);
+    }
+  }
+
+  @WorkerThread
+  private void markDirty(String consumerId, LayeredConsumer consumer) {
+    mDirty.put(consumerId, consumer);
+    mHandler.removeCallbacks(mFlush);
+    mHandler.postDelayed(mFlush, DEBOUNCE_MS);
+  }
+
+  @WorkerThread
+  private void flush() {
+    Iterator<Map.Entry<String, LayeredConsumer>> it = mDirty.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<String, LayeredConsumer> entry = it.next();
+      it.remove();
+      LayeredConsumer consumer = entry.getValue();
+      int spatialLayer;
+      int temporalLayer;
+      if (consumer.mVisible) {
+        spatialLayer =
+            selectSpatialLayer(
+                (long) consumer.mViewWidth * consumer.mViewHeight,
+                consumer.mTopLayerArea,
+                consumer.mSpatialLayers);
+        temporalLayer = consumer.mTemporalLayers - 1;
+      } else {
+        spatialLayer = 0;
+        temporalLayer = 0;
+      }
+      if (spatialLayer == consumer.mSentSpatialLayer
+          && temporalLayer == consumer.mSentTemporalLayer) {
+        continue;
+      }
+      consumer.mSentSpatialLayer = spatialLayer;
+      consumer.mSentTemporalLayer = temporalLayer;
+      Logger.d(TAG, "flush() " + entry.getKey() + " -> " + spatialLayer + "/" + temporalLayer);
+      mSender.setConsumerPreferredLayers(entry.getKey(), spatialLayer, temporalLayer);
+    }
+  }
+
+  static int selectSpatialLayer(long viewArea, long topLayerArea, int spatialLayers) {
+    for (int layer = 0; layer < spatialLayers - 1; layer++) {
+      long layerArea = topLayerArea >> (2 * (spatialLayers - 1 - layer));
+      if (layerArea >= viewArea * MIN_COVERAGE) {
+        return layer;
+      }
+    }
+    return spatialLayers - 1;
+  }
+
+  // {spatial layers, temporal layers} from the scalabilityMode of the first encoding.
+  @NonNull
+  static int[] parseLayers(@Nullable String rtpParameters) {
+    int[] layers = {1, 1};
+    if (rtpParameters == null) {
+      return layers;
+    }
+    try {
+      JSONArray encodings = new JSONObject(rtpParameters).optJSONArray("encodings");
+      JSONObject encoding = encodings != null ? encodings.optJSONObject(0) : null;
+      String scalabilityMode = encoding != null ? encoding.optString("scalabilityMode") : "";
+      Matcher matcher = SCALABILITY_MODE.matcher(scalabilityMode);
+      if (matcher.find()) {
+        layers[0] = Integer.parseInt(matcher.group(1));
+        layers[1] = Integer.parseInt(matcher.group(2));
+      }
+    } catch (Exception e) {
+      Logger.w(TAG, "parseLayers() failed: " + e.getMessage());
+    }
+    return layers;
+  }
+}
@@ -1,12 +1,15 @@
 package org.mediasoup.droid.lib;
 
 import android.content.Context;
-import android.text.TextUtils;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import org.mediasoup.droid.Logger;
+import org.mediasoup.droid.lib.model.MediaStartupTimings;
 import org.webrtc.AudioSource;
 import org.webrtc.AudioTrack;
 import org.webrtc.Camera1Enumerator;
@@ -27,6 +30,10 @@ import org.webrtc.VideoTrack;
 import org.webrtc.audio.AudioDeviceModule;
 import org.webrtc.audio.JavaAudioDeviceModule;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
 @SuppressWarnings("WeakerAccess")
 public class PeerConnectionUtils {
 
@@ -43,42 +50,139 @@ public class PeerConnectionUtils {
     mPreferCameraFace = preferCameraFace;
   }
 
+  // Factory built ahead of the first room, null until warmUp(). Guarded by the class.
+  private static FutureTask<PeerConnectionFactory> sWarmUp;
+  private static boolean sWarmFactoryTaken;
+  private static long sWarmUpCameraMs = -1;
+  private static long sWarmUpFactoryMs = -1;
+  // First camera of each facing, from the last probe.
+  private static volatile boolean sCamerasProbed;
+  private static volatile String sFrontCameraName;
+  private static volatile String sBackCameraName;
+
+  /**
+   * Probe the cameras and build the PeerConnectionFactory on a background thread, so that the
+   * first room does not pay for them between its join and its first outgoing frame. Must be
+   * called after MediasoupClient.initialize(). The factory goes to the first PeerConnectionUtils
+   * which needs one, and stays unused otherwise.
+   *
+   * <p>{@code enabled} is asked first, on the warm-up thread, so that reading a setting does not
+   * hold up the caller. Nothing is built when it answers false.
+   */
+  public static void warmUp(@NonNull Context context, @NonNull Callable<Boolean> enabled) {
+    Context appContext = context.getApplicationContext();
+    FutureTask<PeerConnectionFactory> warmUp;
+    synchronized (PeerConnectionUtils.class) {
+      if (sWarmUp != null) {
+        return;
+      }
+      warmUp =
+          new FutureTask<>(
+              () -> {
+                if (!enabled.call()) {
+                  Logger.d(TAG, "warmUp() disabled");
+                  return null;
+                }
+                long start = SystemClock.elapsedRealtime();
+                probeCameras(appContext);
+                long camerasDone = SystemClock.elapsedRealtime();
+                PeerConnectionFactory factory = buildPeerConnectionFactory(appContext);
+                long factoryDone = SystemClock.elapsedRealtime();
+                synchronized (PeerConnectionUtils.class) {
+                  sWarmUpCameraMs = camerasDone - start;
+                  sWarmUpFactoryMs = factoryDone - camerasDone;
+                }
+                Logger.d(
+                    TAG,
+                    "warmUp() done, cameras "
+                        + sWarmUpCameraMs
+                        + "ms, factory "
+                        + sWarmUpFactoryMs
+                        + "ms");
+                return factory;
+              });
+      sWarmUp = warmUp;
+    }
+    new Thread(warmUp, "PeerConnectionWarmUp").start();
+  }
+
+  // The warmed up factory, waiting for the warm-up if it is still running, or null if there was
+  // none or it was disabled.
+  @Nullable
+  private static PeerConnectionFactory takeWarmFactory(MediaStartupTimings timings) {
+    FutureTask<PeerConnectionFactory> warmUp;
+    synchronized (PeerConnectionUtils.class) {
+      if (sWarmUp == null || sWarmFactoryTaken) {
+        return null;
+      }
+      sWarmFactoryTaken = true;
+      warmUp = sWarmUp;
+    }
+    try {
+      PeerConnectionFactory factory = warmUp.get();
+      synchronized (PeerConnectionUtils.class) {
+        timings.setWarmUp(sWarmUpCameraMs, sWarmUpFactoryMs);
+      }
+      return factory;
+    } catch (ExecutionException e) {
+      Logger.e(TAG, "warmUp() failed", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return null;
+  }
+
   private final ThreadUtils.ThreadChecker mThreadChecker;
+  private final MediaStartupTimings mTimings = new MediaStartupTimings();
   private PeerConnectionFactory mPeerConnectionFactory;
 
   private AudioSource mAudioSource;
   private VideoSource mVideoSource;
   private CameraVideoCapturer mCamCapture;
+  private volatile long mVideoSourceStartTime;
 
   public PeerConnectionUtils() {
     mThreadChecker = new ThreadUtils.ThreadChecker();
   }
 
+  @NonNull
+  public MediaStartupTimings getStartupTimings() {
+    return mTimings;
+  }
+
   // PeerConnection factory creation.
   private void createPeerConnectionFactory(Context context) {
     Logger.d(TAG, "createPeerConnectionFactory()");
     mThreadChecker.checkIsOnValidThread();
+    long start = SystemClock.elapsedRealtime();
+    mPeerConnectionFactory = takeWarmFactory(mTimings);
+    boolean warm = mPeerConnectionFactory != null;
+    if (!warm) {
+      mPeerConnectionFactory = buildPeerConnectionFactory(context.getApplicationContext());
+    }
+    mTimings.setFactory(SystemClock.elapsedRealtime() - start, warm);
+  }
+
+  private static PeerConnectionFactory buildPeerConnectionFactory(Context appContext) {
     PeerConnectionFactory.Builder builder = PeerConnectionFactory.builder();
     builder.setOptions(null);
 
-    AudioDeviceModule adm = createJavaAudioDevice(context);
+    AudioDeviceModule adm = createJavaAudioDevice(appContext);
     VideoEncoderFactory encoderFactory =
         new DefaultVideoEncoderFactory(
             mEglBase.getEglBaseContext(), true /* enableIntelVp8Encoder */, true);
     VideoDecoderFactory decoderFactory =
         new DefaultVideoDecoderFactory(mEglBase.getEglBaseContext());
 
-    mPeerConnectionFactory =
-        builder
-            .setAudioDeviceModule(adm)
-            .setVideoEncoderFactory(encoderFactory)
-            .setVideoDecoderFactory(decoderFactory)
-            .createPeerConnectionFactory();
+    return builder
+        .setAudioDeviceModule(adm)
+        .setVideoEncoderFactory(encoderFactory)
+        .setVideoDecoderFactory(decoderFactory)
+        .createPeerConnectionFactory();
   }
 
-  private AudioDeviceModule createJavaAudioDevice(Context appContext) {
+  private static AudioDeviceModule createJavaAudioDevice(Context appContext) {
     Logger.d(TAG, "createJavaAudioDevice()");
-    mThreadChecker.checkIsOnValidThread();
     // Enable/disable OpenSL ES playback.
     // Set audio record error callbacks.
     JavaAudioDeviceModule.AudioRecordErrorCallback audioRecordErrorCallback =
@@ -136,68 +240,82 @@ public class PeerConnectionUtils {
     mAudioSource = mPeerConnectionFactory.createAudioSource(new MediaConstraints());
   }
 
-  private void createCamCapture(Context context) {
-    Logger.d(TAG, "createCamCapture()");
-    mThreadChecker.checkIsOnValidThread();
-    boolean isCamera2Supported = Camera2Enumerator.isSupported(context);
-    CameraEnumerator cameraEnumerator;
-
-    if (isCamera2Supported) {
-      cameraEnumerator = new Camera2Enumerator(context);
+  private static CameraEnumerator createCameraEnumerator(Context context) {
+    if (Camera2Enumerator.isSupported(context)) {
+      return new Camera2Enumerator(context);
     } else {
-      cameraEnumerator = new Camera1Enumerator();
+      return new Camera1Enumerator();
     }
-    final String[] deviceNames = cameraEnumerator.getDeviceNames();
-    for (String deviceName : deviceNames) {
-      boolean needFrontFacing = "front".endsWith(mPreferCameraFace);
-      String selectedDeviceName = null;
-      if (needFrontFacing) {
-        if (cameraEnumerator.isFrontFacing(deviceName)) {
-          selectedDeviceName = deviceName;
-        }
-      } else {
-        if (!cameraEnumerator.isFrontFacing(deviceName)) {
-          selectedDeviceName = deviceName;
+  }
+
+  // Camera characteristics are slow to query, keep the first camera of each facing.
+  private static void probeCameras(Context context) {
+    Logger.d(TAG, "probeCameras()");
+    CameraEnumerator cameraEnumerator = createCameraEnumerator(context);
+    String frontCameraName = null;
+    String backCameraName = null;
+    for (String deviceName : cameraEnumerator.getDeviceNames()) {
+      if (cameraEnumerator.isFrontFacing(deviceName)) {
+        if (frontCameraName == null) {
+          frontCameraName = deviceName;
         }
+      } else if (backCameraName == null) {
+        backCameraName = deviceName;
       }
+    }
+    sFrontCameraName = frontCameraName;
+    sBackCameraName = backCameraName;
+    sCamerasProbed = true;
+  }
 
-      if (!TextUtils.isEmpty(selectedDeviceName)) {
-        mCamCapture =
-            cameraEnumerator.createCapturer(
-                selectedDeviceName,
-                new CameraVideoCapturer.CameraEventsHandler() {
-                  @Override
-                  public void onCameraError(String s) {
-                    Logger.e(TAG, "onCameraError, " + s);
-                  }
-
-                  @Override
-                  public void onCameraDisconnected() {
-                    Logger.w(TAG, "onCameraDisconnected");
-                  }
-
-                  @Override
-                  public void onCameraFreezed(String s) {
-                    Logger.w(TAG, "onCameraFreezed, " + s);
-                  }
-
-                  @Override
-                  public void onCameraOpening(String s) {
-                    Logger.d(TAG, "onCameraOpening, " + s);
-                  }
-
-                  @Override
-                  public void onFirstFrameAvailable() {
-                    Logger.d(TAG, "onFirstFrameAvailable");
-                  }
-
-                  @Override
-                  public void onCameraClosed() {
-                    Logger.d(TAG, "onCameraClosed");
-                  }
-                });
-        break;
-      }
+  private void createCamCapture(Context context) {
+    Logger.d(TAG, "createCamCapture()");
+    mThreadChecker.checkIsOnValidThread();
+    if (!sCamerasProbed) {
+      probeCameras(context);
+    }
+    boolean needFrontFacing = "front".endsWith(mPreferCameraFace);
+    String selectedDeviceName = needFrontFacing ? sFrontCameraName : sBackCameraName;
+    if (selectedDeviceName != null) {
+      mCamCapture =
+          createCameraEnumerator(context)
+              .createCapturer(
+                  selectedDeviceName,
+                  new CameraVideoCapturer.CameraEventsHandler() {
+                    @Override
+                    public void onCameraError(String s) {
+                      Logger.e(TAG, "onCameraError, " + s);
+                    }
+
+                    @Override
+                    public void onCameraDisconnected() {
+                      Logger.w(TAG, "onCameraDisconnected");
+                    }
+
+                    @Override
+                    public void onCameraFreezed(String s) {
+                      Logger.w(TAG, "onCameraFreezed, " + s);
+                    }
+
+                    @Override
+                    public void onCameraOpening(String s) {
+                      Logger.d(TAG, "onCameraOpening, " + s);
+                    }
+
+                    @Override
+                    public void onFirstFrameAvailable() {
+                      if (mTimings.getFirstFrame() < 0 && mVideoSourceStartTime > 0) {
+                        mTimings.setFirstFrame(
+                            SystemClock.elapsedRealtime() - mVideoSourceStartTime);
+                      }
+                      Logger.d(TAG, "onFirstFrameAvailable, " + mTimings);
+                    }
+
+                    @Override
+                    public void onCameraClosed() {
+                      Logger.d(TAG, "onCameraClosed");
+                    }
+                  });
     }
 
     if (mCamCapture == null) {
@@ -218,6 +336,7 @@ public class PeerConnectionUtils {
   private void createVideoSource(Context context) {
     Logger.d(TAG, "createVideoSource()");
     mThreadChecker.checkIsOnValidThread();
+    mVideoSourceStartTime = SystemClock.elapsedRealtime();
     if (mPeerConnectionFactory == null) {
       createPeerConnectionFactory(context);
     }
@@ -230,7 +349,16 @@ public class PeerConnectionUtils {
         SurfaceTextureHelper.create("CaptureThread", mEglBase.getEglBaseContext());
 
     mCamCapture.initialize(surfaceTextureHelper, context, mVideoSource.getCapturerObserver());
-    mCamCapture.startCapture(640, 480, 30);
+    AdaptiveCaptureController.CaptureFormat format = AdaptiveCaptureController.DEFAULT_FORMAT;
+    mCamCapture.startCapture(format.width, format.height, format.framerate);
+  }
+
+  public void changeCaptureFormat(@NonNull AdaptiveCaptureController.CaptureFormat format) {
+    Logger.d(TAG, "changeCaptureFormat() " + format);
+    mThreadChecker.checkIsOnValidThread();
+    if (mCamCapture != null) {
+      mCamCapture.changeCaptureFormat(format.width, format.height, format.framerate);
+    }
   }
 
   // Audio track creation.
@@ -238,7 +366,9 @@ public class PeerConnectionUtils {
     Logger.d(TAG, "createAudioTrack()");
     mThreadChecker.checkIsOnValidThread();
     if (mAudioSource == null) {
+      long start = SystemClock.elapsedRealtime();
       createAudioSource(context);
+      mTimings.setAudioTrack(SystemClock.elapsedRealtime() - start);
     }
     return mPeerConnectionFactory.createAudioTrack(id, mAudioSource);
   }
@@ -248,7 +378,9 @@ public class PeerConnectionUtils {
     Logger.d(TAG, "createVideoTrack()");
     mThreadChecker.checkIsOnValidThread();
     if (mVideoSource == null) {
+      long start = SystemClock.elapsedRealtime();
       createVideoSource(context);
+      mTimings.setVideoTrack(SystemClock.elapsedRealtime() - start);
     }
 
     return mPeerConnectionFactory.createVideoTrack(id, mVideoSource);
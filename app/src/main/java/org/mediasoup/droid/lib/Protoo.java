@@ -5,22 +5,58 @@ import androidx.annotation.WorkerThread;
 
 import org.json.JSONObject;
 import org.mediasoup.droid.Logger;
+import org.mediasoup.droid.lib.socket.ReconnectMetrics;
+import org.mediasoup.droid.lib.socket.SendQueueMetrics;
+import org.mediasoup.droid.lib.socket.SignallingByteCounter;
 import org.mediasoup.droid.lib.socket.WebSocketTransport;
 import org.protoojs.droid.ProtooException;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 import io.reactivex.Observable;
+import io.reactivex.Single;
 
 @SuppressWarnings({"unused", "WeakerAccess"})
 public class Protoo extends org.protoojs.droid.Peer {
 
   private static final String TAG = "Protoo";
 
+  // Default timeout of requests issued through asyncRequest().
+  private static final long ASYNC_REQUEST_TIMEOUT_MS = 15000;
+
   interface RequestGenerator {
     void request(JSONObject req);
   }
 
+  interface ResponseHandler {
+    void onResponse(String data);
+  }
+
+  interface ErrorHandler {
+    void onError(Throwable throwable);
+  }
+
+  @NonNull private final WebSocketTransport mWebSocketTransport;
+
   public Protoo(@NonNull WebSocketTransport transport, @NonNull Listener listener) {
     super(transport, listener);
+    mWebSocketTransport = transport;
+  }
+
+  @NonNull
+  public SendQueueMetrics getSendQueueMetrics() {
+    return mWebSocketTransport.getSendQueueMetrics();
+  }
+
+  @NonNull
+  public SignallingByteCounter getByteCounter() {
+    return mWebSocketTransport.getByteCounter();
+  }
+
+  @NonNull
+  public ReconnectMetrics getReconnectMetrics() {
+    return mWebSocketTransport.getReconnectMetrics();
   }
 
   public Observable<String> request(String method) {
@@ -57,6 +93,43 @@ public class Protoo extends org.protoojs.droid.Peer {
                 }));
   }
 
+  public Single<String> asyncRequest(String method) {
+    return asyncRequest(method, new JSONObject(), ASYNC_REQUEST_TIMEOUT_MS);
+  }
+
+  public Single<String> asyncRequest(String method, @NonNull RequestGenerator generator) {
+    return asyncRequest(method, generator, ASYNC_REQUEST_TIMEOUT_MS);
+  }
+
+  /**
+   * Completion based request that never blocks the calling thread.
+   *
+   * <p>The request is sent on subscription. Disposing the subscription drops the response, and
+   * every failure (including the timeout) is reported as a {@link ProtooException}.
+   */
+  public Single<String> asyncRequest(
+      String method, @NonNull RequestGenerator generator, long timeoutMs) {
+    JSONObject req = new JSONObject();
+    generator.request(req);
+    return asyncRequest(method, req, timeoutMs);
+  }
+
+  private Single<String> asyncRequest(String method, @NonNull JSONObject data, long timeoutMs) {
+    return request(method, data)
+        .firstOrError()
+        .timeout(timeoutMs, TimeUnit.MILLISECONDS)
+        .onErrorResumeNext(
+            throwable -> {
+              if (throwable instanceof ProtooException) {
+                return Single.error(throwable);
+              }
+              if (throwable instanceof TimeoutException) {
+                return Single.error(new ProtooException(-1, method + " request timeout"));
+              }
+              return Single.error(new ProtooException(-1, throwable.getMessage()));
+            });
+  }
+
   @WorkerThread
   public String syncRequest(String method) throws ProtooException {
     return syncRequest(method, new JSONObject());
@@ -1,20 +1,30 @@
 package org.mediasoup.droid.lib;
 
+import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+import android.os.Build;
 import android.os.Handler;
 import android.os.HandlerThread;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.preference.PreferenceManager;
 import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.mediasoup.droid.Consumer;
+import org.mediasoup.droid.DataConsumer;
+import org.mediasoup.droid.DataProducer;
 import org.mediasoup.droid.Device;
 import org.mediasoup.droid.Logger;
 import org.mediasoup.droid.MediasoupException;
@@ -22,15 +32,48 @@ import org.mediasoup.droid.Producer;
 import org.mediasoup.droid.RecvTransport;
 import org.mediasoup.droid.SendTransport;
 import org.mediasoup.droid.Transport;
+import org.mediasoup.droid.demo.BuildConfig;
 import org.mediasoup.droid.lib.lv.RoomStore;
+import org.mediasoup.droid.lib.model.JoinTimings;
+import org.mediasoup.droid.lib.model.Peer;
+import org.mediasoup.droid.lib.model.Peers;
+import org.mediasoup.droid.lib.model.VideoEncoding;
+import org.mediasoup.droid.lib.socket.ReconnectMetrics;
+import org.mediasoup.droid.lib.socket.RoomNotification;
+import org.mediasoup.droid.lib.socket.SendQueueMetrics;
+import org.mediasoup.droid.lib.socket.SignallingByteCounter;
 import org.mediasoup.droid.lib.socket.WebSocketTransport;
+import org.mediasoup.droid.lib.stats.PeerQualityAggregator;
+import org.mediasoup.droid.lib.stats.RemoteStats;
+import org.mediasoup.droid.lib.stats.RemoteStatsPoller;
+import org.mediasoup.droid.lib.stats.StatsRecord;
+import org.mediasoup.droid.lib.stats.StatsRecorder;
+import org.mediasoup.droid.lib.stats.StatsSampler;
 import org.protoojs.droid.Message;
 import org.protoojs.droid.ProtooException;
 import org.webrtc.AudioTrack;
 import org.webrtc.CameraVideoCapturer;
+import org.webrtc.DataChannel;
+import org.webrtc.RtpParameters;
 import org.webrtc.VideoTrack;
 
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.observers.DisposableSingleObserver;
 
 import static org.mediasoup.droid.lib.JsonUtils.jsonPut;
 import static org.mediasoup.droid.lib.JsonUtils.toJsonObject;
@@ -48,6 +91,40 @@ public class RoomClient extends RoomMessageHandler {
     CLOSED,
   }
 
+  // Aliases of the local entities in the StatsSampler.
+  public static final String SEND_TRANSPORT_STATS = "sendTransport";
+  public static final String RECV_TRANSPORT_STATS = "recvTransport";
+  public static final String MIC_STATS = "mic";
+  public static final String CAM_STATS = "cam";
+  public static final String CHAT_DATA_PRODUCER_STATS = "chatDataProducer";
+  public static final String BOT_DATA_PRODUCER_STATS = "botDataProducer";
+
+  // Labels of the DataChannels.
+  public static final String CHAT_LABEL = "chat";
+  public static final String BOT_LABEL = "bot";
+
+  // Messages are dropped rather than queued beyond this many bytes waiting in a DataChannel.
+  public static final long MAX_DATA_BUFFERED_AMOUNT = 1024 * 1024;
+
+  // numStreams of libmediasoupclient, known before the device is loaded.
+  private static final String SCTP_CAPABILITIES = "{\"numStreams\":{\"OS\":1024,\"MIS\":1024}}";
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  /** Receives the messages of the DataConsumers. */
+  public interface DataMessageListener {
+    /**
+     * Called on the WebRTC thread that received the message, keep it short. {@code data} only
+     * holds the message during the call, copy what has to outlive it.
+     *
+     * @param peerId sending peer, null for the server bot.
+     * @param label label of the DataChannel, such as {@link #CHAT_LABEL}.
+     * @param binary whether the message was sent as binary rather than text.
+     */
+    void onDataMessage(
+        @Nullable String peerId, @NonNull String label, @NonNull ByteBuffer data, boolean binary);
+  }
+
   // Closed flag.
   private volatile boolean mClosed;
   // Android context.
@@ -64,8 +141,16 @@ public class RoomClient extends RoomMessageHandler {
   private String mProtooUrl;
   // mProtoo-client Protoo instance.
   private Protoo mProtoo;
+  // Reconnects the signalling right away when a network comes up, API 21+ only.
+  private ConnectivityManager.NetworkCallback mNetworkCallback;
   // mediasoup-client Device instance.
   private Device mMediasoupDevice;
+  // Hash of the router capabilities mMediasoupDevice was loaded with.
+  private String mDeviceCapabilitiesHash;
+  // Router capabilities of the rooms joined before.
+  private final RtpCapabilitiesCache mCapabilitiesCache;
+  // Key of this room in mCapabilitiesCache.
+  private final String mCapabilitiesKey;
   // mediasoup Transport for sending.
   private SendTransport mSendTransport;
   // mediasoup Transport for receiving.
@@ -78,14 +163,33 @@ public class RoomClient extends RoomMessageHandler {
   private VideoTrack mLocalVideoTrack;
   // Local cam mediasoup Producer.
   private Producer mCamProducer;
+  // Adapts the capture format while mCamProducer exists.
+  private AdaptiveCaptureController mCaptureController;
+  // Highest simulcast layer the webcam sends, -1 for all of them.
+  private int mMaxSendingSpatialLayer = -1;
+  // Preferred layers of the video consumers, from the size of their views.
+  private final ConsumerLayerController mLayerController;
+  // Local stats of the transports, producers and consumers.
+  private final StatsSampler mStatsSampler;
+  // Records mStatsSampler to a file of this session, null when disabled.
+  @Nullable private final StatsRecorder mStatsRecorder;
+  // Server side stats of the same entities.
+  private final RemoteStatsPoller mRemoteStatsPoller;
   // TODO(Haiyangwu): Local share mediasoup Producer.
   private Producer mShareProducer;
-  // TODO(Haiyangwu): Local chat DataProducer.
-  private Producer mChatDataProducer;
-  // TODO(Haiyangwu): Local bot DataProducer.
-  private Producer mBotDataProducer;
+  // Local chat DataProducer, guarded by mDataProducersLock.
+  private DataProducer mChatDataProducer;
+  // Local bot DataProducer, guarded by mDataProducersLock.
+  private DataProducer mBotDataProducer;
+  // Sends come from any thread, the DataProducers are created and closed on the worker thread.
+  private final Object mDataProducersLock = new Object();
+  // Listeners of the DataConsumer messages.
+  private final CopyOnWriteArrayList<DataMessageListener> mDataMessageListeners =
+      new CopyOnWriteArrayList<>();
   // jobs worker handler.
   private Handler mWorkHandler;
+  // jobs worker scheduler, async request results are delivered on it.
+  private Scheduler mWorkScheduler;
   // main looper handler.
   private Handler mMainHandler;
   // Disposable Composite. used to cancel running
@@ -127,12 +231,35 @@ public class RoomClient extends RoomMessageHandler {
     this.mStore.setMe(peerId, displayName, this.mOptions.getDevice());
     this.mStore.setRoomUrl(roomId, UrlFactory.getInvitationLink(roomId, forceH264, forceVP9));
     this.mPreferences = PreferenceManager.getDefaultSharedPreferences(this.mContext);
+    this.mCapabilitiesCache =
+        new RtpCapabilitiesCache(this.mContext, this.mOptions.isPersistRtpCapabilities());
+    this.mCapabilitiesKey = UrlFactory.getInvitationLink(roomId, forceH264, forceVP9);
 
     // init worker handler.
     HandlerThread handlerThread = new HandlerThread("worker");
     handlerThread.start();
     mWorkHandler = new Handler(handlerThread.getLooper());
+    mLayerController =
+        new ConsumerLayerController(mWorkHandler, this::setConsumerPreferredLayersImpl);
+    mWorkScheduler = AndroidSchedulers.from(handlerThread.getLooper());
     mMainHandler = new Handler(Looper.getMainLooper());
+    mStatsSampler = new StatsSampler(this::onStatsSampled);
+    if (this.mOptions.isRecordStats()) {
+      mStatsRecorder = new StatsRecorder(new File(this.mContext.getFilesDir(), "stats"));
+      mStatsSampler.addListener(mStatsRecorder);
+    } else {
+      mStatsRecorder = null;
+    }
+    mRemoteStatsPoller =
+        new RemoteStatsPoller(
+            mWorkHandler,
+            (method, idKey, id, callback) ->
+                asyncRequest(
+                    method,
+                    req -> jsonPut(req, idKey, id),
+                    callback::onResponse,
+                    callback::onError),
+            this::onRemoteStatsCycle);
     mWorkHandler.post(() -> mPeerConnectionUtils = new PeerConnectionUtils());
   }
 
@@ -142,11 +269,56 @@ public class RoomClient extends RoomMessageHandler {
     mStore.setRoomState(ConnectionState.CONNECTING);
     mWorkHandler.post(
         () -> {
-          WebSocketTransport transport = new WebSocketTransport(mProtooUrl);
+          WebSocketTransport transport =
+              new WebSocketTransport(
+                  mProtooUrl, mOptions.isBinaryFraming(), mOptions.isSignallingCompression());
+          transport.setNotificationListener(notificationListener);
+          registerNetworkCallback(transport);
           mProtoo = new Protoo(transport, peerListener);
         });
   }
 
+  private void registerNetworkCallback(@NonNull WebSocketTransport transport) {
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+      return;
+    }
+    ConnectivityManager connectivityManager =
+        (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+    if (connectivityManager == null) {
+      return;
+    }
+    unregisterNetworkCallback();
+    mNetworkCallback = newNetworkCallback(transport);
+    connectivityManager.registerNetworkCallback(
+        new NetworkRequest.Builder()
+            .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+            .build(),
+        mNetworkCallback);
+  }
+
+  @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+  private static ConnectivityManager.NetworkCallback newNetworkCallback(
+      @NonNull WebSocketTransport transport) {
+    return new ConnectivityManager.NetworkCallback() {
+      @Override
+      public void onAvailable(Network network) {
+        transport.onNetworkAvailable();
+      }
+    };
+  }
+
+  private void unregisterNetworkCallback() {
+    if (mNetworkCallback == null || Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+      return;
+    }
+    ConnectivityManager connectivityManager =
+        (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+    if (connectivityManager != null) {
+      connectivityManager.unregisterNetworkCallback(mNetworkCallback);
+    }
+    mNetworkCallback = null;
+  }
+
   @Async
   public void enableMic() {
     Logger.d(TAG, "enableMic()");
@@ -229,16 +401,14 @@ public class RoomClient extends RoomMessageHandler {
 
     disableCam();
     mWorkHandler.post(
-        () -> {
-          for (ConsumerHolder holder : mConsumers.values()) {
-            if (!"video".equals(holder.mConsumer.getKind())) {
-              continue;
-            }
-            pauseConsumer(holder.mConsumer);
-          }
-          mStore.setAudioOnlyState(true);
-          mStore.setAudioOnlyInProgress(false);
-        });
+        () ->
+            setConsumersPaused(
+                "video",
+                true,
+                () -> {
+                  mStore.setAudioOnlyState(true);
+                  mStore.setAudioOnlyInProgress(false);
+                }));
   }
 
   @Async
@@ -250,46 +420,28 @@ public class RoomClient extends RoomMessageHandler {
       enableCam();
     }
     mWorkHandler.post(
-        () -> {
-          for (ConsumerHolder holder : mConsumers.values()) {
-            if (!"video".equals(holder.mConsumer.getKind())) {
-              continue;
-            }
-            resumeConsumer(holder.mConsumer);
-          }
-          mStore.setAudioOnlyState(false);
-          mStore.setAudioOnlyInProgress(false);
-        });
+        () ->
+            setConsumersPaused(
+                "video",
+                false,
+                () -> {
+                  mStore.setAudioOnlyState(false);
+                  mStore.setAudioOnlyInProgress(false);
+                }));
   }
 
   @Async
   public void muteAudio() {
     Logger.d(TAG, "muteAudio()");
     mStore.setAudioMutedState(true);
-    mWorkHandler.post(
-        () -> {
-          for (ConsumerHolder holder : mConsumers.values()) {
-            if (!"audio".equals(holder.mConsumer.getKind())) {
-              continue;
-            }
-            pauseConsumer(holder.mConsumer);
-          }
-        });
+    mWorkHandler.post(() -> setConsumersPaused("audio", true, null));
   }
 
   @Async
   public void unmuteAudio() {
     Logger.d(TAG, "unmuteAudio()");
     mStore.setAudioMutedState(false);
-    mWorkHandler.post(
-        () -> {
-          for (ConsumerHolder holder : mConsumers.values()) {
-            if (!"audio".equals(holder.mConsumer.getKind())) {
-              continue;
-            }
-            resumeConsumer(holder.mConsumer);
-          }
-        });
+    mWorkHandler.post(() -> setConsumersPaused("audio", false, null));
   }
 
   @Async
@@ -321,9 +473,23 @@ public class RoomClient extends RoomMessageHandler {
   }
 
   @Async
-  public void setMaxSendingSpatialLayer() {
-    Logger.d(TAG, "setMaxSendingSpatialLayer()");
-    // TODO(feature): layer
+  public void setMaxSendingSpatialLayer(int spatialLayer) {
+    Logger.d(TAG, "setMaxSendingSpatialLayer() " + spatialLayer);
+    mWorkHandler.post(
+        () -> {
+          mMaxSendingSpatialLayer = spatialLayer;
+          if (mCamProducer == null) {
+            return;
+          }
+          try {
+            mCamProducer.setMaxSpatialLayer(spatialLayer);
+          } catch (MediasoupException e) {
+            e.printStackTrace();
+            logError("setMaxSendingSpatialLayer() | failed:", e);
+            mStore.addNotify(
+                "error", "Error setting max sending video spatial layer: " + e.getMessage());
+          }
+        });
   }
 
   @Async
@@ -333,51 +499,111 @@ public class RoomClient extends RoomMessageHandler {
   }
 
   @Async
-  public void setConsumerPreferredLayers(
-      String consumerId, String spatialLayer, String temporalLayer) {
+  public void setConsumerPreferredLayers(String consumerId, int spatialLayer, int temporalLayer) {
     Logger.d(TAG, "setConsumerPreferredLayers()");
-    // TODO: layer
+    mWorkHandler.post(
+        () -> setConsumerPreferredLayersImpl(consumerId, spatialLayer, temporalLayer));
+  }
+
+  /** Views rendering video consumers report their size and visibility here. */
+  @NonNull
+  public ConsumerLayerController getConsumerLayerController() {
+    return mLayerController;
+  }
+
+  @WorkerThread
+  private void setConsumerPreferredLayersImpl(
+      @NonNull String consumerId, int spatialLayer, int temporalLayer) {
+    asyncRequest(
+        "setConsumerPreferredLayers",
+        req -> {
+          jsonPut(req, "consumerId", consumerId);
+          jsonPut(req, "spatialLayer", spatialLayer);
+          jsonPut(req, "temporalLayer", temporalLayer);
+        },
+        data -> mStore.setConsumerPreferredLayers(consumerId, spatialLayer, temporalLayer),
+        e -> logError("setConsumerPreferredLayers() | failed:", e));
   }
 
   @Async
   public void requestConsumerKeyFrame(String consumerId) {
     Logger.d(TAG, "requestConsumerKeyFrame()");
     mWorkHandler.post(
-        () -> {
-          try {
-            mProtoo.syncRequest(
-                "requestConsumerKeyFrame", req -> jsonPut(req, "consumerId", "consumerId"));
-            mStore.addNotify("Keyframe requested for video consumer");
-          } catch (ProtooException e) {
-            e.printStackTrace();
-            logError("restartIce() | failed:", e);
-            mStore.addNotify("error", "ICE restart failed: " + e.getMessage());
-          }
-        });
+        () ->
+            asyncRequest(
+                "requestConsumerKeyFrame",
+                req -> jsonPut(req, "consumerId", consumerId),
+                data -> mStore.addNotify("Keyframe requested for video consumer"),
+                e -> {
+                  logError("requestConsumerKeyFrame() | failed:", e);
+                  mStore.addNotify("error", "Keyframe request failed: " + e.getMessage());
+                }));
   }
 
   @Async
   public void enableChatDataProducer() {
     Logger.d(TAG, "enableChatDataProducer()");
-    // TODO(feature): data channel
+    mWorkHandler.post(this::enableChatDataProducerImpl);
   }
 
   @Async
   public void enableBotDataProducer() {
     Logger.d(TAG, "enableBotDataProducer()");
-    // TODO(feature): data channel
+    mWorkHandler.post(this::enableBotDataProducerImpl);
   }
 
   @Async
   public void sendChatMessage(String txt) {
     Logger.d(TAG, "sendChatMessage()");
-    // TODO(feature): data channel
+    if (!sendData(CHAT_LABEL, ByteBuffer.wrap(txt.getBytes(UTF_8)), false)) {
+      mStore.addNotify("error", "Chat message could not be sent");
+    }
   }
 
   @Async
   public void sendBotMessage(String txt) {
     Logger.d(TAG, "sendBotMessage()");
-    // TODO(feature): data channel
+    if (!sendData(BOT_LABEL, ByteBuffer.wrap(txt.getBytes(UTF_8)), false)) {
+      mStore.addNotify("error", "Bot message could not be sent");
+    }
+  }
+
+  /**
+   * Send the remaining bytes of {@code data} as a binary message of the chat DataChannel.
+   *
+   * <p>Callable from any thread at high rates: no String conversion, no thread hop, and {@code
+   * data} can be reused as soon as the call returns. The channel is unordered with one
+   * retransmission, so messages may be lost or reordered.
+   *
+   * @return false if the message was dropped, because there is no chat DataProducer or more than
+   *     {@link #MAX_DATA_BUFFERED_AMOUNT} bytes are still waiting to be sent.
+   */
+  public boolean sendChatData(@NonNull ByteBuffer data) {
+    return sendData(CHAT_LABEL, data, true);
+  }
+
+  /** Same as {@link #sendChatData(ByteBuffer)} on the bot DataChannel. */
+  public boolean sendBotData(@NonNull ByteBuffer data) {
+    return sendData(BOT_LABEL, data, true);
+  }
+
+  private boolean sendData(@NonNull String label, @NonNull ByteBuffer data, boolean binary) {
+    synchronized (mDataProducersLock) {
+      DataProducer dataProducer = CHAT_LABEL.equals(label) ? mChatDataProducer : mBotDataProducer;
+      if (dataProducer == null || dataProducer.getBufferedAmount() > MAX_DATA_BUFFERED_AMOUNT) {
+        return false;
+      }
+      dataProducer.send(new DataChannel.Buffer(data, binary));
+      return true;
+    }
+  }
+
+  public void addDataMessageListener(@NonNull DataMessageListener listener) {
+    mDataMessageListeners.addIfAbsent(listener);
+  }
+
+  public void removeDataMessageListener(@NonNull DataMessageListener listener) {
+    mDataMessageListeners.remove(listener);
   }
 
   @Async
@@ -407,82 +633,151 @@ public class RoomClient extends RoomMessageHandler {
         });
   }
 
-  @Async
-  public void getSendTransportRemoteStats() {
-    Logger.d(TAG, "getSendTransportRemoteStats()");
-    // TODO(feature): stats
+  /** Latest server side stats of the send transport, or null before the first answer. */
+  @Nullable
+  public RemoteStats getSendTransportRemoteStats() {
+    return mRemoteStatsPoller.getLatest(SEND_TRANSPORT_STATS);
   }
 
-  @Async
-  public void getRecvTransportRemoteStats() {
-    Logger.d(TAG, "getRecvTransportRemoteStats()");
-    // TODO(feature): stats
+  /** Latest server side stats of the receive transport, or null before the first answer. */
+  @Nullable
+  public RemoteStats getRecvTransportRemoteStats() {
+    return mRemoteStatsPoller.getLatest(RECV_TRANSPORT_STATS);
   }
 
-  @Async
-  public void getAudioRemoteStats() {
-    Logger.d(TAG, "getAudioRemoteStats()");
-    // TODO(feature): stats
+  /** Latest server side stats of the mic producer, or null before the first answer. */
+  @Nullable
+  public RemoteStats getAudioRemoteStats() {
+    return mRemoteStatsPoller.getLatest(MIC_STATS);
   }
 
-  @Async
-  public void getVideoRemoteStats() {
-    Logger.d(TAG, "getVideoRemoteStats()");
-    // TODO(feature): stats
+  /** Latest server side stats of the webcam producer, or null before the first answer. */
+  @Nullable
+  public RemoteStats getVideoRemoteStats() {
+    return mRemoteStatsPoller.getLatest(CAM_STATS);
   }
 
-  @Async
-  public void getConsumerRemoteStats(String consumerId) {
-    Logger.d(TAG, "getConsumerRemoteStats()");
-    // TODO(feature): stats
+  /** Latest server side stats of a consumer, or null before the first answer. */
+  @Nullable
+  public RemoteStats getConsumerRemoteStats(String consumerId) {
+    return mRemoteStatsPoller.getLatest(consumerId);
   }
 
-  @Async
-  public void getChatDataProducerRemoteStats(String consumerId) {
-    Logger.d(TAG, "getChatDataProducerRemoteStats()");
-    // TODO(feature): stats
+  /** Latest server side stats of the chat data producer, or null before the first answer. */
+  @Nullable
+  public RemoteStats getChatDataProducerRemoteStats() {
+    return mRemoteStatsPoller.getLatest(CHAT_DATA_PRODUCER_STATS);
   }
 
-  @Async
-  public void getBotDataProducerRemoteStats() {
-    Logger.d(TAG, "getBotDataProducerRemoteStats()");
-    // TODO(feature): stats
+  /** Latest server side stats of the bot data producer, or null before the first answer. */
+  @Nullable
+  public RemoteStats getBotDataProducerRemoteStats() {
+    return mRemoteStatsPoller.getLatest(BOT_DATA_PRODUCER_STATS);
   }
 
-  @Async
-  public void getDataConsumerRemoteStats(String dataConsumerId) {
-    Logger.d(TAG, "getDataConsumerRemoteStats()");
-    // TODO(feature): stats
+  /** Latest server side stats of a data consumer, or null before the first answer. */
+  @Nullable
+  public RemoteStats getDataConsumerRemoteStats(String dataConsumerId) {
+    return mRemoteStatsPoller.getLatest(dataConsumerId);
   }
 
-  @Async
-  public void getSendTransportLocalStats() {
-    Logger.d(TAG, "getSendTransportLocalStats()");
-    // TODO(feature): stats
+  /** Latest local stats of the send transport, or null before the first sample. */
+  @Nullable
+  public StatsRecord getSendTransportLocalStats() {
+    return mStatsSampler.getLatest(SEND_TRANSPORT_STATS);
   }
 
-  @Async
-  public void getRecvTransportLocalStats() {
-    Logger.d(TAG, "getRecvTransportLocalStats()");
-    /// TODO(feature): stats
+  /** Latest local stats of the receive transport, or null before the first sample. */
+  @Nullable
+  public StatsRecord getRecvTransportLocalStats() {
+    return mStatsSampler.getLatest(RECV_TRANSPORT_STATS);
   }
 
-  @Async
-  public void getAudioLocalStats() {
-    Logger.d(TAG, "getAudioLocalStats()");
-    // TODO(feature): stats
+  /** Latest local stats of the mic producer, or null before the first sample. */
+  @Nullable
+  public StatsRecord getAudioLocalStats() {
+    return mStatsSampler.getLatest(MIC_STATS);
   }
 
-  @Async
-  public void getVideoLocalStats() {
-    Logger.d(TAG, "getVideoLocalStats()");
-    // TODO(feature): stats
+  /** Latest local stats of the webcam producer, or null before the first sample. */
+  @Nullable
+  public StatsRecord getVideoLocalStats() {
+    return mStatsSampler.getLatest(CAM_STATS);
   }
 
-  @Async
-  public void getConsumerLocalStats(String consumerId) {
-    Logger.d(TAG, "getConsumerLocalStats()");
-    // TODO(feature): stats
+  /** Latest local stats of a consumer, or null before the first sample. */
+  @Nullable
+  public StatsRecord getConsumerLocalStats(String consumerId) {
+    return mStatsSampler.getLatest(consumerId);
+  }
+
+  /** History of the local stats, by entity id or by the aliases of the getters above. */
+  @NonNull
+  public StatsSampler getStatsSampler() {
+    return mStatsSampler;
+  }
+
+  /** Recorder of the stats of this session, null when RoomOptions#isRecordStats() is off. */
+  @Nullable
+  public StatsRecorder getStatsRecorder() {
+    return mStatsRecorder;
+  }
+
+  // A null source only polls the server side stats, DataProducers and DataConsumers have no
+  // local ones.
+  @WorkerThread
+  private void trackStats(
+      @NonNull String id,
+      @Nullable String alias,
+      @NonNull String group,
+      @NonNull RemoteStatsPoller.Kind kind,
+      @Nullable StatsSampler.StatsSource source) {
+    if (source != null) {
+      mStatsSampler.track(id, alias, group, kind == RemoteStatsPoller.Kind.TRANSPORT, source);
+      mStatsSampler.start();
+    }
+    mRemoteStatsPoller.track(id, alias, group, kind);
+    mRemoteStatsPoller.start();
+  }
+
+  // Must come before the entity is closed.
+  @WorkerThread
+  private void untrackStats(@NonNull String id) {
+    mStatsSampler.untrack(id);
+    mRemoteStatsPoller.untrack(id);
+  }
+
+  @WorkerThread
+  private void untrackStatsGroup(@NonNull String group) {
+    mStatsSampler.untrackGroup(group);
+    mRemoteStatsPoller.untrackGroup(group);
+  }
+
+  // Publishes the quality of every remote peer once all the answers of a cycle are in.
+  @WorkerThread
+  private void onRemoteStatsCycle(RemoteStatsPoller poller) {
+    PeerQualityAggregator aggregator = new PeerQualityAggregator();
+    for (ConsumerHolder holder : mConsumers.values()) {
+      String consumerId = holder.mConsumer.getId();
+      aggregator.add(
+          holder.peerId, mStatsSampler.getLatest(consumerId), poller.getLatest(consumerId));
+    }
+    mStore.setPeerQualities(aggregator.build());
+  }
+
+  @WorkerThread
+  private void onStatsSampled(StatsSampler sampler) {
+    StatsRecord sendTransport = sampler.getLatest(SEND_TRANSPORT_STATS);
+    if (sendTransport == null || sendTransport.getAvailableOutgoingBitrate() < 0) {
+      return;
+    }
+    mWorkHandler.post(
+        () -> {
+          if (mCaptureController != null) {
+            mCaptureController.onUplinkBandwidthEstimate(
+                sendTransport.getAvailableOutgoingBitrate());
+          }
+        });
   }
 
   @Async
@@ -497,6 +792,27 @@ public class RoomClient extends RoomMessageHandler {
     // TODO(feature): stats
   }
 
+  /** Signalling send queue counters, or null when not connected. */
+  @Nullable
+  public SendQueueMetrics getSendQueueMetrics() {
+    Protoo protoo = mProtoo;
+    return protoo != null ? protoo.getSendQueueMetrics() : null;
+  }
+
+  /** Signalling byte counters, or null when not connected. */
+  @Nullable
+  public SignallingByteCounter getSignallingByteCounter() {
+    Protoo protoo = mProtoo;
+    return protoo != null ? protoo.getByteCounter() : null;
+  }
+
+  /** Signalling reconnection statistics, or null when not connected. */
+  @Nullable
+  public ReconnectMetrics getReconnectMetrics() {
+    Protoo protoo = mProtoo;
+    return protoo != null ? protoo.getReconnectMetrics() : null;
+  }
+
   @Async
   public void close() {
     if (this.mClosed) {
@@ -509,9 +825,19 @@ public class RoomClient extends RoomMessageHandler {
         () -> {
           // Close mProtoo Protoo
           if (mProtoo != null) {
+            Logger.d(TAG, "close() " + mProtoo.getSendQueueMetrics());
+            Logger.d(TAG, "close() " + mProtoo.getByteCounter());
+            Logger.d(TAG, "close() " + mProtoo.getReconnectMetrics());
             mProtoo.close();
             mProtoo = null;
           }
+          unregisterNetworkCallback();
+          stopCaptureController();
+          mStatsSampler.stop();
+          if (mStatsRecorder != null) {
+            mStatsRecorder.close();
+          }
+          mRemoteStatsPoller.stop();
 
           // dispose all transport and device.
           disposeTransportDevice();
@@ -531,6 +857,7 @@ public class RoomClient extends RoomMessageHandler {
           }
 
           // dispose peerConnection.
+          Logger.d(TAG, "close() " + mPeerConnectionUtils.getStartupTimings());
           mPeerConnectionUtils.dispose();
 
           // quit worker handler thread.
@@ -547,31 +874,52 @@ public class RoomClient extends RoomMessageHandler {
   @WorkerThread
   private void disposeTransportDevice() {
     Logger.d(TAG, "disposeTransportDevice()");
-    // Close mediasoup Transports.
-    if (mSendTransport != null) {
-      mSendTransport.close();
-      mSendTransport.dispose();
-      mSendTransport = null;
-    }
-
-    if (mRecvTransport != null) {
-      mRecvTransport.close();
-      mRecvTransport.dispose();
-      mRecvTransport = null;
-    }
+    disposeTransports();
 
     // dispose device.
     if (mMediasoupDevice != null) {
       mMediasoupDevice.dispose();
       mMediasoupDevice = null;
+      mDeviceCapabilitiesHash = null;
+    }
+  }
+
+  @WorkerThread
+  private void disposeTransports() {
+    // Close mediasoup Transports.
+    if (mSendTransport != null) {
+      disposeSendTransport();
+    }
+
+    if (mRecvTransport != null) {
+      disposeRecvTransport();
     }
   }
 
+  // Known notifications, decoded by the socket without going through Message.parse().
+  private WebSocketTransport.NotificationListener notificationListener =
+      notification ->
+          mWorkHandler.post(
+              () -> {
+                try {
+                  handleNotification(notification);
+                } catch (Exception e) {
+                  Logger.e(TAG, "handleNotification error.", e);
+                }
+              });
+
   private Protoo.Listener peerListener =
       new Protoo.Listener() {
         @Override
         public void onOpen() {
-          mWorkHandler.post(() -> joinImpl());
+          mWorkHandler.post(
+              () -> {
+                if (canResume()) {
+                  resumeImpl();
+                } else {
+                  joinImpl();
+                }
+              });
         }
 
         @Override
@@ -586,7 +934,9 @@ public class RoomClient extends RoomMessageHandler {
         @Override
         public void onRequest(
             @NonNull Message.Request request, @NonNull Protoo.ServerRequestHandler handler) {
-          Logger.d(TAG, "onRequest() " + request.getData().toString());
+          if (BuildConfig.DEBUG) {
+            Logger.d(TAG, "onRequest() " + request.getData().toString());
+          }
           mWorkHandler.post(
               () -> {
                 try {
@@ -615,12 +965,14 @@ public class RoomClient extends RoomMessageHandler {
 
         @Override
         public void onNotification(@NonNull Message.Notification notification) {
-          Logger.d(
-              TAG,
-              "onNotification() "
-                  + notification.getMethod()
-                  + ", "
-                  + notification.getData().toString());
+          if (BuildConfig.DEBUG) {
+            Logger.d(
+                TAG,
+                "onNotification() "
+                    + notification.getMethod()
+                    + ", "
+                    + notification.getData().toString());
+          }
           mWorkHandler.post(
               () -> {
                 try {
@@ -638,9 +990,12 @@ public class RoomClient extends RoomMessageHandler {
                 mStore.addNotify("error", "WebSocket disconnected");
                 mStore.setRoomState(ConnectionState.CONNECTING);
 
-                // Close All Transports created by device.
-                // All will reCreated After ReJoin.
-                disposeTransportDevice();
+                if (!canResume()) {
+                  // Close All Transports created by device.
+                  // All will reCreated After ReJoin, the loaded device is kept if the router
+                  // capabilities did not change.
+                  disposeTransports();
+                }
               });
         }
 
@@ -662,44 +1017,41 @@ public class RoomClient extends RoomMessageHandler {
   @WorkerThread
   private void joinImpl() {
     Logger.d(TAG, "joinImpl()");
+    // A live socket that fails goes through onFail() and not onDisconnected(), so the transports
+    // of the previous session, and the producers on them, may still be there.
+    disposeTransports();
 
+    JoinTimings timings = new JoinTimings(mOptions.isPipelineJoin());
+    RtpCapabilitiesCache.Entry cached = mCapabilitiesCache.get(mCapabilitiesKey);
     try {
-      mMediasoupDevice = new Device();
-      String routerRtpCapabilities = mProtoo.syncRequest("getRouterRtpCapabilities");
-      mMediasoupDevice.load(routerRtpCapabilities);
-      String rtpCapabilities = mMediasoupDevice.getRtpCapabilities();
-
-      // Create mediasoup Transport for sending (unless we don't want to produce).
-      if (mOptions.isProduce()) {
-        createSendTransport();
+      if (mMediasoupDevice != null
+          && (cached == null || !cached.getHash().equals(mDeviceCapabilitiesHash))) {
+        mMediasoupDevice.dispose();
+        mMediasoupDevice = null;
       }
-
-      // Create mediasoup Transport for sending (unless we don't want to consume).
-      if (mOptions.isConsume()) {
-        createRecvTransport();
+      if (mMediasoupDevice == null) {
+        mMediasoupDevice = new Device();
+        mDeviceCapabilitiesHash = null;
+      }
+      String joinResponse;
+      if (mOptions.isPipelineJoin()) {
+        joinResponse = pipelinedJoin(timings, cached);
+      } else {
+        joinResponse = sequentialJoin(timings, cached);
       }
-
-      // Join now into the room.
-      // TODO(HaiyangWu): Don't send our RTP capabilities if we don't want to consume.
-      String joinResponse =
-          mProtoo.syncRequest(
-              "join",
-              req -> {
-                jsonPut(req, "displayName", mDisplayName);
-                jsonPut(req, "device", mOptions.getDevice().toJSONObject());
-                jsonPut(req, "rtpCapabilities", toJsonObject(rtpCapabilities));
-                // TODO (HaiyangWu): add sctpCapabilities
-                jsonPut(req, "sctpCapabilities", "");
-              });
 
       mStore.setRoomState(ConnectionState.CONNECTED);
       mStore.addNotify("You are in the room!", 3000);
 
-      JSONObject resObj = JsonUtils.toJsonObject(joinResponse);
-      JSONArray peers = resObj.optJSONArray("peers");
-      for (int i = 0; peers != null && i < peers.length(); i++) {
-        JSONObject peer = peers.getJSONObject(i);
-        mStore.addPeer(peer.optString("id"), peer);
+      // Peers of a previous session may have left meanwhile.
+      syncPeers(joinResponse);
+
+      timings.finished();
+      Logger.d(TAG, "joinImpl() done, " + timings);
+      mStore.setRoomJoinTimings(timings);
+
+      if (cached != null && cached.needsRefresh()) {
+        refreshRtpCapabilities(cached);
       }
 
       // Enable mic/webcam.
@@ -709,10 +1061,18 @@ public class RoomClient extends RoomMessageHandler {
         mStore.setMediaCapabilities(canSendMic, canSendCam);
         mMainHandler.post(this::enableMic);
         mMainHandler.post(this::enableCam);
+        if (mOptions.isUseDataChannel()) {
+          mMainHandler.post(this::enableChatDataProducer);
+          mMainHandler.post(this::enableBotDataProducer);
+        }
       }
     } catch (Exception e) {
       e.printStackTrace();
       logError("joinRoom() failed:", e);
+      if (cached != null) {
+        // Maybe the router changed, fetch its capabilities next time.
+        mCapabilitiesCache.invalidate(mCapabilitiesKey);
+      }
       if (TextUtils.isEmpty(e.getMessage())) {
         mStore.addNotify("error", "Could not join the room, internal error");
       } else {
@@ -722,6 +1082,324 @@ public class RoomClient extends RoomMessageHandler {
     }
   }
 
+  private boolean canResume() {
+    return mOptions.isResumeSession() && mMediasoupDevice != null && mMediasoupDevice.isLoaded();
+  }
+
+  /**
+   * Re-attach to the room on a reconnected socket, keeping the loaded device and the local tracks.
+   *
+   * <p>Transports the server still knows get an ICE restart and keep their producers and
+   * consumers. Lost transports are recreated from the loaded device (no router capabilities round
+   * trip), and since the server only loses them along with the peer, "join" is sent again.
+   *
+   * <p>Either way the peers are then reconciled with the join response, since the notifications
+   * sent while the socket was down (peerClosed, consumerClosed) are lost.
+   */
+  @WorkerThread
+  private void resumeImpl() {
+    Logger.d(TAG, "resumeImpl()");
+    long startTime = SystemClock.elapsedRealtime();
+    try {
+      boolean hadTransports = mSendTransport != null || mRecvTransport != null;
+      boolean sendLost = mSendTransport != null && !restartTransportIce(mSendTransport);
+      boolean recvLost = mRecvTransport != null && !restartTransportIce(mRecvTransport);
+
+      if (hadTransports && !sendLost && !recvLost) {
+        reconcileJoinedPeers();
+        mStore.setRoomState(ConnectionState.CONNECTED);
+        mStore.addNotify("Reconnected to the room", 3000);
+        Logger.d(TAG, "resumeImpl() done with ICE restarts in " + elapsedSince(startTime) + "ms");
+        return;
+      }
+
+      boolean restoreMic = mMicProducer != null;
+      boolean restoreCam = mCamProducer != null;
+      if (sendLost) {
+        disposeSendTransport();
+      }
+      if (recvLost) {
+        disposeRecvTransport();
+      }
+
+      if (mOptions.isProduce() && mSendTransport == null) {
+        createSendTransport(mProtoo.syncRequest("createWebRtcTransport", this::sendTransportReq));
+      }
+      if (mOptions.isConsume() && mRecvTransport == null) {
+        createRecvTransport(mProtoo.syncRequest("createWebRtcTransport", this::recvTransportReq));
+      }
+
+      String rtpCapabilities = mMediasoupDevice.getRtpCapabilities();
+      String joinResponse = mProtoo.syncRequest("join", req -> joinReq(req, rtpCapabilities));
+      syncPeers(joinResponse);
+
+      mStore.setRoomState(ConnectionState.CONNECTED);
+      mStore.addNotify("Reconnected to the room", 3000);
+      Logger.d(TAG, "resumeImpl() done with a new join in " + elapsedSince(startTime) + "ms");
+
+      // The local tracks survived, only the producers are new.
+      if (restoreMic) {
+        mMainHandler.post(this::enableMic);
+      }
+      if (restoreCam) {
+        mMainHandler.post(this::enableCam);
+      }
+      if (mOptions.isProduce() && mOptions.isUseDataChannel()) {
+        mMainHandler.post(this::enableChatDataProducer);
+        mMainHandler.post(this::enableBotDataProducer);
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+      logError("resumeImpl() failed, joining from scratch:", e);
+      disposeTransportDevice();
+      joinImpl();
+    }
+  }
+
+  // Returns false if the server does not know the transport anymore.
+  @WorkerThread
+  private boolean restartTransportIce(Transport transport) throws MediasoupException {
+    String iceParameters;
+    try {
+      iceParameters =
+          mProtoo.syncRequest("restartIce", req -> jsonPut(req, "transportId", transport.getId()));
+    } catch (ProtooException e) {
+      Logger.w(TAG, "restartTransportIce() | " + transport.getId() + " lost: " + e.getMessage());
+      return false;
+    }
+    transport.restartIce(iceParameters);
+    return true;
+  }
+
+  @WorkerThread
+  private void disposeSendTransport() {
+    // Closing the transport closes its producers, their listeners remove them from the store.
+    closeDataProducers();
+    untrackStatsGroup(mSendTransport.getId());
+    mSendTransport.close();
+    mSendTransport.dispose();
+    mSendTransport = null;
+  }
+
+  @WorkerThread
+  private void disposeRecvTransport() {
+    // Closed consumers only leave mConsumers, the store has to be told separately.
+    for (ConsumerHolder holder : new ArrayList<>(mConsumers.values())) {
+      mStore.removeConsumer(holder.peerId, holder.mConsumer.getId());
+      mLayerController.removeConsumer(holder.mConsumer.getId());
+    }
+    untrackStatsGroup(mRecvTransport.getId());
+    mRecvTransport.close();
+    mRecvTransport.dispose();
+    mRecvTransport = null;
+    mConsumers.clear();
+    mDataConsumers.clear();
+  }
+
+  // The server kept the peer, "join" is only sent again for its peer list. A server that refuses
+  // a second join leaves the room as it is, the transports are fine.
+  @WorkerThread
+  private void reconcileJoinedPeers() throws JSONException {
+    String rtpCapabilities = mMediasoupDevice.getRtpCapabilities();
+    String joinResponse;
+    try {
+      joinResponse = mProtoo.syncRequest("join", req -> joinReq(req, rtpCapabilities));
+    } catch (ProtooException e) {
+      Logger.w(TAG, "reconcileJoinedPeers() | join refused: " + e.getMessage());
+      return;
+    }
+    syncPeers(joinResponse);
+  }
+
+  // Make the peers of the store match the ones of a join response. Known peers are kept as they
+  // are, with whatever consumers survived. Peers that left have their consumers closed as their
+  // consumerClosed notifications would have.
+  @WorkerThread
+  private void syncPeers(String joinResponse) throws JSONException {
+    JSONArray peers = JsonUtils.toJsonObject(joinResponse).optJSONArray("peers");
+    Peers current = mStore.getPeers().getLatest();
+    Set<String> peerIds = new HashSet<>();
+    for (int i = 0; peers != null && i < peers.length(); i++) {
+      JSONObject peer = peers.getJSONObject(i);
+      String peerId = peer.optString("id");
+      peerIds.add(peerId);
+      if (current.getPeer(peerId) == null) {
+        mStore.addPeer(peerId, peer);
+      }
+    }
+    for (Peer peer : current.getAllPeers()) {
+      if (!peerIds.contains(peer.getId())) {
+        closePeerConsumers(peer.getId());
+        mStore.removePeer(peer.getId());
+      }
+    }
+  }
+
+  @WorkerThread
+  private void closePeerConsumers(@NonNull String peerId) {
+    for (ConsumerHolder holder : new ArrayList<>(mConsumers.values())) {
+      if (holder.peerId.equals(peerId)) {
+        closeConsumer(holder.mConsumer.getId());
+      }
+    }
+    for (DataConsumerHolder holder : new ArrayList<>(mDataConsumers.values())) {
+      if (peerId.equals(holder.peerId)) {
+        closeDataConsumer(holder.mDataConsumer.getId());
+      }
+    }
+  }
+
+  private static long elapsedSince(long startTime) {
+    return SystemClock.elapsedRealtime() - startTime;
+  }
+
+  @WorkerThread
+  private String sequentialJoin(JoinTimings timings, @Nullable RtpCapabilitiesCache.Entry cached)
+      throws Exception {
+    RtpCapabilitiesCache.Entry capabilities;
+    if (cached != null) {
+      capabilities = cached;
+      timings.routerRtpCapabilitiesCached();
+    } else {
+      capabilities =
+          mCapabilitiesCache.put(
+              mCapabilitiesKey, mProtoo.syncRequest("getRouterRtpCapabilities"));
+      timings.routerRtpCapabilitiesDone();
+    }
+    loadDevice(capabilities);
+    timings.deviceLoadDone();
+    String rtpCapabilities = mMediasoupDevice.getRtpCapabilities();
+
+    // Create mediasoup Transport for sending (unless we don't want to produce).
+    if (mOptions.isProduce()) {
+      createSendTransport(mProtoo.syncRequest("createWebRtcTransport", this::sendTransportReq));
+      timings.sendTransportDone();
+    }
+
+    // Create mediasoup Transport for sending (unless we don't want to consume).
+    if (mOptions.isConsume()) {
+      createRecvTransport(mProtoo.syncRequest("createWebRtcTransport", this::recvTransportReq));
+      timings.recvTransportDone();
+    }
+
+    // Join now into the room.
+    // TODO(HaiyangWu): Don't send our RTP capabilities if we don't want to consume.
+    String joinResponse = mProtoo.syncRequest("join", req -> joinReq(req, rtpCapabilities));
+    timings.joinDone();
+    return joinResponse;
+  }
+
+  /**
+   * Join with independent requests in flight at the same time.
+   *
+   * <p>The router capabilities (unless cached) and both transports are requested at once. "join"
+   * is sent as soon as the device is loaded and the recv transport exists (the server creates
+   * consumers for the existing peers on it right after join), and the send transport is created
+   * locally while the join response is still on its way.
+   */
+  @WorkerThread
+  private String pipelinedJoin(JoinTimings timings, @Nullable RtpCapabilitiesCache.Entry cached)
+      throws Exception {
+    Future<String> routerRtpCapabilities =
+        cached != null
+            ? null
+            : mProtoo
+                .asyncRequest("getRouterRtpCapabilities")
+                .doOnSuccess(d -> timings.routerRtpCapabilitiesDone())
+                .toFuture();
+    if (cached != null) {
+      timings.routerRtpCapabilitiesCached();
+    }
+    Future<String> sendTransportInfo =
+        mOptions.isProduce()
+            ? mProtoo
+                .asyncRequest("createWebRtcTransport", this::sendTransportReq)
+                .toFuture()
+            : null;
+    Future<String> recvTransportInfo =
+        mOptions.isConsume()
+            ? mProtoo
+                .asyncRequest("createWebRtcTransport", this::recvTransportReq)
+                .toFuture()
+            : null;
+    Future<String> joinResponse = null;
+
+    try {
+      loadDevice(
+          cached != null
+              ? cached
+              : mCapabilitiesCache.put(mCapabilitiesKey, routerRtpCapabilities.get()));
+      timings.deviceLoadDone();
+      String rtpCapabilities = mMediasoupDevice.getRtpCapabilities();
+
+      if (recvTransportInfo != null) {
+        createRecvTransport(recvTransportInfo.get());
+        timings.recvTransportDone();
+      }
+
+      // TODO(HaiyangWu): Don't send our RTP capabilities if we don't want to consume.
+      joinResponse =
+          mProtoo
+              .asyncRequest("join", req -> joinReq(req, rtpCapabilities))
+              .doOnSuccess(d -> timings.joinDone())
+              .toFuture();
+
+      if (sendTransportInfo != null) {
+        createSendTransport(sendTransportInfo.get());
+        timings.sendTransportDone();
+      }
+
+      return joinResponse.get();
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    } finally {
+      cancelPending(routerRtpCapabilities, sendTransportInfo, recvTransportInfo, joinResponse);
+    }
+  }
+
+  // Load the device, unless it is still loaded from a previous join with the same capabilities.
+  @WorkerThread
+  private void loadDevice(RtpCapabilitiesCache.Entry capabilities) throws MediasoupException {
+    if (mMediasoupDevice.isLoaded() && capabilities.getHash().equals(mDeviceCapabilitiesHash)) {
+      Logger.d(TAG, "loadDevice() | already loaded");
+      return;
+    }
+    mMediasoupDevice.load(capabilities.getCapabilities());
+    mDeviceCapabilitiesHash = capabilities.getHash();
+  }
+
+  // Check an aging cache entry against the router, off the join path. A change only affects the
+  // next join, the device of this one keeps the codecs both sides had in common.
+  private void refreshRtpCapabilities(RtpCapabilitiesCache.Entry cached) {
+    asyncRequest(
+        "getRouterRtpCapabilities",
+        req -> {},
+        data -> {
+          RtpCapabilitiesCache.Entry fresh = mCapabilitiesCache.put(mCapabilitiesKey, data);
+          if (!fresh.getHash().equals(cached.getHash())) {
+            Logger.w(TAG, "refreshRtpCapabilities() | router capabilities changed");
+          }
+        },
+        e -> logError("refreshRtpCapabilities() | failed:", e));
+  }
+
+  private static void cancelPending(Future<?>... futures) {
+    for (Future<?> future : futures) {
+      if (future != null && !future.isDone()) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  private void joinReq(JSONObject req, String rtpCapabilities) {
+    jsonPut(req, "displayName", mDisplayName);
+    jsonPut(req, "device", mOptions.getDevice().toJSONObject());
+    jsonPut(req, "rtpCapabilities", toJsonObject(rtpCapabilities));
+    if (mOptions.isUseDataChannel()) {
+      jsonPut(req, "sctpCapabilities", toJsonObject(SCTP_CAPABILITIES));
+    }
+  }
+
   @WorkerThread
   private void enableMicImpl() {
     Logger.d(TAG, "enableMicImpl()");
@@ -758,6 +1436,13 @@ public class RoomClient extends RoomMessageHandler {
               null,
               null);
       mStore.addProducer(mMicProducer);
+      Producer micProducer = mMicProducer;
+      trackStats(
+          micProducer.getId(),
+          MIC_STATS,
+          mSendTransport.getId(),
+          RemoteStatsPoller.Kind.PRODUCER,
+          micProducer::getStats);
     } catch (MediasoupException e) {
       e.printStackTrace();
       logError("enableMic() | failed:", e);
@@ -775,47 +1460,57 @@ public class RoomClient extends RoomMessageHandler {
       return;
     }
 
+    String micProducerId = mMicProducer.getId();
+    untrackStats(micProducerId);
     mMicProducer.close();
-    mStore.removeProducer(mMicProducer.getId());
-
-    try {
-      mProtoo.syncRequest("closeProducer", req -> jsonPut(req, "producerId", mMicProducer.getId()));
-    } catch (ProtooException e) {
-      e.printStackTrace();
-      mStore.addNotify("error", "Error closing server-side mic Producer: " + e.getMessage());
-    }
+    mStore.removeProducer(micProducerId);
     mMicProducer = null;
+
+    asyncRequest(
+        "closeProducer",
+        req -> jsonPut(req, "producerId", micProducerId),
+        null,
+        e ->
+            mStore.addNotify(
+                "error", "Error closing server-side mic Producer: " + e.getMessage()));
   }
 
   @WorkerThread
   private void muteMicImpl() {
     Logger.d(TAG, "muteMicImpl()");
+    if (mMicProducer == null) {
+      return;
+    }
+    String micProducerId = mMicProducer.getId();
     mMicProducer.pause();
 
-    try {
-      mProtoo.syncRequest("pauseProducer", req -> jsonPut(req, "producerId", mMicProducer.getId()));
-      mStore.setProducerPaused(mMicProducer.getId());
-    } catch (ProtooException e) {
-      e.printStackTrace();
-      logError("muteMic() | failed:", e);
-      mStore.addNotify("error", "Error pausing server-side mic Producer: " + e.getMessage());
-    }
+    asyncRequest(
+        "pauseProducer",
+        req -> jsonPut(req, "producerId", micProducerId),
+        data -> mStore.setProducerPaused(micProducerId),
+        e -> {
+          logError("muteMic() | failed:", e);
+          mStore.addNotify("error", "Error pausing server-side mic Producer: " + e.getMessage());
+        });
   }
 
   @WorkerThread
   private void unmuteMicImpl() {
     Logger.d(TAG, "unmuteMicImpl()");
+    if (mMicProducer == null) {
+      return;
+    }
+    String micProducerId = mMicProducer.getId();
     mMicProducer.resume();
 
-    try {
-      mProtoo.syncRequest(
-          "resumeProducer", req -> jsonPut(req, "producerId", mMicProducer.getId()));
-      mStore.setProducerResumed(mMicProducer.getId());
-    } catch (ProtooException e) {
-      e.printStackTrace();
-      logError("unmuteMic() | failed:", e);
-      mStore.addNotify("error", "Error resuming server-side mic Producer: " + e.getMessage());
-    }
+    asyncRequest(
+        "resumeProducer",
+        req -> jsonPut(req, "producerId", micProducerId),
+        data -> mStore.setProducerResumed(micProducerId),
+        e -> {
+          logError("unmuteMic() | failed:", e);
+          mStore.addNotify("error", "Error resuming server-side mic Producer: " + e.getMessage());
+        });
   }
 
   @WorkerThread
@@ -849,12 +1544,25 @@ public class RoomClient extends RoomMessageHandler {
                 if (mCamProducer != null) {
                   mStore.removeProducer(mCamProducer.getId());
                   mCamProducer = null;
+                  stopCaptureController();
                 }
               },
               mLocalVideoTrack,
-              null,
+              videoEncodings(),
               null);
       mStore.addProducer(mCamProducer);
+      Producer camProducer = mCamProducer;
+      trackStats(
+          camProducer.getId(),
+          CAM_STATS,
+          mSendTransport.getId(),
+          RemoteStatsPoller.Kind.PRODUCER,
+          camProducer::getStats);
+      if (mMaxSendingSpatialLayer >= 0
+          && mMaxSendingSpatialLayer < mOptions.getVideoEncodings().size() - 1) {
+        mCamProducer.setMaxSpatialLayer(mMaxSendingSpatialLayer);
+      }
+      startCaptureController();
     } catch (MediasoupException e) {
       e.printStackTrace();
       logError("enableWebcam() | failed:", e);
@@ -865,37 +1573,257 @@ public class RoomClient extends RoomMessageHandler {
     }
   }
 
+  @Nullable
+  private List<RtpParameters.Encoding> videoEncodings() {
+    List<VideoEncoding> videoEncodings = mOptions.getVideoEncodings();
+    if (videoEncodings.isEmpty()) {
+      return null;
+    }
+    List<RtpParameters.Encoding> encodings = new ArrayList<>(videoEncodings.size());
+    for (VideoEncoding videoEncoding : videoEncodings) {
+      encodings.add(videoEncoding.toRtpEncoding());
+    }
+    return encodings;
+  }
+
+  @WorkerThread
+  private void startCaptureController() {
+    if (!mOptions.isAdaptiveCapture() || mCaptureController != null) {
+      return;
+    }
+    mCaptureController =
+        new AdaptiveCaptureController(
+            mContext, mWorkHandler, format -> mPeerConnectionUtils.changeCaptureFormat(format));
+    mCaptureController.start();
+  }
+
+  // The camera goes back to the default format, which the next controller starts from.
+  @WorkerThread
+  private void stopCaptureController() {
+    if (mCaptureController != null) {
+      mCaptureController.stop();
+      if (mCaptureController.getFormat() != AdaptiveCaptureController.DEFAULT_FORMAT) {
+        mPeerConnectionUtils.changeCaptureFormat(AdaptiveCaptureController.DEFAULT_FORMAT);
+      }
+      mCaptureController = null;
+    }
+  }
+
+  @WorkerThread
+  @Override
+  void handleNotification(@NonNull RoomNotification notification) {
+    super.handleNotification(notification);
+    switch (notification.getMethod()) {
+      case RoomNotification.PRODUCER_SCORE:
+        {
+          RoomNotification.ProducerScore producerScore =
+              (RoomNotification.ProducerScore) notification;
+          if (mCaptureController != null
+              && mCamProducer != null
+              && mCamProducer.getId().equals(producerScore.getProducerId())) {
+            mCaptureController.onProducerScore(producerScore.getScore().getScore());
+          }
+          break;
+        }
+      case RoomNotification.CONSUMER_LAYERS_CHANGED:
+        {
+          RoomNotification.ConsumerLayersChanged changed =
+              (RoomNotification.ConsumerLayersChanged) notification;
+          mLayerController.onCurrentSpatialLayer(
+              changed.getConsumerId(), changed.getSpatialLayer());
+          break;
+        }
+      default:
+        break;
+    }
+  }
+
+  @WorkerThread
+  @Override
+  void closeConsumer(@NonNull String consumerId) {
+    // Before super closes it.
+    untrackStats(consumerId);
+    super.closeConsumer(consumerId);
+    mLayerController.removeConsumer(consumerId);
+  }
+
+  @WorkerThread
+  @Override
+  void closeDataConsumer(@NonNull String dataConsumerId) {
+    untrackStats(dataConsumerId);
+    super.closeDataConsumer(dataConsumerId);
+  }
+
   @WorkerThread
   private void disableCamImpl() {
     Logger.d(TAG, "disableCamImpl()");
     if (mCamProducer == null) {
       return;
     }
+    String camProducerId = mCamProducer.getId();
+    untrackStats(camProducerId);
     mCamProducer.close();
-    mStore.removeProducer(mCamProducer.getId());
+    mStore.removeProducer(camProducerId);
+    mCamProducer = null;
+    stopCaptureController();
+
+    asyncRequest(
+        "closeProducer",
+        req -> jsonPut(req, "producerId", camProducerId),
+        null,
+        e ->
+            mStore.addNotify(
+                "error", "Error closing server-side webcam Producer: " + e.getMessage()));
+  }
 
+  @WorkerThread
+  private void enableChatDataProducerImpl() {
+    Logger.d(TAG, "enableChatDataProducerImpl()");
+    if (!mOptions.isUseDataChannel()) {
+      Logger.w(TAG, "enableChatDataProducer() | DataChannels disabled");
+      return;
+    }
+    if (mChatDataProducer != null) {
+      return;
+    }
+    if (mSendTransport == null) {
+      Logger.w(TAG, "enableChatDataProducer() | mSendTransport doesn't ready");
+      return;
+    }
     try {
-      mProtoo.syncRequest("closeProducer", req -> jsonPut(req, "producerId", mCamProducer.getId()));
-    } catch (ProtooException e) {
+      // Unordered, one retransmission at most.
+      DataProducer dataProducer =
+          mSendTransport.produceData(
+              dataProducerListener,
+              CHAT_LABEL,
+              "",
+              false,
+              1,
+              0,
+              "{\"info\":\"my-chat-DataProducer\"}");
+      synchronized (mDataProducersLock) {
+        mChatDataProducer = dataProducer;
+      }
+      trackStats(
+          dataProducer.getId(),
+          CHAT_DATA_PRODUCER_STATS,
+          mSendTransport.getId(),
+          RemoteStatsPoller.Kind.DATA_PRODUCER,
+          null);
+    } catch (MediasoupException e) {
       e.printStackTrace();
-      mStore.addNotify("error", "Error closing server-side webcam Producer: " + e.getMessage());
+      logError("enableChatDataProducer() | failed:", e);
+      mStore.addNotify("error", "Error enabling chat DataProducer: " + e.getMessage());
     }
-    mCamProducer = null;
   }
 
   @WorkerThread
-  private void createSendTransport() throws ProtooException, JSONException, MediasoupException {
+  private void enableBotDataProducerImpl() {
+    Logger.d(TAG, "enableBotDataProducerImpl()");
+    if (!mOptions.isUseDataChannel()) {
+      Logger.w(TAG, "enableBotDataProducer() | DataChannels disabled");
+      return;
+    }
+    if (mBotDataProducer != null) {
+      return;
+    }
+    if (mSendTransport == null) {
+      Logger.w(TAG, "enableBotDataProducer() | mSendTransport doesn't ready");
+      return;
+    }
+    try {
+      // Unordered, retransmitted for 2 seconds at most.
+      DataProducer dataProducer =
+          mSendTransport.produceData(
+              dataProducerListener,
+              BOT_LABEL,
+              "",
+              false,
+              0,
+              2000,
+              "{\"info\":\"my-bot-DataProducer\"}");
+      synchronized (mDataProducersLock) {
+        mBotDataProducer = dataProducer;
+      }
+      trackStats(
+          dataProducer.getId(),
+          BOT_DATA_PRODUCER_STATS,
+          mSendTransport.getId(),
+          RemoteStatsPoller.Kind.DATA_PRODUCER,
+          null);
+    } catch (MediasoupException e) {
+      e.printStackTrace();
+      logError("enableBotDataProducer() | failed:", e);
+      mStore.addNotify("error", "Error enabling bot DataProducer: " + e.getMessage());
+    }
+  }
+
+  // Before the send transport is closed, so that no send can reach a closed DataProducer.
+  @WorkerThread
+  private void closeDataProducers() {
+    synchronized (mDataProducersLock) {
+      if (mChatDataProducer != null) {
+        untrackStats(mChatDataProducer.getId());
+        mChatDataProducer.close();
+        mChatDataProducer = null;
+      }
+      if (mBotDataProducer != null) {
+        untrackStats(mBotDataProducer.getId());
+        mBotDataProducer.close();
+        mBotDataProducer = null;
+      }
+    }
+  }
+
+  private DataProducer.Listener dataProducerListener =
+      new DataProducer.Listener() {
+        @Override
+        public void onOpen(DataProducer dataProducer) {
+          Logger.d(TAG, "DataProducer \"open\" event " + dataProducer.getLabel());
+        }
+
+        @Override
+        public void onClose(DataProducer dataProducer) {
+          Logger.w(TAG, "DataProducer \"close\" event " + dataProducer.getLabel());
+        }
+
+        @Override
+        public void onBufferedAmountChange(DataProducer dataProducer, long sentDataSize) {}
+
+        @Override
+        public void onTransportClose(DataProducer dataProducer) {
+          Logger.w(TAG, "onTransportClose(), " + dataProducer.getLabel() + " DataProducer");
+          synchronized (mDataProducersLock) {
+            if (mChatDataProducer == dataProducer) {
+              mChatDataProducer = null;
+            } else if (mBotDataProducer == dataProducer) {
+              mBotDataProducer = null;
+            }
+          }
+        }
+      };
+
+  private void sendTransportReq(JSONObject req) {
+    jsonPut(req, "forceTcp", mOptions.isForceTcp());
+    jsonPut(req, "producing", true);
+    jsonPut(req, "consuming", false);
+    if (mOptions.isUseDataChannel()) {
+      jsonPut(req, "sctpCapabilities", toJsonObject(SCTP_CAPABILITIES));
+    }
+  }
+
+  private void recvTransportReq(JSONObject req) {
+    jsonPut(req, "forceTcp", mOptions.isForceTcp());
+    jsonPut(req, "producing", false);
+    jsonPut(req, "consuming", true);
+    if (mOptions.isUseDataChannel()) {
+      jsonPut(req, "sctpCapabilities", toJsonObject(SCTP_CAPABILITIES));
+    }
+  }
+
+  @WorkerThread
+  private void createSendTransport(String res) throws JSONException, MediasoupException {
     Logger.d(TAG, "createSendTransport()");
-    String res =
-        mProtoo.syncRequest(
-            "createWebRtcTransport",
-            (req -> {
-              jsonPut(req, "forceTcp", mOptions.isForceTcp());
-              jsonPut(req, "producing", true);
-              jsonPut(req, "consuming", false);
-              // TODO: sctpCapabilities
-              jsonPut(req, "sctpCapabilities", "");
-            }));
     JSONObject info = new JSONObject(res);
 
     Logger.d(TAG, "device#createSendTransport() " + info);
@@ -903,38 +1831,50 @@ public class RoomClient extends RoomMessageHandler {
     String iceParameters = info.optString("iceParameters");
     String iceCandidates = info.optString("iceCandidates");
     String dtlsParameters = info.optString("dtlsParameters");
-    String sctpParameters = info.optString("sctpParameters");
+    // Absent unless the transport was requested with sctpCapabilities.
+    String sctpParameters = info.isNull("sctpParameters") ? null : info.optString("sctpParameters");
 
     mSendTransport =
         mMediasoupDevice.createSendTransport(
-            sendTransportListener, id, iceParameters, iceCandidates, dtlsParameters);
+            sendTransportListener,
+            id,
+            iceParameters,
+            iceCandidates,
+            dtlsParameters,
+            sctpParameters,
+            null,
+            null);
+    SendTransport sendTransport = mSendTransport;
+    trackStats(
+        id, SEND_TRANSPORT_STATS, id, RemoteStatsPoller.Kind.TRANSPORT, sendTransport::getStats);
   }
 
   @WorkerThread
-  private void createRecvTransport() throws ProtooException, JSONException, MediasoupException {
+  private void createRecvTransport(String res) throws JSONException, MediasoupException {
     Logger.d(TAG, "createRecvTransport()");
-
-    String res =
-        mProtoo.syncRequest(
-            "createWebRtcTransport",
-            req -> {
-              jsonPut(req, "forceTcp", mOptions.isForceTcp());
-              jsonPut(req, "producing", false);
-              jsonPut(req, "consuming", true);
-              // TODO (HaiyangWu): add sctpCapabilities
-              jsonPut(req, "sctpCapabilities", "");
-            });
     JSONObject info = new JSONObject(res);
+
     Logger.d(TAG, "device#createRecvTransport() " + info);
     String id = info.optString("id");
     String iceParameters = info.optString("iceParameters");
     String iceCandidates = info.optString("iceCandidates");
     String dtlsParameters = info.optString("dtlsParameters");
-    String sctpParameters = info.optString("sctpParameters");
+    // Absent unless the transport was requested with sctpCapabilities.
+    String sctpParameters = info.isNull("sctpParameters") ? null : info.optString("sctpParameters");
 
     mRecvTransport =
         mMediasoupDevice.createRecvTransport(
-            recvTransportListener, id, iceParameters, iceCandidates, dtlsParameters);
+            recvTransportListener,
+            id,
+            iceParameters,
+            iceCandidates,
+            dtlsParameters,
+            sctpParameters,
+            null,
+            null);
+    RecvTransport recvTransport = mRecvTransport;
+    trackStats(
+        id, RECV_TRANSPORT_STATS, id, RemoteStatsPoller.Kind.TRANSPORT, recvTransport::getStats);
   }
 
   private SendTransport.Listener sendTransportListener =
@@ -951,6 +1891,7 @@ public class RoomClient extends RoomMessageHandler {
           Logger.d(listenerTAG, "onProduce() ");
           String producerId =
               fetchProduceId(
+                  "produce",
                   req -> {
                     jsonPut(req, "transportId", transport.getId());
                     jsonPut(req, "kind", kind);
@@ -961,6 +1902,31 @@ public class RoomClient extends RoomMessageHandler {
           return producerId;
         }
 
+        @Override
+        public String onProduceData(
+            Transport transport,
+            String sctpStreamParameters,
+            String label,
+            String protocol,
+            String appData) {
+          if (mClosed) {
+            return "";
+          }
+          Logger.d(listenerTAG, "onProduceData() ");
+          String dataProducerId =
+              fetchProduceId(
+                  "produceData",
+                  req -> {
+                    jsonPut(req, "transportId", transport.getId());
+                    jsonPut(req, "sctpStreamParameters", toJsonObject(sctpStreamParameters));
+                    jsonPut(req, "label", label);
+                    jsonPut(req, "protocol", protocol);
+                    jsonPut(req, "appData", toJsonObject(appData));
+                  });
+          Logger.d(listenerTAG, "dataProducerId: " + dataProducerId);
+          return dataProducerId;
+        }
+
         @Override
         public void onConnect(Transport transport, String dtlsParameters) {
           if (mClosed) {
@@ -1016,14 +1982,14 @@ public class RoomClient extends RoomMessageHandler {
         }
       };
 
-  private String fetchProduceId(Protoo.RequestGenerator generator) {
-    Logger.d(TAG, "fetchProduceId:()");
+  private String fetchProduceId(String method, Protoo.RequestGenerator generator) {
+    Logger.d(TAG, "fetchProduceId:() " + method);
     try {
-      String response = mProtoo.syncRequest("produce", generator);
+      String response = mProtoo.syncRequest(method, generator);
       return new JSONObject(response).optString("id");
     } catch (ProtooException | JSONException e) {
       e.printStackTrace();
-      logError("send produce request failed", e);
+      logError("send " + method + " request failed", e);
       return "";
     }
   }
@@ -1032,6 +1998,42 @@ public class RoomClient extends RoomMessageHandler {
     Logger.e(TAG, message, throwable);
   }
 
+  /**
+   * Send a protoo request without parking the worker thread on the round trip.
+   *
+   * <p>Handlers are invoked on the worker thread. The request is cancelled when the room is
+   * closed, in which case neither handler is called.
+   */
+  @WorkerThread
+  private void asyncRequest(
+      String method,
+      Protoo.RequestGenerator generator,
+      @Nullable Protoo.ResponseHandler onResponse,
+      @NonNull Protoo.ErrorHandler onError) {
+    if (mProtoo == null) {
+      onError.onError(new ProtooException(-1, "protoo not connected"));
+      return;
+    }
+    DisposableSingleObserver<String> observer =
+        new DisposableSingleObserver<String>() {
+          @Override
+          public void onSuccess(String data) {
+            mCompositeDisposable.delete(this);
+            if (onResponse != null) {
+              onResponse.onResponse(data);
+            }
+          }
+
+          @Override
+          public void onError(Throwable throwable) {
+            mCompositeDisposable.delete(this);
+            onError.onError(throwable);
+          }
+        };
+    mCompositeDisposable.add(observer);
+    mProtoo.asyncRequest(method, generator).observeOn(mWorkScheduler).subscribe(observer);
+  }
+
   private void onNewConsumer(Message.Request request, Protoo.ServerRequestHandler handler) {
     if (!mOptions.isConsume()) {
       handler.reject(403, "I do not want to consume");
@@ -1052,6 +2054,7 @@ public class RoomClient extends RoomMessageHandler {
           mRecvTransport.consume(
               c -> {
                 mConsumers.remove(c.getId());
+                mLayerController.removeConsumer(c.getId());
                 Logger.w(TAG, "onTransportClose for consume");
               },
               id,
@@ -1061,6 +2064,15 @@ public class RoomClient extends RoomMessageHandler {
               appData);
 
       mConsumers.put(consumer.getId(), new ConsumerHolder(peerId, consumer));
+      trackStats(
+          consumer.getId(),
+          null,
+          mRecvTransport.getId(),
+          RemoteStatsPoller.Kind.CONSUMER,
+          consumer::getStats);
+      if ("video".equals(kind)) {
+        mLayerController.addConsumer(consumer.getId(), rtpParameters);
+      }
       mStore.addConsumer(peerId, type, consumer, producerPaused);
 
       // We are ready. Answer the protoo request so the server will
@@ -1079,8 +2091,109 @@ public class RoomClient extends RoomMessageHandler {
   }
 
   private void onNewDataConsumer(Message.Request request, Protoo.ServerRequestHandler handler) {
-    handler.reject(403, "I do not want to data consume");
-    // TODO(HaiyangWu): support data consume
+    if (!mOptions.isConsume() || !mOptions.isUseDataChannel()) {
+      handler.reject(403, "I do not want to data consume");
+      return;
+    }
+    try {
+      JSONObject data = request.getData();
+      // Null for the server bot.
+      String peerId = data.isNull("peerId") ? null : data.optString("peerId");
+      String dataProducerId = data.optString("dataProducerId");
+      String id = data.optString("id");
+      JSONObject sctpStreamParameters = data.getJSONObject("sctpStreamParameters");
+      long streamId = sctpStreamParameters.getLong("streamId");
+      String label = data.optString("label");
+      String protocol = data.optString("protocol");
+      String appData = data.optString("appData");
+
+      DataConsumer dataConsumer =
+          mRecvTransport.consumeData(
+              newDataConsumerListener(peerId, label),
+              id,
+              dataProducerId,
+              streamId,
+              label,
+              protocol,
+              appData);
+
+      mDataConsumers.put(dataConsumer.getId(), new DataConsumerHolder(peerId, dataConsumer));
+      trackStats(
+          dataConsumer.getId(),
+          null,
+          mRecvTransport.getId(),
+          RemoteStatsPoller.Kind.DATA_CONSUMER,
+          null);
+
+      // We are ready. Answer the protoo request.
+      handler.accept();
+    } catch (Exception e) {
+      e.printStackTrace();
+      logError("\"newDataConsumer\" request failed:", e);
+      mStore.addNotify("error", "Error creating a DataConsumer: " + e.getMessage());
+    }
+  }
+
+  // One listener per DataConsumer, so that a message needs no lookup to know where it is from.
+  private DataConsumer.Listener newDataConsumerListener(
+      @Nullable String peerId, @NonNull String label) {
+    return new DataConsumer.Listener() {
+      @Override
+      public void OnConnecting(DataConsumer dataConsumer) {}
+
+      @Override
+      public void OnOpen(DataConsumer dataConsumer) {
+        Logger.d(TAG, "DataConsumer \"open\" event " + label);
+      }
+
+      @Override
+      public void OnClosing(DataConsumer dataConsumer) {}
+
+      @Override
+      public void OnClose(DataConsumer dataConsumer) {
+        Logger.w(TAG, "DataConsumer \"close\" event " + label);
+      }
+
+      @Override
+      public void OnMessage(DataConsumer dataConsumer, DataChannel.Buffer buffer) {
+        onDataMessage(peerId, label, buffer);
+      }
+
+      @Override
+      public void OnTransportClose(DataConsumer dataConsumer) {
+        Logger.w(TAG, "onTransportClose for dataConsume");
+        mDataConsumers.remove(dataConsumer.getId());
+      }
+    };
+  }
+
+  // On the WebRTC thread. Binary messages only go to the listeners, as they are. Text messages of
+  // the chat and the bot are also decoded for a notification.
+  private void onDataMessage(
+      @Nullable String peerId, @NonNull String label, @NonNull DataChannel.Buffer buffer) {
+    ByteBuffer data = buffer.data;
+    int position = data.position();
+    int limit = data.limit();
+    for (DataMessageListener listener : mDataMessageListeners) {
+      listener.onDataMessage(peerId, label, data, buffer.binary);
+      // Each listener reads the whole message.
+      data.limit(limit);
+      data.position(position);
+    }
+    if (buffer.binary) {
+      return;
+    }
+
+    if (CHAT_LABEL.equals(label)) {
+      Peer peer = peerId != null ? mStore.getPeers().getLatest().getPeer(peerId) : null;
+      if (peer == null) {
+        Logger.w(TAG, "DataConsumer \"message\" from unknown peer " + peerId);
+        return;
+      }
+      mStore.addNotify(peer.getDisplayName() + " says: \"" + UTF_8.decode(data) + "\"");
+    } else if (BOT_LABEL.equals(label)) {
+      mStore.addNotify("Message from Bot: \"" + UTF_8.decode(data) + "\"");
+    }
   }
 
   @WorkerThread
@@ -1090,15 +2203,20 @@ public class RoomClient extends RoomMessageHandler {
       return;
     }
 
-    try {
-      mProtoo.syncRequest("pauseConsumer", req -> jsonPut(req, "consumerId", consumer.getId()));
-      consumer.pause();
-      mStore.setConsumerPaused(consumer.getId(), "local");
-    } catch (ProtooException e) {
-      e.printStackTrace();
-      logError("pauseConsumer() | failed:", e);
-      mStore.addNotify("error", "Error pausing Consumer: " + e.getMessage());
-    }
+    asyncRequest(
+        "pauseConsumer",
+        req -> jsonPut(req, "consumerId", consumer.getId()),
+        data -> {
+          if (!isOpen(consumer)) {
+            return;
+          }
+          consumer.pause();
+          mStore.setConsumerPaused(consumer.getId(), "local");
+        },
+        e -> {
+          logError("pauseConsumer() | failed:", e);
+          mStore.addNotify("error", "Error pausing Consumer: " + e.getMessage());
+        });
   }
 
   @WorkerThread
@@ -1108,14 +2226,112 @@ public class RoomClient extends RoomMessageHandler {
       return;
     }
 
-    try {
-      mProtoo.syncRequest("resumeConsumer", req -> jsonPut(req, "consumerId", consumer.getId()));
-      consumer.resume();
-      mStore.setConsumerResumed(consumer.getId(), "local");
-    } catch (Exception e) {
-      e.printStackTrace();
-      logError("resumeConsumer() | failed:", e);
-      mStore.addNotify("error", "Error resuming Consumer: " + e.getMessage());
+    asyncRequest(
+        "resumeConsumer",
+        req -> jsonPut(req, "consumerId", consumer.getId()),
+        data -> {
+          if (!isOpen(consumer)) {
+            return;
+          }
+          consumer.resume();
+          mStore.setConsumerResumed(consumer.getId(), "local");
+        },
+        e -> {
+          logError("resumeConsumer() | failed:", e);
+          mStore.addNotify("error", "Error resuming Consumer: " + e.getMessage());
+        });
+  }
+
+  // The consumer may have been closed, by consumerClosed or its peer leaving, while a request about
+  // it was in flight.
+  @WorkerThread
+  private boolean isOpen(Consumer consumer) {
+    return mConsumers.containsKey(consumer.getId()) && !consumer.isClosed();
+  }
+
+  /**
+   * Pause or resume every consumer of the given kind.
+   *
+   * <p>All the requests are in flight at the same time, and the store is updated once, when the
+   * last response has arrived. {@code onComplete} then runs on the worker thread, whether or not
+   * some of the requests failed.
+   */
+  @WorkerThread
+  private void setConsumersPaused(String kind, boolean paused, @Nullable Runnable onComplete) {
+    Logger.d(TAG, "setConsumersPaused() " + kind + ", paused: " + paused);
+    List<Consumer> consumers = new ArrayList<>();
+    for (ConsumerHolder holder : mConsumers.values()) {
+      if (kind.equals(holder.mConsumer.getKind()) && holder.mConsumer.isPaused() != paused) {
+        consumers.add(holder.mConsumer);
+      }
     }
+    if (consumers.isEmpty() || mProtoo == null) {
+      if (onComplete != null) {
+        onComplete.run();
+      }
+      return;
+    }
+
+    String method = paused ? "pauseConsumer" : "resumeConsumer";
+    AtomicInteger failures = new AtomicInteger();
+    DisposableSingleObserver<List<Consumer>> observer =
+        new DisposableSingleObserver<List<Consumer>>() {
+          @Override
+          public void onSuccess(List<Consumer> done) {
+            mCompositeDisposable.delete(this);
+            List<String> consumerIds = new ArrayList<>(done.size());
+            // done was captured before the requests went out.
+            for (Consumer consumer : done) {
+              if (!isOpen(consumer)) {
+                continue;
+              }
+              if (paused) {
+                consumer.pause();
+              } else {
+                consumer.resume();
+              }
+              consumerIds.add(consumer.getId());
+            }
+            if (paused) {
+              mStore.setConsumersPaused(consumerIds, "local");
+            } else {
+              mStore.setConsumersResumed(consumerIds, "local");
+            }
+            if (failures.get() > 0) {
+              mStore.addNotify(
+                  "error",
+                  (paused ? "Error pausing " : "Error resuming ") + failures.get() + " Consumers");
+            }
+            if (onComplete != null) {
+              onComplete.run();
+            }
+          }
+
+          @Override
+          public void onError(Throwable throwable) {
+            mCompositeDisposable.delete(this);
+            logError("setConsumersPaused() | failed:", throwable);
+            if (onComplete != null) {
+              onComplete.run();
+            }
+          }
+        };
+    mCompositeDisposable.add(observer);
+    Observable.fromIterable(consumers)
+        .flatMapMaybe(
+            consumer ->
+                mProtoo
+                    .asyncRequest(method, req -> jsonPut(req, "consumerId", consumer.getId()))
+                    .map(data -> consumer)
+                    .toMaybe()
+                    .doOnError(
+                        throwable -> {
+                          failures.incrementAndGet();
+                          logError(method + "() | failed: " + consumer.getId(), throwable);
+                        })
+                    .onErrorComplete())
+        .toList()
+        .observeOn(mWorkScheduler)
+        .subscribe(observer);
   }
 }
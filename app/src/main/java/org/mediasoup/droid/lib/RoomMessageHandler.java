@@ -1,14 +1,17 @@
 package org.mediasoup.droid.lib;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
 
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.mediasoup.droid.Consumer;
+import org.mediasoup.droid.DataConsumer;
 import org.mediasoup.droid.Logger;
 import org.mediasoup.droid.lib.lv.RoomStore;
+import org.mediasoup.droid.lib.socket.NotificationDecoder;
+import org.mediasoup.droid.lib.socket.RoomNotification;
 import org.protoojs.droid.Message;
 
 import java.util.Map;
@@ -22,6 +25,8 @@ class RoomMessageHandler {
   @NonNull final RoomStore mStore;
   // mediasoup Consumers.
   @NonNull final Map<String, ConsumerHolder> mConsumers;
+  // mediasoup DataConsumers.
+  @NonNull final Map<String, DataConsumerHolder> mDataConsumers;
 
   static class ConsumerHolder {
     @NonNull final String peerId;
@@ -33,23 +38,28 @@ class RoomMessageHandler {
     }
   }
 
+  static class DataConsumerHolder {
+    // Null for the DataConsumers of the server bot.
+    @Nullable final String peerId;
+    @NonNull final DataConsumer mDataConsumer;
+
+    DataConsumerHolder(@Nullable String peerId, @NonNull DataConsumer dataConsumer) {
+      this.peerId = peerId;
+      mDataConsumer = dataConsumer;
+    }
+  }
+
   RoomMessageHandler(@NonNull RoomStore store) {
     this.mStore = store;
     this.mConsumers = new ConcurrentHashMap<>();
+    this.mDataConsumers = new ConcurrentHashMap<>();
   }
 
   @WorkerThread
   void handleNotification(Message.Notification notification) throws JSONException {
     JSONObject data = notification.getData();
-    switch (notification.getMethod()) {
-      case "producerScore":
-        {
-          // {"producerId":"bdc2e83e-5294-451e-a986-a29c7d591d73","score":[{"score":10,"ssrc":196184265}]}
-          String producerId = data.getString("producerId");
-          JSONArray score = data.getJSONArray("score");
-          mStore.setProducerScore(producerId, score);
-          break;
-        }
+    String method = notification.getMethod();
+    switch (method) {
       case "newPeer":
         {
           String id = data.getString("id");
@@ -58,36 +68,54 @@ class RoomMessageHandler {
           mStore.addNotify(displayName + " has joined the room");
           break;
         }
-      case "peerClosed":
+      default:
+        {
+          if (!NotificationDecoder.isKnown(method)) {
+            Logger.e(TAG, "unknown protoo notification.method " + method);
+            break;
+          }
+          // Known method the socket could not decode directly, e.g. unusual field order.
+          RoomNotification typed = NotificationDecoder.decodeData(method, data.toString());
+          if (typed == null) {
+            throw new JSONException("invalid protoo notification " + method);
+          }
+          handleNotification(typed);
+        }
+    }
+  }
+
+  @WorkerThread
+  void handleNotification(@NonNull RoomNotification notification) {
+    switch (notification.getMethod()) {
+      case RoomNotification.PRODUCER_SCORE:
         {
-          String peerId = data.getString("peerId");
-          mStore.removePeer(peerId);
+          RoomNotification.ProducerScore producerScore =
+              (RoomNotification.ProducerScore) notification;
+          mStore.setProducerScore(producerScore.getProducerId(), producerScore.getScore());
           break;
         }
-      case "peerDisplayNameChanged":
+      case RoomNotification.PEER_CLOSED:
         {
-          String peerId = data.getString("peerId");
-          String displayName = data.optString("displayName");
-          String oldDisplayName = data.optString("oldDisplayName");
-          mStore.setPeerDisplayName(peerId, displayName);
-          mStore.addNotify(oldDisplayName + " is now " + displayName);
+          mStore.removePeer(((RoomNotification.PeerChanged) notification).getPeerId());
           break;
         }
-      case "consumerClosed":
+      case RoomNotification.PEER_DISPLAY_NAME_CHANGED:
         {
-          String consumerId = data.getString("consumerId");
-          ConsumerHolder holder = mConsumers.remove(consumerId);
-          if (holder == null) {
-            break;
-          }
-          holder.mConsumer.close();
-          mConsumers.remove(consumerId);
-          mStore.removeConsumer(holder.peerId, holder.mConsumer.getId());
+          RoomNotification.PeerDisplayNameChanged changed =
+              (RoomNotification.PeerDisplayNameChanged) notification;
+          mStore.setPeerDisplayName(changed.getPeerId(), changed.getDisplayName());
+          mStore.addNotify(changed.getOldDisplayName() + " is now " + changed.getDisplayName());
+          break;
+        }
+      case RoomNotification.CONSUMER_CLOSED:
+        {
+          closeConsumer(((RoomNotification.ConsumerStateChanged) notification).getConsumerId());
           break;
         }
-      case "consumerPaused":
+      case RoomNotification.CONSUMER_PAUSED:
         {
-          String consumerId = data.getString("consumerId");
+          String consumerId =
+              ((RoomNotification.ConsumerStateChanged) notification).getConsumerId();
           ConsumerHolder holder = mConsumers.get(consumerId);
           if (holder == null) {
             break;
@@ -95,9 +123,10 @@ class RoomMessageHandler {
           mStore.setConsumerPaused(holder.mConsumer.getId(), "remote");
           break;
         }
-      case "consumerResumed":
+      case RoomNotification.CONSUMER_RESUMED:
         {
-          String consumerId = data.getString("consumerId");
+          String consumerId =
+              ((RoomNotification.ConsumerStateChanged) notification).getConsumerId();
           ConsumerHolder holder = mConsumers.get(consumerId);
           if (holder == null) {
             break;
@@ -105,39 +134,36 @@ class RoomMessageHandler {
           mStore.setConsumerResumed(holder.mConsumer.getId(), "remote");
           break;
         }
-      case "consumerLayersChanged":
+      case RoomNotification.CONSUMER_LAYERS_CHANGED:
         {
-          String consumerId = data.getString("consumerId");
-          int spatialLayer = data.optInt("spatialLayer");
-          int temporalLayer = data.optInt("temporalLayer");
-          ConsumerHolder holder = mConsumers.get(consumerId);
-          if (holder == null) {
+          RoomNotification.ConsumerLayersChanged changed =
+              (RoomNotification.ConsumerLayersChanged) notification;
+          if (!mConsumers.containsKey(changed.getConsumerId())) {
             break;
           }
-          mStore.setConsumerCurrentLayers(consumerId, spatialLayer, temporalLayer);
+          mStore.setConsumerCurrentLayers(
+              changed.getConsumerId(), changed.getSpatialLayer(), changed.getTemporalLayer());
           break;
         }
-      case "consumerScore":
+      case RoomNotification.CONSUMER_SCORE:
         {
-          String consumerId = data.getString("consumerId");
-          JSONArray score = data.optJSONArray("score");
-          ConsumerHolder holder = mConsumers.get(consumerId);
-          if (holder == null) {
+          RoomNotification.ConsumerScore consumerScore =
+              (RoomNotification.ConsumerScore) notification;
+          if (!mConsumers.containsKey(consumerScore.getConsumerId())) {
             break;
           }
-          mStore.setConsumerScore(consumerId, score);
+          mStore.setConsumerScore(consumerScore.getConsumerId(), consumerScore.getScore());
           break;
         }
-      case "dataConsumerClosed":
+      case RoomNotification.DATA_CONSUMER_CLOSED:
         {
-          // TODO(HaiyangWu); support data consumer
-          // String dataConsumerId = data.getString("dataConsumerId");
+          closeDataConsumer(
+              ((RoomNotification.ConsumerStateChanged) notification).getConsumerId());
           break;
         }
-      case "activeSpeaker":
+      case RoomNotification.ACTIVE_SPEAKER:
         {
-          String peerId = data.getString("peerId");
-          mStore.setRoomActiveSpeaker(peerId);
+          mStore.setRoomActiveSpeaker(((RoomNotification.PeerChanged) notification).getPeerId());
           break;
         }
       default:
@@ -146,4 +172,24 @@ class RoomMessageHandler {
         }
     }
   }
+
+  // Close a Consumer the server closed, or the one of a peer that left.
+  @WorkerThread
+  void closeConsumer(@NonNull String consumerId) {
+    ConsumerHolder holder = mConsumers.remove(consumerId);
+    if (holder == null) {
+      return;
+    }
+    holder.mConsumer.close();
+    mStore.removeConsumer(holder.peerId, holder.mConsumer.getId());
+  }
+
+  @WorkerThread
+  void closeDataConsumer(@NonNull String dataConsumerId) {
+    DataConsumerHolder holder = mDataConsumers.remove(dataConsumerId);
+    if (holder == null) {
+      return;
+    }
+    holder.mDataConsumer.close();
+  }
 }
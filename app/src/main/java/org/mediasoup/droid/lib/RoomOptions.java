@@ -3,9 +3,23 @@ package org.mediasoup.droid.lib;
 import androidx.annotation.NonNull;
 
 import org.mediasoup.droid.lib.model.DeviceInfo;
+import org.mediasoup.droid.lib.model.VideoEncoding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 public class RoomOptions {
 
+  // Simulcast layers of the 640x480 webcam, lowest first.
+  public static final List<VideoEncoding> DEFAULT_SIMULCAST_ENCODINGS =
+      Collections.unmodifiableList(
+          Arrays.asList(
+              new VideoEncoding(4, 100_000),
+              new VideoEncoding(2, 300_000),
+              new VideoEncoding(1, 900_000)));
+
   // Device info.
   @NonNull private DeviceInfo mDevice = DeviceInfo.androidDevice();
   // Whether we want to force RTC over TCP.
@@ -16,6 +30,24 @@ public class RoomOptions {
   private boolean mConsume = true;
   // Whether we want DataChannels.
   private boolean mUseDataChannel;
+  // Whether independent join requests are pipelined instead of sent one by one.
+  private boolean mPipelineJoin = true;
+  // Whether MessagePack framing of the signalling is offered to the server.
+  private boolean mBinaryFraming;
+  // Whether permessage-deflate compression of the signalling is offered to the server.
+  private boolean mSignallingCompression;
+  // Whether a reconnected socket resumes the session instead of joining from scratch.
+  private boolean mResumeSession = true;
+  // Whether router capabilities are also cached on disk, not only for the process lifetime.
+  private boolean mPersistRtpCapabilities = true;
+  // Whether the camera capture format follows CPU, temperature, producer score and bandwidth.
+  private boolean mAdaptiveCapture = true;
+  // Whether the webcam is sent as several spatial layers.
+  private boolean mSimulcast = true;
+  // Layers of the webcam when simulcast is on.
+  @NonNull private List<VideoEncoding> mVideoEncodings = DEFAULT_SIMULCAST_ENCODINGS;
+  // Whether the sampled stats are recorded to a file per session for later analysis.
+  private boolean mRecordStats = true;
 
   public RoomOptions setDevice(@NonNull DeviceInfo device) {
     this.mDevice = device;
@@ -42,6 +74,51 @@ public class RoomOptions {
     return this;
   }
 
+  public RoomOptions setPipelineJoin(boolean pipelineJoin) {
+    this.mPipelineJoin = pipelineJoin;
+    return this;
+  }
+
+  public RoomOptions setBinaryFraming(boolean binaryFraming) {
+    this.mBinaryFraming = binaryFraming;
+    return this;
+  }
+
+  public RoomOptions setSignallingCompression(boolean signallingCompression) {
+    this.mSignallingCompression = signallingCompression;
+    return this;
+  }
+
+  public RoomOptions setResumeSession(boolean resumeSession) {
+    this.mResumeSession = resumeSession;
+    return this;
+  }
+
+  public RoomOptions setPersistRtpCapabilities(boolean persistRtpCapabilities) {
+    this.mPersistRtpCapabilities = persistRtpCapabilities;
+    return this;
+  }
+
+  public RoomOptions setAdaptiveCapture(boolean adaptiveCapture) {
+    this.mAdaptiveCapture = adaptiveCapture;
+    return this;
+  }
+
+  public RoomOptions setSimulcast(boolean simulcast) {
+    this.mSimulcast = simulcast;
+    return this;
+  }
+
+  public RoomOptions setVideoEncodings(@NonNull List<VideoEncoding> videoEncodings) {
+    this.mVideoEncodings = Collections.unmodifiableList(new ArrayList<>(videoEncodings));
+    return this;
+  }
+
+  public RoomOptions setRecordStats(boolean recordStats) {
+    this.mRecordStats = recordStats;
+    return this;
+  }
+
   @NonNull
   public DeviceInfo getDevice() {
     return mDevice;
@@ -62,4 +139,42 @@ public class RoomOptions {
   public boolean isUseDataChannel() {
     return mUseDataChannel;
   }
+
+  public boolean isPipelineJoin() {
+    return mPipelineJoin;
+  }
+
+  public boolean isBinaryFraming() {
+    return mBinaryFraming;
+  }
+
+  public boolean isSignallingCompression() {
+    return mSignallingCompression;
+  }
+
+  public boolean isResumeSession() {
+    return mResumeSession;
+  }
+
+  public boolean isPersistRtpCapabilities() {
+    return mPersistRtpCapabilities;
+  }
+
+  public boolean isAdaptiveCapture() {
+    return mAdaptiveCapture;
+  }
+
+  public boolean isSimulcast() {
+    return mSimulcast;
+  }
+
+  /** Encodings of the webcam producer, empty for a single stream. */
+  @NonNull
+  public List<VideoEncoding> getVideoEncodings() {
+    return mSimulcast ? mVideoEncodings : Collections.<VideoEncoding>emptyList();
+  }
+
+  public boolean isRecordStats() {
+    return mRecordStats;
+  }
 }
@@ -0,0 +1,166 @@
+package org.mediasoup.droid.lib;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Router RTP capabilities of the rooms joined before, so that a repeat join can load the device
+ * without waiting for "getRouterRtpCapabilities".
+ *
+ * <p>Entries live in memory for the whole process and, optionally, in a private preferences file
+ * so that they survive restarts. They are keyed by room URL and carry a hash of the capabilities,
+ * which tells whether a loaded device still matches the router.
+ */
+@SuppressWarnings("WeakerAccess")
+public class RtpCapabilitiesCache {
+
+  private static final String PREFERENCES_NAME = "rtp_capabilities_cache";
+  private static final String CAPABILITIES_SUFFIX = "#capabilities";
+  private static final String HASH_SUFFIX = "#hash";
+  private static final String TIME_SUFFIX = "#time";
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  // Entries older than this are not used anymore.
+  public static final long TTL_MS = TimeUnit.DAYS.toMillis(1);
+  // Entries older than this are used, but checked against the router after the join.
+  public static final long REFRESH_AFTER_MS = TimeUnit.MINUTES.toMillis(10);
+
+  // Shared by every RoomClient of the process. Guarded by itself.
+  private static final Map<String, Entry> sEntries = new HashMap<>();
+
+  public static class Entry {
+
+    @NonNull private final String mCapabilities;
+    @NonNull private final String mHash;
+    // Wall clock time of the fetch, so that it means something after a restart.
+    private final long mFetchTime;
+
+    Entry(@NonNull String capabilities, @NonNull String hash, long fetchTime) {
+      mCapabilities = capabilities;
+      mHash = hash;
+      mFetchTime = fetchTime;
+    }
+
+    @NonNull
+    public String getCapabilities() {
+      return mCapabilities;
+    }
+
+    @NonNull
+    public String getHash() {
+      return mHash;
+    }
+
+    public long getAgeMs() {
+      return System.currentTimeMillis() - mFetchTime;
+    }
+
+    public boolean needsRefresh() {
+      return getAgeMs() > REFRESH_AFTER_MS;
+    }
+  }
+
+  @Nullable private final SharedPreferences mPreferences;
+
+  /** @param persistent whether entries are also written to disk. */
+  public RtpCapabilitiesCache(@NonNull Context context, boolean persistent) {
+    mPreferences =
+        persistent ? context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE) : null;
+  }
+
+  @Nullable
+  public Entry get(@NonNull String key) {
+    Entry entry;
+    synchronized (sEntries) {
+      entry = sEntries.get(key);
+      if (entry == null && mPreferences != null) {
+        entry = read(key);
+        if (entry != null) {
+          sEntries.put(key, entry);
+        }
+      }
+    }
+    if (entry == null) {
+      return null;
+    }
+    long age = entry.getAgeMs();
+    if (age < 0 || age > TTL_MS) {
+      invalidate(key);
+      return null;
+    }
+    return entry;
+  }
+
+  /** Store freshly fetched capabilities and return their entry. */
+  @NonNull
+  public Entry put(@NonNull String key, @NonNull String capabilities) {
+    Entry entry = new Entry(capabilities, hashOf(capabilities), System.currentTimeMillis());
+    synchronized (sEntries) {
+      sEntries.put(key, entry);
+    }
+    if (mPreferences != null) {
+      mPreferences
+          .edit()
+          .putString(key + CAPABILITIES_SUFFIX, entry.mCapabilities)
+          .putString(key + HASH_SUFFIX, entry.mHash)
+          .putLong(key + TIME_SUFFIX, entry.mFetchTime)
+          .apply();
+    }
+    return entry;
+  }
+
+  public void invalidate(@NonNull String key) {
+    synchronized (sEntries) {
+      sEntries.remove(key);
+    }
+    if (mPreferences != null) {
+      mPreferences
+          .edit()
+          .remove(key + CAPABILITIES_SUFFIX)
+          .remove(key + HASH_SUFFIX)
+          .remove(key + TIME_SUFFIX)
+          .apply();
+    }
+  }
+
+  @Nullable
+  private Entry read(String key) {
+    String capabilities = mPreferences.getString(key + CAPABILITIES_SUFFIX, null);
+    String hash = mPreferences.getString(key + HASH_SUFFIX, null);
+    long fetchTime = mPreferences.getLong(key + TIME_SUFFIX, 0);
+    if (capabilities == null || hash == null || !hash.equals(hashOf(capabilities))) {
+      return null;
+    }
+    return new Entry(capabilities, hash, fetchTime);
+  }
+
+  /**
+   * Hash of the capabilities as sent by the server. The demo server has no ETag of its own, the
+   * content hash stands in for it.
+   */
+  @NonNull
+  public static String hashOf(@NonNull String capabilities) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(capabilities.getBytes(UTF_8));
+      StringBuilder builder = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        builder.append(String.format(Locale.US, "%02x", b & 0xff));
+      }
+      return builder.toString();
+    } catch (NoSuchAlgorithmException e) {
+      // Every Android release has SHA-256.
+      throw new IllegalStateException(e);
+    }
+  }
+}
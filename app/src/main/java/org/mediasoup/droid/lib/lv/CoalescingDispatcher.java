@@ -0,0 +1,84 @@
+package org.mediasoup.droid.lib.lv;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.MutableLiveData;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Batches LiveData updates so that every LiveData emits at most once per display frame.
+ *
+ * <p>Values can be posted from any thread. The last value posted for a LiveData within a frame
+ * wins and is delivered on the main thread by the next {@link Choreographer} frame callback.
+ */
+@SuppressWarnings("WeakerAccess")
+public class CoalescingDispatcher {
+
+  private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+  private final Choreographer.FrameCallback mFrameCallback = frameTimeNanos -> flush();
+
+  // Guarded by this.
+  private Map<MutableLiveData<?>, Object> mPending = new LinkedHashMap<>();
+  private Map<MutableLiveData<?>, Object> mFlushing = new LinkedHashMap<>();
+  private boolean mFrameScheduled;
+
+  // Values posted by the store mutators.
+  private final AtomicLong mMutations = new AtomicLong();
+  // Values actually delivered to observers.
+  private final AtomicLong mEmissions = new AtomicLong();
+
+  public <T> void post(@NonNull MutableLiveData<T> liveData, T value) {
+    mMutations.incrementAndGet();
+    boolean schedule;
+    synchronized (this) {
+      mPending.put(liveData, value);
+      schedule = !mFrameScheduled;
+      mFrameScheduled = true;
+    }
+    if (!schedule) {
+      return;
+    }
+    if (Looper.myLooper() == Looper.getMainLooper()) {
+      Choreographer.getInstance().postFrameCallback(mFrameCallback);
+    } else {
+      mMainHandler.post(() -> Choreographer.getInstance().postFrameCallback(mFrameCallback));
+    }
+  }
+
+  @MainThread
+  @SuppressWarnings("unchecked")
+  private void flush() {
+    Map<MutableLiveData<?>, Object> flushing;
+    synchronized (this) {
+      flushing = mPending;
+      mPending = mFlushing;
+      mFlushing = flushing;
+      mFrameScheduled = false;
+    }
+    for (Map.Entry<MutableLiveData<?>, Object> entry : flushing.entrySet()) {
+      ((MutableLiveData<Object>) entry.getKey()).setValue(entry.getValue());
+      mEmissions.incrementAndGet();
+    }
+    flushing.clear();
+  }
+
+  public long getMutationCount() {
+    return mMutations.get();
+  }
+
+  public long getEmissionCount() {
+    return mEmissions.get();
+  }
+
+  public void resetCounters() {
+    mMutations.set(0);
+    mEmissions.set(0);
+  }
+}
@@ -2,20 +2,33 @@ package org.mediasoup.droid.lib.lv;
 
 import android.text.TextUtils;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
-import org.json.JSONArray;
 import org.json.JSONObject;
 import org.mediasoup.droid.Consumer;
 import org.mediasoup.droid.Producer;
 import org.mediasoup.droid.lib.RoomClient;
 import org.mediasoup.droid.lib.model.Consumers;
 import org.mediasoup.droid.lib.model.DeviceInfo;
+import org.mediasoup.droid.lib.model.JoinTimings;
 import org.mediasoup.droid.lib.model.Me;
 import org.mediasoup.droid.lib.model.Notify;
+import org.mediasoup.droid.lib.model.Peer;
+import org.mediasoup.droid.lib.model.PeerQuality;
 import org.mediasoup.droid.lib.model.Peers;
 import org.mediasoup.droid.lib.model.Producers;
 import org.mediasoup.droid.lib.model.RoomInfo;
+import org.mediasoup.droid.lib.model.Score;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Room state.
@@ -27,32 +40,49 @@ public class RoomStore {
 
   private static final String TAG = "RoomStore";
 
+  // Coalesces the store updates into at most one emission per LiveData per frame.
+  private final CoalescingDispatcher mDispatcher = new CoalescingDispatcher();
+
   // room
   // mediasoup-demo/app/lib/redux/reducers/room.js
-  private SupplierMutableLiveData<RoomInfo> roomInfo = new SupplierMutableLiveData<>(RoomInfo::new);
+  private SupplierMutableLiveData<RoomInfo> roomInfo =
+      new SupplierMutableLiveData<>(RoomInfo::new, mDispatcher);
 
   // me
   // mediasoup-demo/app/lib/redux/reducers/me.js
-  private SupplierMutableLiveData<Me> me = new SupplierMutableLiveData<>(Me::new);
+  private SupplierMutableLiveData<Me> me = new SupplierMutableLiveData<>(Me::new, mDispatcher);
 
   // producers
   // mediasoup-demo/app/lib/redux/reducers/producers.js
   private SupplierMutableLiveData<Producers> producers =
-      new SupplierMutableLiveData<>(Producers::new);
+      new SupplierMutableLiveData<>(Producers::new, mDispatcher);
 
   // peers
   // mediasoup-demo/app/lib/redux/reducers/peer.js
-  private SupplierMutableLiveData<Peers> peers = new SupplierMutableLiveData<>(Peers::new);
+  private SupplierMutableLiveData<Peers> peers =
+      new SupplierMutableLiveData<>(Peers::new, mDispatcher);
 
   // consumers
   // mediasoup-demo/app/lib/redux/reducers/consumers.js
   private SupplierMutableLiveData<Consumers> consumers =
-      new SupplierMutableLiveData<>(Consumers::new);
+      new SupplierMutableLiveData<>(Consumers::new, mDispatcher);
 
   // notify
   // mediasoup-demo/app/lib/redux/reducers/notifications.js
   private MutableLiveData<Notify> notify = new MutableLiveData<>();
 
+  // Quality of every remote peer, keyed by peerId. Replaced as a whole once per stats cycle.
+  private MutableLiveData<Map<String, PeerQuality>> peerQualities =
+      new MutableLiveData<>(Collections.emptyMap());
+
+  // Per peer channels, keyed by peerId. Only emit when that peer changes. Kept when the peer
+  // leaves, a peer id only ever maps to one channel so rows bound to it see the peer rejoin.
+  private final Map<String, MutableLiveData<Peer>> mPeerChannels = new HashMap<>();
+
+  // Per consumer channels, keyed by consumerId. Only emit when that consumer changes.
+  private final Map<String, MutableLiveData<Consumers.ConsumerWrapper>> mConsumerChannels =
+      new HashMap<>();
+
   public void setRoomUrl(String roomId, String url) {
     roomInfo.postValue(
         roomInfo -> {
@@ -65,10 +95,11 @@ public class RoomStore {
     roomInfo.postValue(roomInfo -> roomInfo.setConnectionState(state));
 
     if (RoomClient.ConnectionState.CLOSED.equals(state)) {
-      peers.postValue(Peers::clear);
+      updatePeers(null, Peers::clear);
       me.postValue(Me::clear);
-      producers.postValue(Producers::clear);
-      consumers.postValue(Consumers::clear);
+      producers.update(Producers::clear);
+      updateConsumers(null, Consumers::clear);
+      setPeerQualities(Collections.emptyMap());
     }
   }
 
@@ -84,6 +115,10 @@ public class RoomStore {
     roomInfo.postValue(roomInfo -> roomInfo.setFaceDetection(enable));
   }
 
+  public void setRoomJoinTimings(JoinTimings joinTimings) {
+    roomInfo.postValue(roomInfo -> roomInfo.setJoinTimings(joinTimings));
+  }
+
   public void setMe(String peerId, String displayName, DeviceInfo device) {
     me.postValue(
         me -> {
@@ -130,23 +165,23 @@ public class RoomStore {
   }
 
   public void addProducer(Producer producer) {
-    producers.postValue(producers -> producers.addProducer(producer));
+    producers.update(producers -> producers.addProducer(producer));
   }
 
   public void setProducerPaused(String producerId) {
-    producers.postValue(producers -> producers.setProducerPaused(producerId));
+    producers.update(producers -> producers.setProducerPaused(producerId));
   }
 
   public void setProducerResumed(String producerId) {
-    producers.postValue(producers -> producers.setProducerResumed(producerId));
+    producers.update(producers -> producers.setProducerResumed(producerId));
   }
 
   public void removeProducer(String producerId) {
-    producers.postValue(producers -> producers.removeProducer(producerId));
+    producers.update(producers -> producers.removeProducer(producerId));
   }
 
-  public void setProducerScore(String producerId, JSONArray score) {
-    producers.postValue(producers -> producers.setProducerScore(producerId, score));
+  public void setProducerScore(String producerId, Score score) {
+    producers.update(producers -> producers.setProducerScore(producerId, score));
   }
 
   public void addDataProducer(Object dataProducer) {
@@ -158,11 +193,13 @@ public class RoomStore {
   }
 
   public void addPeer(String peerId, JSONObject peerInfo) {
-    peers.postValue(peersInfo -> peersInfo.addPeer(peerId, peerInfo));
+    updatePeers(Collections.singleton(peerId), peersInfo -> peersInfo.addPeer(peerId, peerInfo));
   }
 
   public void setPeerDisplayName(String peerId, String displayName) {
-    peers.postValue(peersInfo -> peersInfo.setPeerDisplayName(peerId, displayName));
+    updatePeers(
+        Collections.singleton(peerId),
+        peersInfo -> peersInfo.setPeerDisplayName(peerId, displayName));
   }
 
   public void removePeer(String peerId) {
@@ -175,34 +212,74 @@ public class RoomStore {
             roomInfo.setStatsPeerId(null);
           }
         });
-    peers.postValue(peersInfo -> peersInfo.removePeer(peerId));
+    updatePeers(Collections.singleton(peerId), peersInfo -> peersInfo.removePeer(peerId));
   }
 
   public void addConsumer(String peerId, String type, Consumer consumer, boolean remotelyPaused) {
-    consumers.postValue(consumers -> consumers.addConsumer(type, consumer, remotelyPaused));
-    peers.postValue(peers -> peers.addConsumer(peerId, consumer));
+    updateConsumers(
+        Collections.singleton(consumer.getId()),
+        consumers -> consumers.addConsumer(peerId, type, consumer, remotelyPaused));
+    updatePeers(
+        Collections.singleton(peerId), peers -> peers.addConsumer(peerId, consumer.getId()));
   }
 
   public void removeConsumer(String peerId, String consumerId) {
-    consumers.postValue(consumers -> consumers.removeConsumer(consumerId));
-    peers.postValue(peers -> peers.removeConsumer(peerId, consumerId));
+    updateConsumers(
+        Collections.singleton(consumerId), consumers -> consumers.removeConsumer(consumerId));
+    updatePeers(Collections.singleton(peerId), peers -> peers.removeConsumer(peerId, consumerId));
   }
 
   public void setConsumerPaused(String consumerId, String originator) {
-    consumers.postValue(consumers -> consumers.setConsumerPaused(consumerId, originator));
+    updateConsumers(
+        Collections.singleton(consumerId),
+        consumers -> consumers.setConsumerPaused(consumerId, originator));
   }
 
   public void setConsumerResumed(String consumerId, String originator) {
-    consumers.postValue(consumers -> consumers.setConsumerResumed(consumerId, originator));
+    updateConsumers(
+        Collections.singleton(consumerId),
+        consumers -> consumers.setConsumerResumed(consumerId, originator));
+  }
+
+  public void setConsumersPaused(List<String> consumerIds, String originator) {
+    updateConsumers(
+        consumerIds,
+        consumers -> {
+          for (String consumerId : consumerIds) {
+            consumers = consumers.setConsumerPaused(consumerId, originator);
+          }
+          return consumers;
+        });
+  }
+
+  public void setConsumersResumed(List<String> consumerIds, String originator) {
+    updateConsumers(
+        consumerIds,
+        consumers -> {
+          for (String consumerId : consumerIds) {
+            consumers = consumers.setConsumerResumed(consumerId, originator);
+          }
+          return consumers;
+        });
   }
 
   public void setConsumerCurrentLayers(String consumerId, int spatialLayer, int temporalLayer) {
-    consumers.postValue(
+    updateConsumers(
+        Collections.singleton(consumerId),
         consumers -> consumers.setConsumerCurrentLayers(consumerId, spatialLayer, temporalLayer));
   }
 
-  public void setConsumerScore(String consumerId, JSONArray score) {
-    consumers.postValue(consumers -> consumers.setConsumerScore(consumerId, score));
+  public void setConsumerPreferredLayers(String consumerId, int spatialLayer, int temporalLayer) {
+    updateConsumers(
+        Collections.singleton(consumerId),
+        consumers ->
+            consumers.setConsumerPreferredLayers(consumerId, spatialLayer, temporalLayer));
+  }
+
+  public void setConsumerScore(String consumerId, Score score) {
+    updateConsumers(
+        Collections.singleton(consumerId),
+        consumers -> consumers.setConsumerScore(consumerId, score));
   }
 
   public void addDataConsumer(String peerId, Object dataConsumer) {
@@ -213,6 +290,10 @@ public class RoomStore {
     // TODO(HaiyangWU): support data consumer.
   }
 
+  public void setPeerQualities(@NonNull Map<String, PeerQuality> qualities) {
+    mDispatcher.post(peerQualities, Collections.unmodifiableMap(qualities));
+  }
+
   public void addNotify(String text) {
     notify.postValue(new Notify("info", text));
   }
@@ -241,6 +322,10 @@ public class RoomStore {
     return notify;
   }
 
+  public LiveData<Map<String, PeerQuality>> getPeerQualities() {
+    return peerQualities;
+  }
+
   public SupplierMutableLiveData<Peers> getPeers() {
     return peers;
   }
@@ -252,4 +337,95 @@ public class RoomStore {
   public SupplierMutableLiveData<Consumers> getConsumers() {
     return consumers;
   }
+
+  /** LiveData of a single peer, emits null once the peer has left, and again if it rejoins. */
+  public LiveData<Peer> getPeer(@NonNull String peerId) {
+    // Same lock as SupplierMutableLiveData#update(), so no version is missed.
+    synchronized (peers) {
+      MutableLiveData<Peer> channel = mPeerChannels.get(peerId);
+      if (channel == null) {
+        channel = new MutableLiveData<>();
+        mPeerChannels.put(peerId, channel);
+        Peer peer = peers.getLatest().getPeer(peerId);
+        if (peer != null) {
+          mDispatcher.post(channel, peer);
+        }
+      }
+      return channel;
+    }
+  }
+
+  /** LiveData of a single consumer, emits null once the consumer is closed. */
+  public LiveData<Consumers.ConsumerWrapper> getConsumer(@NonNull String consumerId) {
+    // Same lock as SupplierMutableLiveData#update(), so no version is missed.
+    synchronized (consumers) {
+      MutableLiveData<Consumers.ConsumerWrapper> channel = mConsumerChannels.get(consumerId);
+      if (channel == null) {
+        channel = new MutableLiveData<>();
+        mConsumerChannels.put(consumerId, channel);
+        Consumers.ConsumerWrapper wrapper = consumers.getLatest().getConsumer(consumerId);
+        if (wrapper != null) {
+          mDispatcher.post(channel, wrapper);
+        }
+      }
+      return channel;
+    }
+  }
+
+  // Publishes the new peers version, and the changed peers on their own channels. peerIds are the
+  // peers the reducer may change, null for all of them, so an update costs what it changes and not
+  // what is observed. The reducer runs with the peers lock held, which also guards mPeerChannels.
+  private void updatePeers(
+      @Nullable Collection<String> peerIds, SupplierMutableLiveData.Reducer<Peers> reducer) {
+    peers.update(
+        oldPeers -> {
+          Peers newPeers = reducer.reduce(oldPeers);
+          if (newPeers == oldPeers) {
+            return newPeers;
+          }
+          for (String peerId :
+              peerIds != null ? peerIds : new ArrayList<>(mPeerChannels.keySet())) {
+            MutableLiveData<Peer> channel = mPeerChannels.get(peerId);
+            Peer newPeer = newPeers.getPeer(peerId);
+            if (channel == null || newPeer == oldPeers.getPeer(peerId)) {
+              continue;
+            }
+            mDispatcher.post(channel, newPeer);
+          }
+          return newPeers;
+        });
+  }
+
+  // Publishes the new consumers version, and the changed consumers on their own channels, like
+  // updatePeers(). The reducer runs with the consumers lock held, which also guards
+  // mConsumerChannels.
+  private void updateConsumers(
+      @Nullable Collection<String> consumerIds,
+      SupplierMutableLiveData.Reducer<Consumers> reducer) {
+    consumers.update(
+        oldConsumers -> {
+          Consumers newConsumers = reducer.reduce(oldConsumers);
+          if (newConsumers == oldConsumers) {
+            return newConsumers;
+          }
+          for (String consumerId :
+              consumerIds != null ? consumerIds : new ArrayList<>(mConsumerChannels.keySet())) {
+            MutableLiveData<Consumers.ConsumerWrapper> channel = mConsumerChannels.get(consumerId);
+            Consumers.ConsumerWrapper newWrapper = newConsumers.getConsumer(consumerId);
+            if (channel == null || newWrapper == oldConsumers.getConsumer(consumerId)) {
+              continue;
+            }
+            mDispatcher.post(channel, newWrapper);
+            if (newWrapper == null) {
+              // Consumer ids are never reused, the channel of a closed consumer can go.
+              mConsumerChannels.remove(consumerId);
+            }
+          }
+          return newConsumers;
+        });
+  }
+
+  public CoalescingDispatcher getDispatcher() {
+    return mDispatcher;
+  }
 }
@@ -1,14 +1,26 @@
 package org.mediasoup.droid.lib.lv;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.core.util.Supplier;
 import androidx.lifecycle.MutableLiveData;
 
 @SuppressWarnings("WeakerAccess")
 public class SupplierMutableLiveData<T> extends MutableLiveData<T> {
 
+  @Nullable private final CoalescingDispatcher mDispatcher;
+  // Latest version. The LiveData value catches up with it once dispatched to the main thread.
+  private volatile T mLatest;
+
   public SupplierMutableLiveData(@NonNull Supplier<T> supplier) {
-    setValue(supplier.get());
+    this(supplier, null);
+  }
+
+  public SupplierMutableLiveData(
+      @NonNull Supplier<T> supplier, @Nullable CoalescingDispatcher dispatcher) {
+    mDispatcher = dispatcher;
+    mLatest = supplier.get();
+    setValue(mLatest);
   }
 
   @NonNull
@@ -18,13 +30,50 @@ public class SupplierMutableLiveData<T> extends MutableLiveData<T> {
     return super.getValue();
   }
 
+  /** Latest version, may be ahead of {@link #getValue()}. Safe to read from any thread. */
+  @NonNull
+  public T getLatest() {
+    return mLatest;
+  }
+
   public interface Invoker<T> {
     void invokeAction(T value);
   }
 
+  public interface Reducer<T> {
+    T reduce(T value);
+  }
+
   public void postValue(@NonNull Invoker<T> invoker) {
-    T value = getValue();
-    invoker.invokeAction(value);
-    postValue(value);
+    synchronized (this) {
+      T value = mLatest;
+      invoker.invokeAction(value);
+      dispatch(value);
+    }
+  }
+
+  /**
+   * Replace the latest version with the one computed by {@code reducer}, for immutable values.
+   *
+   * <p>Writers are serialised, readers never lock. Nothing is emitted if the reducer returns the
+   * same instance.
+   */
+  public void update(@NonNull Reducer<T> reducer) {
+    synchronized (this) {
+      T value = reducer.reduce(mLatest);
+      if (value == mLatest) {
+        return;
+      }
+      mLatest = value;
+      dispatch(value);
+    }
+  }
+
+  private void dispatch(T value) {
+    if (mDispatcher != null) {
+      mDispatcher.post(this, value);
+    } else {
+      postValue(value);
+    }
   }
 }
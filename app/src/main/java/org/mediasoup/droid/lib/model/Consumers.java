@@ -1,36 +1,72 @@
 package org.mediasoup.droid.lib.model;
 
-import org.json.JSONArray;
+import androidx.annotation.NonNull;
+
 import org.mediasoup.droid.Consumer;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Arrays;
 
+/**
+ * Immutable snapshot of the consumers.
+ *
+ * <p>Mutators return a new version and leave this one untouched. Unchanged {@link
+ * ConsumerWrapper} entries, and most of the map holding them, are shared between versions.
+ */
 public class Consumers {
 
+  /** Consumer state. Never modified once it has been published in a {@link Consumers}. */
   public static class ConsumerWrapper {
 
+    private String mPeerId;
+    private String mKind;
     private String mType;
     private boolean mLocallyPaused;
     private boolean mRemotelyPaused;
     private int mSpatialLayer;
     private int mTemporalLayer;
     private Consumer mConsumer;
-    private JSONArray mScore;
+    private Score mScore;
+    private ScoreHistory mScoreHistory;
     private int mPreferredSpatialLayer;
     private int mPreferredTemporalLayer;
 
-    ConsumerWrapper(String type, boolean remotelyPaused, Consumer consumer) {
+    ConsumerWrapper(String peerId, String type, boolean remotelyPaused, Consumer consumer) {
+      mPeerId = peerId;
+      mKind = consumer.getKind();
       mType = type;
       mLocallyPaused = false;
       mRemotelyPaused = remotelyPaused;
       mSpatialLayer = -1;
       mTemporalLayer = -1;
       mConsumer = consumer;
+      mScoreHistory = ScoreHistory.EMPTY;
       mPreferredSpatialLayer = -1;
       mPreferredTemporalLayer = -1;
     }
 
+    private ConsumerWrapper(@NonNull ConsumerWrapper wrapper) {
+      mPeerId = wrapper.mPeerId;
+      mKind = wrapper.mKind;
+      mType = wrapper.mType;
+      mLocallyPaused = wrapper.mLocallyPaused;
+      mRemotelyPaused = wrapper.mRemotelyPaused;
+      mSpatialLayer = wrapper.mSpatialLayer;
+      mTemporalLayer = wrapper.mTemporalLayer;
+      mConsumer = wrapper.mConsumer;
+      mScore = wrapper.mScore;
+      mScoreHistory = wrapper.mScoreHistory;
+      mPreferredSpatialLayer = wrapper.mPreferredSpatialLayer;
+      mPreferredTemporalLayer = wrapper.mPreferredTemporalLayer;
+    }
+
+    public String getPeerId() {
+      return mPeerId;
+    }
+
+    public String getKind() {
+      return mKind;
+    }
+
     public String getType() {
       return mType;
     }
@@ -55,10 +91,15 @@ public class Consumers {
       return mConsumer;
     }
 
-    public JSONArray getScore() {
+    public Score getScore() {
       return mScore;
     }
 
+    @NonNull
+    public ScoreHistory getScoreHistory() {
+      return mScoreHistory;
+    }
+
     public int getPreferredSpatialLayer() {
       return mPreferredSpatialLayer;
     }
@@ -68,69 +109,154 @@ public class Consumers {
     }
   }
 
-  private final Map<String, ConsumerWrapper> consumers;
+  private final HashTrieMap<ConsumerWrapper> consumers;
+  // Secondary index, peerId + kind -> ids of the consumers of that peer and kind, oldest first.
+  // Only changes when consumers are added or removed, state changes of existing consumers share it
+  // with the previous version.
+  private final HashTrieMap<String[]> byPeerAndKind;
 
   public Consumers() {
-    consumers = new ConcurrentHashMap<>();
+    consumers = HashTrieMap.empty();
+    byPeerAndKind = HashTrieMap.empty();
+  }
+
+  private Consumers(
+      @NonNull HashTrieMap<ConsumerWrapper> consumers,
+      @NonNull HashTrieMap<String[]> byPeerAndKind) {
+    this.consumers = consumers;
+    this.byPeerAndKind = byPeerAndKind;
   }
 
-  public void addConsumer(String type, Consumer consumer, boolean remotelyPaused) {
-    consumers.put(consumer.getId(), new ConsumerWrapper(type, remotelyPaused, consumer));
+  private static String indexKey(String peerId, String kind) {
+    return peerId + ':' + kind;
   }
 
-  public void removeConsumer(String consumerId) {
-    consumers.remove(consumerId);
+  private Consumers withConsumer(String consumerId, @NonNull ConsumerWrapper wrapper) {
+    return new Consumers(consumers.put(consumerId, wrapper), byPeerAndKind);
+  }
+
+  public Consumers addConsumer(
+      String peerId, String type, Consumer consumer, boolean remotelyPaused) {
+    ConsumerWrapper wrapper = new ConsumerWrapper(peerId, type, remotelyPaused, consumer);
+    String consumerId = consumer.getId();
+    String key = indexKey(peerId, wrapper.mKind);
+    String[] ids = byPeerAndKind.get(key);
+    HashTrieMap<String[]> newIndex = byPeerAndKind;
+    if (ids == null) {
+      newIndex = byPeerAndKind.put(key, new String[] {consumerId});
+    } else if (!Arrays.asList(ids).contains(consumerId)) {
+      String[] newIds = Arrays.copyOf(ids, ids.length + 1);
+      newIds[ids.length] = consumerId;
+      newIndex = byPeerAndKind.put(key, newIds);
+    }
+    return new Consumers(consumers.put(consumerId, wrapper), newIndex);
   }
 
-  public void setConsumerPaused(String consumerId, String originator) {
+  public Consumers removeConsumer(String consumerId) {
     ConsumerWrapper wrapper = consumers.get(consumerId);
     if (wrapper == null) {
-      return;
+      return this;
     }
+    String key = indexKey(wrapper.mPeerId, wrapper.mKind);
+    String[] ids = byPeerAndKind.get(key);
+    HashTrieMap<String[]> newIndex = byPeerAndKind;
+    if (ids != null) {
+      // Only the consumers of this peer and kind, usually just the one being removed.
+      String[] newIds = new String[ids.length];
+      int count = 0;
+      for (String id : ids) {
+        if (!id.equals(consumerId)) {
+          newIds[count++] = id;
+        }
+      }
+      newIndex =
+          count == 0
+              ? byPeerAndKind.remove(key)
+              : byPeerAndKind.put(key, Arrays.copyOf(newIds, count));
+    }
+    return new Consumers(consumers.remove(consumerId), newIndex);
+  }
 
+  public Consumers setConsumerPaused(String consumerId, String originator) {
+    ConsumerWrapper wrapper = consumers.get(consumerId);
+    if (wrapper == null) {
+      return this;
+    }
+
+    ConsumerWrapper newWrapper = new ConsumerWrapper(wrapper);
     if ("local".equals(originator)) {
-      wrapper.mLocallyPaused = true;
+      newWrapper.mLocallyPaused = true;
     } else {
-      wrapper.mRemotelyPaused = true;
+      newWrapper.mRemotelyPaused = true;
     }
+    return withConsumer(consumerId, newWrapper);
   }
 
-  public void setConsumerResumed(String consumerId, String originator) {
+  public Consumers setConsumerResumed(String consumerId, String originator) {
     ConsumerWrapper wrapper = consumers.get(consumerId);
     if (wrapper == null) {
-      return;
+      return this;
     }
 
+    ConsumerWrapper newWrapper = new ConsumerWrapper(wrapper);
     if ("local".equals(originator)) {
-      wrapper.mLocallyPaused = false;
+      newWrapper.mLocallyPaused = false;
     } else {
-      wrapper.mRemotelyPaused = false;
+      newWrapper.mRemotelyPaused = false;
     }
+    return withConsumer(consumerId, newWrapper);
   }
 
-  public void setConsumerCurrentLayers(String consumerId, int spatialLayer, int temporalLayer) {
+  public Consumers setConsumerCurrentLayers(
+      String consumerId, int spatialLayer, int temporalLayer) {
     ConsumerWrapper wrapper = consumers.get(consumerId);
     if (wrapper == null) {
-      return;
+      return this;
     }
-    wrapper.mSpatialLayer = spatialLayer;
-    wrapper.mTemporalLayer = temporalLayer;
+    ConsumerWrapper newWrapper = new ConsumerWrapper(wrapper);
+    newWrapper.mSpatialLayer = spatialLayer;
+    newWrapper.mTemporalLayer = temporalLayer;
+    return withConsumer(consumerId, newWrapper);
   }
 
-  public void setConsumerScore(String consumerId, JSONArray score) {
+  public Consumers setConsumerPreferredLayers(
+      String consumerId, int spatialLayer, int temporalLayer) {
     ConsumerWrapper wrapper = consumers.get(consumerId);
     if (wrapper == null) {
-      return;
+      return this;
     }
+    ConsumerWrapper newWrapper = new ConsumerWrapper(wrapper);
+    newWrapper.mPreferredSpatialLayer = spatialLayer;
+    newWrapper.mPreferredTemporalLayer = temporalLayer;
+    return withConsumer(consumerId, newWrapper);
+  }
 
-    wrapper.mScore = score;
+  public Consumers setConsumerScore(String consumerId, @NonNull Score score) {
+    ConsumerWrapper wrapper = consumers.get(consumerId);
+    if (wrapper == null) {
+      return this;
+    }
+
+    ConsumerWrapper newWrapper = new ConsumerWrapper(wrapper);
+    newWrapper.mScore = score;
+    newWrapper.mScoreHistory = wrapper.mScoreHistory.append(score.getScore());
+    return withConsumer(consumerId, newWrapper);
   }
 
   public ConsumerWrapper getConsumer(String consumerId) {
     return consumers.get(consumerId);
   }
 
-  public void clear() {
-    consumers.clear();
+  /**
+   * Consumer of {@code kind} ("audio" or "video") belonging to {@code peerId}, the latest one if
+   * the peer has several, without going through the consumers of the other peers.
+   */
+  public ConsumerWrapper getConsumer(String peerId, String kind) {
+    String[] ids = byPeerAndKind.get(indexKey(peerId, kind));
+    return ids != null ? consumers.get(ids[ids.length - 1]) : null;
+  }
+
+  public Consumers clear() {
+    return consumers.isEmpty() ? this : new Consumers();
   }
 }
@@ -0,0 +1,317 @@
+package org.mediasoup.droid.lib.model;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable map from String keys, sharing its structure between versions.
+ *
+ * <p>A hash array mapped trie of 32-way nodes: {@link #put} and {@link #remove} copy the few nodes
+ * on the path to the key and share all the others, instead of copying the whole map. {@link
+ * #values()} lists the values in insertion order, like a {@link java.util.LinkedHashMap}
+ * (replacing the value of a key keeps its position).
+ */
+final class HashTrieMap<V> {
+
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+
+  private static final HashTrieMap<?> EMPTY = new HashTrieMap<>(Node.EMPTY, 0, 0);
+
+  private static final Comparator<Entry> INSERTION_ORDER =
+      (a, b) -> a.mOrder < b.mOrder ? -1 : (a.mOrder == b.mOrder ? 0 : 1);
+
+  private final Node mRoot;
+  private final int mSize;
+  // Order of the next new key.
+  private final long mNextOrder;
+
+  private HashTrieMap(@NonNull Node root, int size, long nextOrder) {
+    mRoot = root;
+    mSize = size;
+    mNextOrder = nextOrder;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <V> HashTrieMap<V> empty() {
+    return (HashTrieMap<V>) EMPTY;
+  }
+
+  int size() {
+    return mSize;
+  }
+
+  boolean isEmpty() {
+    return mSize == 0;
+  }
+
+  boolean containsKey(String key) {
+    return find(key) != null;
+  }
+
+  @Nullable
+  @SuppressWarnings("unchecked")
+  V get(String key) {
+    Entry entry = find(key);
+    return entry != null ? (V) entry.mValue : null;
+  }
+
+  /** This map if {@code key} already maps to this very {@code value}. */
+  HashTrieMap<V> put(@NonNull String key, @NonNull V value) {
+    Entry existing = find(key);
+    if (existing != null && existing.mValue == value) {
+      return this;
+    }
+    long order = existing != null ? existing.mOrder : mNextOrder;
+    Node root = mRoot.put(0, new Entry(key, value, order));
+    return existing != null
+        ? new HashTrieMap<>(root, mSize, mNextOrder)
+        : new HashTrieMap<>(root, mSize + 1, mNextOrder + 1);
+  }
+
+  /** This map if it has no {@code key}. */
+  HashTrieMap<V> remove(String key) {
+    if (find(key) == null) {
+      return this;
+    }
+    if (mSize == 1) {
+      return empty();
+    }
+    Object root = mRoot.remove(0, hash(key), key);
+    // The root stays a node, whatever is left in it.
+    Node rootNode = root instanceof Node ? (Node) root : Node.EMPTY.put(0, root);
+    return new HashTrieMap<>(rootNode, mSize - 1, mNextOrder);
+  }
+
+  /** Values in insertion order. */
+  @SuppressWarnings("unchecked")
+  List<V> values() {
+    List<Entry> entries = new ArrayList<>(mSize);
+    mRoot.collect(entries);
+    Collections.sort(entries, INSERTION_ORDER);
+    List<V> values = new ArrayList<>(mSize);
+    for (Entry entry : entries) {
+      values.add((V) entry.mValue);
+    }
+    return values;
+  }
+
+  @Nullable
+  private Entry find(String key) {
+    int hash = hash(key);
+    Object slot = mRoot;
+    for (int shift = 0; slot instanceof Node; shift += BITS) {
+      slot = ((Node) slot).slot(shift, hash);
+    }
+    if (slot instanceof Entry) {
+      Entry entry = (Entry) slot;
+      return entry.mKey.equals(key) ? entry : null;
+    }
+    return slot != null ? ((Collision) slot).find(key) : null;
+  }
+
+  // Spread the bits, String hashes of similar ids differ mostly in the low bits.
+  private static int hash(String key) {
+    int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  private static int hashOf(Object leaf) {
+    return leaf instanceof Entry ? ((Entry) leaf).mHash : ((Collision) leaf).mHash;
+  }
+
+  // A trie made of two leaves, an Entry or a Collision each, of different keys.
+  private static Object merge(Object a, Object b, int shift) {
+    int hashA = hashOf(a);
+    int hashB = hashOf(b);
+    if (hashA == hashB) {
+      return Collision.of(a, (Entry) b);
+    }
+    int indexA = (hashA >>> shift) & MASK;
+    int indexB = (hashB >>> shift) & MASK;
+    if (indexA == indexB) {
+      return new Node(1 << indexA, new Object[] {merge(a, b, shift + BITS)});
+    }
+    return new Node(
+        (1 << indexA) | (1 << indexB), indexA < indexB ? new Object[] {a, b} : new Object[] {b, a});
+  }
+
+  private static final class Entry {
+    final String mKey;
+    final int mHash;
+    final Object mValue;
+    final long mOrder;
+
+    Entry(String key, Object value, long order) {
+      mKey = key;
+      mHash = hash(key);
+      mValue = value;
+      mOrder = order;
+    }
+  }
+
+  // Entries of different keys with the same hash.
+  private static final class Collision {
+    final int mHash;
+    final Entry[] mEntries;
+
+    private Collision(int hash, Entry[] entries) {
+      mHash = hash;
+      mEntries = entries;
+    }
+
+    static Collision of(Object leaf, Entry entry) {
+      Entry[] entries;
+      if (leaf instanceof Entry) {
+        entries = new Entry[] {(Entry) leaf, entry};
+      } else {
+        Entry[] existing = ((Collision) leaf).mEntries;
+        entries = Arrays.copyOf(existing, existing.length + 1);
+        entries[existing.length] = entry;
+      }
+      return new Collision(entry.mHash, entries);
+    }
+
+    Entry find(String key) {
+      for (Entry entry : mEntries) {
+        if (entry.mKey.equals(key)) {
+          return entry;
+        }
+      }
+      return null;
+    }
+
+    Object put(Entry entry) {
+      for (int i = 0; i < mEntries.length; i++) {
+        if (mEntries[i].mKey.equals(entry.mKey)) {
+          Entry[] entries = mEntries.clone();
+          entries[i] = entry;
+          return new Collision(mHash, entries);
+        }
+      }
+      return of(this, entry);
+    }
+
+    // The remaining Entry once only one is left.
+    Object remove(String key) {
+      for (int i = 0; i < mEntries.length; i++) {
+        if (mEntries[i].mKey.equals(key)) {
+          if (mEntries.length == 2) {
+            return mEntries[1 - i];
+          }
+          Entry[] entries = new Entry[mEntries.length - 1];
+          System.arraycopy(mEntries, 0, entries, 0, i);
+          System.arraycopy(mEntries, i + 1, entries, i, entries.length - i);
+          return new Collision(mHash, entries);
+        }
+      }
+      return this;
+    }
+  }
+
+  // Up to 32 slots, each an Entry, a Collision or a child Node. Only the occupied ones are stored.
+  private static final class Node {
+    static final Node EMPTY = new Node(0, new Object[0]);
+
+    final int mBitmap;
+    final Object[] mSlots;
+
+    Node(int bitmap, Object[] slots) {
+      mBitmap = bitmap;
+      mSlots = slots;
+    }
+
+    Object slot(int shift, int hash) {
+      int bit = 1 << ((hash >>> shift) & MASK);
+      return (mBitmap & bit) != 0 ? mSlots[index(bit)] : null;
+    }
+
+    private int index(int bit) {
+      return Integer.bitCount(mBitmap & (bit - 1));
+    }
+
+    // leaf is an Entry, or a Collision when re-inserting the last leaf into an empty root.
+    Node put(int shift, Object leaf) {
+      int bit = 1 << ((hashOf(leaf) >>> shift) & MASK);
+      int index = index(bit);
+      if ((mBitmap & bit) == 0) {
+        Object[] slots = new Object[mSlots.length + 1];
+        System.arraycopy(mSlots, 0, slots, 0, index);
+        slots[index] = leaf;
+        System.arraycopy(mSlots, index, slots, index + 1, mSlots.length - index);
+        return new Node(mBitmap | bit, slots);
+      }
+      Entry entry = (Entry) leaf;
+      Object slot = mSlots[index];
+      Object newSlot;
+      if (slot instanceof Node) {
+        newSlot = ((Node) slot).put(shift + BITS, entry);
+      } else if (slot instanceof Collision) {
+        Collision collision = (Collision) slot;
+        newSlot =
+            collision.mHash == entry.mHash
+                ? collision.put(entry)
+                : merge(collision, entry, shift + BITS);
+      } else if (((Entry) slot).mKey.equals(entry.mKey)) {
+        newSlot = entry;
+      } else {
+        newSlot = merge(slot, entry, shift + BITS);
+      }
+      Object[] slots = mSlots.clone();
+      slots[index] = newSlot;
+      return new Node(mBitmap, slots);
+    }
+
+    // The new Node, or its only leaf so that the parent can take it over, or null once empty.
+    // Only called with a key that is in the trie.
+    Object remove(int shift, int hash, String key) {
+      int bit = 1 << ((hash >>> shift) & MASK);
+      int index = index(bit);
+      Object slot = mSlots[index];
+      Object newSlot;
+      if (slot instanceof Node) {
+        newSlot = ((Node) slot).remove(shift + BITS, hash, key);
+      } else if (slot instanceof Collision) {
+        newSlot = ((Collision) slot).remove(key);
+      } else {
+        newSlot = null;
+      }
+      if (newSlot == null) {
+        if (mSlots.length == 1) {
+          return null;
+        }
+        if (mSlots.length == 2 && !(mSlots[1 - index] instanceof Node)) {
+          return mSlots[1 - index];
+        }
+        Object[] slots = new Object[mSlots.length - 1];
+        System.arraycopy(mSlots, 0, slots, 0, index);
+        System.arraycopy(mSlots, index + 1, slots, index, slots.length - index);
+        return new Node(mBitmap & ~bit, slots);
+      }
+      if (mSlots.length == 1 && !(newSlot instanceof Node)) {
+        return newSlot;
+      }
+      Object[] slots = mSlots.clone();
+      slots[index] = newSlot;
+      return new Node(mBitmap, slots);
+    }
+
+    void collect(List<Entry> entries) {
+      for (Object slot : mSlots) {
+        if (slot instanceof Node) {
+          ((Node) slot).collect(entries);
+        } else if (slot instanceof Collision) {
+          Collections.addAll(entries, ((Collision) slot).mEntries);
+        } else {
+          entries.add((Entry) slot);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,116 @@
+package org.mediasoup.droid.lib.model;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+
+/**
+ * Per-phase timing breakdown of a join handshake.
+ *
+ * <p>Every value is the elapsed time in milliseconds between the start of the join and the end
+ * of the phase, or -1 if the phase has not finished (or was skipped).
+ */
+@SuppressWarnings("WeakerAccess")
+public class JoinTimings {
+
+  private final boolean mPipelined;
+  private final long mStartTime;
+  // Whether the router capabilities came from the cache instead of the server.
+  private volatile boolean mRouterRtpCapabilitiesCached;
+
+  private volatile long mRouterRtpCapabilities = -1;
+  private volatile long mDeviceLoad = -1;
+  private volatile long mSendTransport = -1;
+  private volatile long mRecvTransport = -1;
+  private volatile long mJoin = -1;
+  private volatile long mTotal = -1;
+
+  public JoinTimings(boolean pipelined) {
+    mPipelined = pipelined;
+    mStartTime = SystemClock.elapsedRealtime();
+  }
+
+  private long elapsed() {
+    return SystemClock.elapsedRealtime() - mStartTime;
+  }
+
+  public void routerRtpCapabilitiesDone() {
+    mRouterRtpCapabilities = elapsed();
+  }
+
+  public void routerRtpCapabilitiesCached() {
+    mRouterRtpCapabilitiesCached = true;
+    mRouterRtpCapabilities = elapsed();
+  }
+
+  public void deviceLoadDone() {
+    mDeviceLoad = elapsed();
+  }
+
+  public void sendTransportDone() {
+    mSendTransport = elapsed();
+  }
+
+  public void recvTransportDone() {
+    mRecvTransport = elapsed();
+  }
+
+  public void joinDone() {
+    mJoin = elapsed();
+  }
+
+  public void finished() {
+    mTotal = elapsed();
+  }
+
+  public boolean isPipelined() {
+    return mPipelined;
+  }
+
+  public boolean isRouterRtpCapabilitiesCached() {
+    return mRouterRtpCapabilitiesCached;
+  }
+
+  public long getRouterRtpCapabilities() {
+    return mRouterRtpCapabilities;
+  }
+
+  public long getDeviceLoad() {
+    return mDeviceLoad;
+  }
+
+  public long getSendTransport() {
+    return mSendTransport;
+  }
+
+  public long getRecvTransport() {
+    return mRecvTransport;
+  }
+
+  public long getJoin() {
+    return mJoin;
+  }
+
+  public long getTotal() {
+    return mTotal;
+  }
+
+  @NonNull
+  @Override
+  public String toString() {
+    return String.format(
+        Locale.US,
+        "JoinTimings{pipelined=%b, cached=%b, routerRtpCapabilities=%d, deviceLoad=%d,"
+            + " sendTransport=%d, recvTransport=%d, join=%d, total=%d}",
+        mPipelined,
+        mRouterRtpCapabilitiesCached,
+        mRouterRtpCapabilities,
+        mDeviceLoad,
+        mSendTransport,
+        mRecvTransport,
+        mJoin,
+        mTotal);
+  }
+}
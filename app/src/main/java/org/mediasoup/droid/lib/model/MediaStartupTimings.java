@@ -0,0 +1,92 @@
+package org.mediasoup.droid.lib.model;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+
+/**
+ * Cost of bringing up local media, in milliseconds, -1 for what did not happen (yet).
+ *
+ * <p>The warm-up values are spent off the critical path. The others are paid by the room, from
+ * the first track request to the first captured frame.
+ */
+@SuppressWarnings("WeakerAccess")
+public class MediaStartupTimings {
+
+  private volatile long mWarmUpCamera = -1;
+  private volatile long mWarmUpFactory = -1;
+  // Whether the factory came from the warm-up instead of being created on demand.
+  private volatile boolean mFactoryWarm;
+  // Time to get a factory when the first track needed it (waiting for the warm-up, or creating).
+  private volatile long mFactory = -1;
+  private volatile long mAudioTrack = -1;
+  private volatile long mVideoTrack = -1;
+  // From the video source creation to the first frame of the camera.
+  private volatile long mFirstFrame = -1;
+
+  public void setWarmUp(long camera, long factory) {
+    mWarmUpCamera = camera;
+    mWarmUpFactory = factory;
+  }
+
+  public void setFactory(long factory, boolean warm) {
+    mFactory = factory;
+    mFactoryWarm = warm;
+  }
+
+  public void setAudioTrack(long audioTrack) {
+    mAudioTrack = audioTrack;
+  }
+
+  public void setVideoTrack(long videoTrack) {
+    mVideoTrack = videoTrack;
+  }
+
+  public void setFirstFrame(long firstFrame) {
+    mFirstFrame = firstFrame;
+  }
+
+  public long getWarmUpCamera() {
+    return mWarmUpCamera;
+  }
+
+  public long getWarmUpFactory() {
+    return mWarmUpFactory;
+  }
+
+  public boolean isFactoryWarm() {
+    return mFactoryWarm;
+  }
+
+  public long getFactory() {
+    return mFactory;
+  }
+
+  public long getAudioTrack() {
+    return mAudioTrack;
+  }
+
+  public long getVideoTrack() {
+    return mVideoTrack;
+  }
+
+  public long getFirstFrame() {
+    return mFirstFrame;
+  }
+
+  @NonNull
+  @Override
+  public String toString() {
+    return String.format(
+        Locale.US,
+        "MediaStartupTimings{warmUpCamera=%d, warmUpFactory=%d, factoryWarm=%b, factory=%d,"
+            + " audioTrack=%d, videoTrack=%d, firstFrame=%d}",
+        mWarmUpCamera,
+        mWarmUpFactory,
+        mFactoryWarm,
+        mFactory,
+        mAudioTrack,
+        mVideoTrack,
+        mFirstFrame);
+  }
+}
@@ -4,17 +4,19 @@ import androidx.annotation.NonNull;
 
 import org.json.JSONObject;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
+/** Immutable peer snapshot, every change produces a new instance. */
 @SuppressWarnings("WeakerAccess")
 public class Peer extends Info {
 
-  private String mId;
-  private String mDisplayName;
-  private DeviceInfo mDevice;
+  private final String mId;
+  private final String mDisplayName;
+  private final DeviceInfo mDevice;
 
-  private Set<String> consumers;
+  private final Set<String> consumers;
 
   public Peer(@NonNull JSONObject info) {
     mId = info.optString("id");
@@ -29,7 +31,14 @@ public class Peer extends Info {
     } else {
       mDevice = DeviceInfo.unknownDevice();
     }
-    consumers = new HashSet<>();
+    consumers = Collections.emptySet();
+  }
+
+  private Peer(@NonNull Peer peer, String displayName, @NonNull Set<String> consumers) {
+    this.mId = peer.mId;
+    this.mDisplayName = displayName;
+    this.mDevice = peer.mDevice;
+    this.consumers = consumers;
   }
 
   @Override
@@ -47,15 +56,29 @@ public class Peer extends Info {
     return mDevice;
   }
 
-  public void setDisplayName(String displayName) {
-    this.mDisplayName = displayName;
+  public Set<String> getConsumers() {
+    return consumers;
   }
 
-  public void setDevice(DeviceInfo device) {
-    this.mDevice = device;
+  Peer withDisplayName(String displayName) {
+    return new Peer(this, displayName, consumers);
   }
 
-  public Set<String> getConsumers() {
-    return consumers;
+  Peer withConsumer(String consumerId) {
+    if (consumers.contains(consumerId)) {
+      return this;
+    }
+    Set<String> newConsumers = new HashSet<>(consumers);
+    newConsumers.add(consumerId);
+    return new Peer(this, mDisplayName, Collections.unmodifiableSet(newConsumers));
+  }
+
+  Peer withoutConsumer(String consumerId) {
+    if (!consumers.contains(consumerId)) {
+      return this;
+    }
+    Set<String> newConsumers = new HashSet<>(consumers);
+    newConsumers.remove(consumerId);
+    return new Peer(this, mDisplayName, Collections.unmodifiableSet(newConsumers));
   }
 }
@@ -0,0 +1,107 @@
+package org.mediasoup.droid.lib.model;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+
+/**
+ * Immutable summary of how well the media of a remote peer reaches us, from the local stats of
+ * its consumers merged with the server side ones.
+ */
+@SuppressWarnings("WeakerAccess")
+public class PeerQuality {
+
+  public enum Level {
+    UNKNOWN,
+    POOR,
+    FAIR,
+    GOOD,
+  }
+
+  // Loss above which the media visibly or audibly suffers.
+  private static final double FAIR_FRACTION_LOST = 0.02;
+  private static final double POOR_FRACTION_LOST = 0.1;
+  private static final int FAIR_SCORE = 8;
+  private static final int POOR_SCORE = 5;
+
+  private final String mPeerId;
+  private final long mReceiveBitrate;
+  private final double mFractionLost;
+  private final double mRoundTripTimeMs;
+  private final int mScore;
+  private final Level mLevel;
+
+  /**
+   * @param receiveBitrate sum over the consumers of the peer, bits per second, -1 if unknown.
+   * @param fractionLost worst consumer loss, 0 to 1, -1 if unknown.
+   * @param roundTripTimeMs worst consumer round trip time, -1 if unknown.
+   * @param score worst consumer score, 0 to 10, -1 if unknown.
+   */
+  public PeerQuality(
+      @NonNull String peerId,
+      long receiveBitrate,
+      double fractionLost,
+      double roundTripTimeMs,
+      int score) {
+    mPeerId = peerId;
+    mReceiveBitrate = receiveBitrate;
+    mFractionLost = fractionLost;
+    mRoundTripTimeMs = roundTripTimeMs;
+    mScore = score;
+    mLevel = levelOf(fractionLost, score);
+  }
+
+  private static Level levelOf(double fractionLost, int score) {
+    if (fractionLost < 0 && score < 0) {
+      return Level.UNKNOWN;
+    }
+    if (fractionLost > POOR_FRACTION_LOST || (score >= 0 && score < POOR_SCORE)) {
+      return Level.POOR;
+    }
+    if (fractionLost > FAIR_FRACTION_LOST || (score >= 0 && score < FAIR_SCORE)) {
+      return Level.FAIR;
+    }
+    return Level.GOOD;
+  }
+
+  @NonNull
+  public String getPeerId() {
+    return mPeerId;
+  }
+
+  public long getReceiveBitrate() {
+    return mReceiveBitrate;
+  }
+
+  public double getFractionLost() {
+    return mFractionLost;
+  }
+
+  public double getRoundTripTimeMs() {
+    return mRoundTripTimeMs;
+  }
+
+  public int getScore() {
+    return mScore;
+  }
+
+  @NonNull
+  public Level getLevel() {
+    return mLevel;
+  }
+
+  @NonNull
+  @Override
+  public String toString() {
+    return String.format(
+        Locale.US,
+        "PeerQuality{peerId=%s, level=%s, receiveBitrate=%d, fractionLost=%.3f, rttMs=%.1f,"
+            + " score=%d}",
+        mPeerId,
+        mLevel,
+        mReceiveBitrate,
+        mFractionLost,
+        mRoundTripTimeMs,
+        mScore);
+  }
+}
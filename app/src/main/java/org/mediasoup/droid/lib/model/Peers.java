@@ -3,59 +3,72 @@ package org.mediasoup.droid.lib.model;
 import androidx.annotation.NonNull;
 
 import org.json.JSONObject;
-import org.mediasoup.droid.Consumer;
 import org.mediasoup.droid.Logger;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 
+/**
+ * Immutable snapshot of the remote peers.
+ *
+ * <p>Mutators return a new version and leave this one untouched. Unchanged {@link Peer} entries
+ * are shared between versions, so observers can find what changed by comparing references.
+ */
 public class Peers {
 
   private static final String TAG = "Peers";
 
-  private Map<String, Peer> mPeersInfo;
+  // In joining order.
+  private final HashTrieMap<Peer> mPeersInfo;
 
   public Peers() {
-    mPeersInfo = Collections.synchronizedMap(new LinkedHashMap<>());
+    mPeersInfo = HashTrieMap.empty();
   }
 
-  public void addPeer(String peerId, @NonNull JSONObject peerInfo) {
-    mPeersInfo.put(peerId, new Peer(peerInfo));
+  private Peers(@NonNull HashTrieMap<Peer> peersInfo) {
+    mPeersInfo = peersInfo;
   }
 
-  public void removePeer(String peerId) {
-    mPeersInfo.remove(peerId);
+  private Peers withPeer(String peerId, @NonNull Peer peer) {
+    return new Peers(mPeersInfo.put(peerId, peer));
   }
 
-  public void setPeerDisplayName(String peerId, String displayName) {
+  public Peers addPeer(String peerId, @NonNull JSONObject peerInfo) {
+    return withPeer(peerId, new Peer(peerInfo));
+  }
+
+  public Peers removePeer(String peerId) {
+    HashTrieMap<Peer> peersInfo = mPeersInfo.remove(peerId);
+    return peersInfo == mPeersInfo ? this : new Peers(peersInfo);
+  }
+
+  public Peers setPeerDisplayName(String peerId, String displayName) {
     Peer peer = mPeersInfo.get(peerId);
     if (peer == null) {
       Logger.e(TAG, "no Protoo found");
-      return;
+      return this;
     }
-    peer.setDisplayName(displayName);
+    return withPeer(peerId, peer.withDisplayName(displayName));
   }
 
-  public void addConsumer(String peerId, Consumer consumer) {
+  public Peers addConsumer(String peerId, String consumerId) {
     Peer peer = getPeer(peerId);
     if (peer == null) {
       Logger.e(TAG, "no Peer found for new Consumer");
-      return;
+      return this;
     }
 
-    peer.getConsumers().add(consumer.getId());
+    Peer newPeer = peer.withConsumer(consumerId);
+    return newPeer == peer ? this : withPeer(peerId, newPeer);
   }
 
-  public void removeConsumer(String peerId, String consumerId) {
+  public Peers removeConsumer(String peerId, String consumerId) {
     Peer peer = getPeer(peerId);
     if (peer == null) {
-      return;
+      return this;
     }
 
-    peer.getConsumers().remove(consumerId);
+    Peer newPeer = peer.withoutConsumer(consumerId);
+    return newPeer == peer ? this : withPeer(peerId, newPeer);
   }
 
   public Peer getPeer(String peerId) {
@@ -63,14 +76,10 @@ public class Peers {
   }
 
   public List<Peer> getAllPeers() {
-    List<Peer> peers = new ArrayList<>();
-    for (Map.Entry<String, Peer> info : mPeersInfo.entrySet()) {
-      peers.add(info.getValue());
-    }
-    return peers;
+    return mPeersInfo.values();
   }
 
-  public void clear() {
-    mPeersInfo.clear();
+  public Peers clear() {
+    return mPeersInfo.isEmpty() ? this : new Peers();
   }
 }
@@ -2,99 +2,166 @@ package org.mediasoup.droid.lib.model;
 
 import androidx.annotation.NonNull;
 
-import org.json.JSONArray;
 import org.mediasoup.droid.Producer;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Immutable snapshot of the local producers.
+ *
+ * <p>Mutators return a new version and leave this one untouched. Unchanged {@link
+ * ProducersWrapper} entries, and most of the map holding them, are shared between versions.
+ */
 public class Producers {
 
+  /** Producer state. Never modified once it has been published in a {@link Producers}. */
   public static class ProducersWrapper {
 
     public static final String TYPE_CAM = "cam";
     public static final String TYPE_SHARE = "share";
 
-    private Producer mProducer;
-    private JSONArray mScore;
-    private String mType;
+    private final Producer mProducer;
+    private final Score mScore;
+    private final ScoreHistory mScoreHistory;
+    private final String mType;
 
     ProducersWrapper(Producer producer) {
+      this(producer, null, ScoreHistory.EMPTY, null);
+    }
+
+    private ProducersWrapper(
+        Producer producer, Score score, @NonNull ScoreHistory scoreHistory, String type) {
       this.mProducer = producer;
+      this.mScore = score;
+      this.mScoreHistory = scoreHistory;
+      this.mType = type;
+    }
+
+    private ProducersWrapper copy() {
+      return new ProducersWrapper(mProducer, mScore, mScoreHistory, mType);
     }
 
     public Producer getProducer() {
       return mProducer;
     }
 
-    public JSONArray getScore() {
+    public Score getScore() {
       return mScore;
     }
 
-    public String getType() {
-      return mType;
+    @NonNull
+    public ScoreHistory getScoreHistory() {
+      return mScoreHistory;
     }
 
-    public void setType(String type) {
-      mType = type;
+    public String getType() {
+      return mType;
     }
   }
 
-  private final Map<String, ProducersWrapper> mProducers;
+  private final HashTrieMap<ProducersWrapper> mProducers;
+  // Secondary index, track kind -> producer id. Shared with the previous version unless a
+  // producer was added or removed.
+  private final Map<String, String> mByKind;
 
   public Producers() {
-    mProducers = new ConcurrentHashMap<>();
+    mProducers = HashTrieMap.empty();
+    mByKind = Collections.emptyMap();
+  }
+
+  private Producers(
+      @NonNull HashTrieMap<ProducersWrapper> producers, @NonNull Map<String, String> byKind) {
+    mProducers = producers;
+    mByKind = byKind;
   }
 
-  public void addProducer(Producer producer) {
-    mProducers.put(producer.getId(), new ProducersWrapper(producer));
+  private static String kindOf(Producer producer) {
+    if (producer == null || producer.getTrack() == null) {
+      return null;
+    }
+    return producer.getTrack().kind();
   }
 
-  public void removeProducer(String producerId) {
-    mProducers.remove(producerId);
+  private Producers withProducer(String producerId, @NonNull ProducersWrapper wrapper) {
+    return new Producers(mProducers.put(producerId, wrapper), mByKind);
+  }
+
+  public Producers addProducer(Producer producer) {
+    HashTrieMap<ProducersWrapper> producers =
+        mProducers.put(producer.getId(), new ProducersWrapper(producer));
+    String kind = kindOf(producer);
+    if (kind == null) {
+      return new Producers(producers, mByKind);
+    }
+    Map<String, String> byKind = new HashMap<>(mByKind);
+    byKind.put(kind, producer.getId());
+    return new Producers(producers, Collections.unmodifiableMap(byKind));
   }
 
-  public void setProducerPaused(String producerId) {
+  public Producers removeProducer(String producerId) {
     ProducersWrapper wrapper = mProducers.get(producerId);
     if (wrapper == null) {
-      return;
+      return this;
+    }
+    HashTrieMap<ProducersWrapper> producers = mProducers.remove(producerId);
+    String kind = kindOf(wrapper.mProducer);
+    if (kind == null || !producerId.equals(mByKind.get(kind))) {
+      return new Producers(producers, mByKind);
+    }
+    Map<String, String> byKind = new HashMap<>(mByKind);
+    byKind.remove(kind);
+    // Another producer of the same kind takes over the slot, if any.
+    for (ProducersWrapper other : producers.values()) {
+      if (kind.equals(kindOf(other.mProducer))) {
+        byKind.put(kind, other.mProducer.getId());
+        break;
+      }
+    }
+    return new Producers(producers, Collections.unmodifiableMap(byKind));
+  }
+
+  public Producers setProducerPaused(String producerId) {
+    ProducersWrapper wrapper = mProducers.get(producerId);
+    if (wrapper == null) {
+      return this;
     }
     wrapper.mProducer.pause();
+    // New wrapper instance, so that observers comparing by reference see the change.
+    return withProducer(producerId, wrapper.copy());
   }
 
-  public void setProducerResumed(String producerId) {
+  public Producers setProducerResumed(String producerId) {
     ProducersWrapper wrapper = mProducers.get(producerId);
     if (wrapper == null) {
-      return;
+      return this;
     }
     wrapper.mProducer.resume();
+    // New wrapper instance, so that observers comparing by reference see the change.
+    return withProducer(producerId, wrapper.copy());
   }
 
-  public void setProducerScore(String producerId, JSONArray score) {
+  public Producers setProducerScore(String producerId, @NonNull Score score) {
     ProducersWrapper wrapper = mProducers.get(producerId);
     if (wrapper == null) {
-      return;
+      return this;
     }
-    wrapper.mScore = score;
+    return withProducer(
+        producerId,
+        new ProducersWrapper(
+            wrapper.mProducer,
+            score,
+            wrapper.mScoreHistory.append(score.getScore()),
+            wrapper.mType));
   }
 
   public ProducersWrapper filter(@NonNull String kind) {
-    for (ProducersWrapper wrapper : mProducers.values()) {
-      if (wrapper.mProducer == null) {
-        continue;
-      }
-      if (wrapper.mProducer.getTrack() == null) {
-        continue;
-      }
-      if (kind.equals(wrapper.mProducer.getTrack().kind())) {
-        return wrapper;
-      }
-    }
-
-    return null;
+    String producerId = mByKind.get(kind);
+    return producerId != null ? mProducers.get(producerId) : null;
   }
 
-  public void clear() {
-    mProducers.clear();
+  public Producers clear() {
+    return mProducers.isEmpty() ? this : new Producers();
   }
 }
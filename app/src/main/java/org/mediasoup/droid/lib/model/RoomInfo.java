@@ -11,6 +11,7 @@ public class RoomInfo {
   private String mActiveSpeakerId;
   private String mStatsPeerId;
   private boolean mFaceDetection = false;
+  private JoinTimings mJoinTimings;
 
   public String getUrl() {
     return mUrl;
@@ -59,4 +60,12 @@ public class RoomInfo {
   public void setFaceDetection(boolean faceDetection) {
     this.mFaceDetection = faceDetection;
   }
+
+  public JoinTimings getJoinTimings() {
+    return mJoinTimings;
+  }
+
+  public void setJoinTimings(JoinTimings joinTimings) {
+    this.mJoinTimings = joinTimings;
+  }
 }
@@ -0,0 +1,103 @@
+package org.mediasoup.droid.lib.model;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+
+/**
+ * Immutable producer or consumer score, stored in primitives.
+ *
+ * <p>Every entry packs an ssrc and its score into a single long. Producer scores have one entry
+ * per encoding. Consumer scores have one entry per layer of the remote producer, with ssrc 0.
+ */
+@SuppressWarnings("WeakerAccess")
+public class Score {
+
+  // Scores go from 0 to 10.
+  public static final int MAX = 10;
+
+  private static final long SCORE_MASK = 0xff;
+
+  private final int mScore;
+  private final int mProducerScore;
+  private final long[] mEntries;
+
+  private Score(int score, int producerScore, @NonNull long[] entries) {
+    mScore = score;
+    mProducerScore = producerScore;
+    mEntries = entries;
+  }
+
+  /**
+   * Score of a local producer, from the per encoding {@code ssrcs} and {@code scores}. The overall
+   * score is the one of the best encoding.
+   */
+  @NonNull
+  public static Score ofProducer(@NonNull long[] ssrcs, @NonNull int[] scores, int count) {
+    long[] entries = new long[count];
+    int best = 0;
+    for (int i = 0; i < count; i++) {
+      entries[i] = pack(ssrcs[i], scores[i]);
+      best = Math.max(best, scores[i]);
+    }
+    return new Score(best, -1, entries);
+  }
+
+  /** Score of a consumer, {@code producerScores} has one score per layer of the producer. */
+  @NonNull
+  public static Score ofConsumer(
+      int score, int producerScore, @NonNull int[] producerScores, int count) {
+    long[] entries = new long[count];
+    for (int i = 0; i < count; i++) {
+      entries[i] = pack(0, producerScores[i]);
+    }
+    return new Score(score, producerScore, entries);
+  }
+
+  private static long pack(long ssrc, int score) {
+    return ((ssrc & 0xffffffffL) << 32) | (score & SCORE_MASK);
+  }
+
+  /** Overall score. */
+  public int getScore() {
+    return mScore;
+  }
+
+  /** Score of the remote producer, or -1 for local producers. */
+  public int getProducerScore() {
+    return mProducerScore;
+  }
+
+  public int getCount() {
+    return mEntries.length;
+  }
+
+  public long getSsrc(int index) {
+    return mEntries[index] >>> 32;
+  }
+
+  public int getScore(int index) {
+    return (int) (mEntries[index] & SCORE_MASK);
+  }
+
+  @NonNull
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append(String.format(Locale.US, "Score{score=%d", mScore));
+    if (mProducerScore >= 0) {
+      builder.append(", producerScore=").append(mProducerScore);
+    }
+    builder.append(", entries=[");
+    for (int i = 0; i < mEntries.length; i++) {
+      if (i > 0) {
+        builder.append(", ");
+      }
+      if (getSsrc(i) != 0) {
+        builder.append(getSsrc(i)).append(':');
+      }
+      builder.append(getScore(i));
+    }
+    return builder.append("]}").toString();
+  }
+}
@@ -0,0 +1,56 @@
+package org.mediasoup.droid.lib.model;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Immutable rolling history of the overall scores of a producer or consumer, oldest first.
+ *
+ * <p>Scores fit in a byte, so a full history costs {@link #CAPACITY} bytes. Appending copies the
+ * buffer, which keeps every published snapshot unchanged.
+ */
+@SuppressWarnings("WeakerAccess")
+public class ScoreHistory {
+
+  public static final int CAPACITY = 30;
+
+  public static final ScoreHistory EMPTY = new ScoreHistory(new byte[CAPACITY], 0, 0);
+
+  private final byte[] mBuffer;
+  // Index of the oldest score.
+  private final int mHead;
+  private final int mSize;
+
+  private ScoreHistory(@NonNull byte[] buffer, int head, int size) {
+    mBuffer = buffer;
+    mHead = head;
+    mSize = size;
+  }
+
+  @NonNull
+  public ScoreHistory append(int score) {
+    byte[] buffer = mBuffer.clone();
+    if (mSize < CAPACITY) {
+      buffer[(mHead + mSize) % CAPACITY] = (byte) score;
+      return new ScoreHistory(buffer, mHead, mSize + 1);
+    }
+    buffer[mHead] = (byte) score;
+    return new ScoreHistory(buffer, (mHead + 1) % CAPACITY, mSize);
+  }
+
+  public int size() {
+    return mSize;
+  }
+
+  /** Score at {@code index}, 0 being the oldest one. */
+  public int get(int index) {
+    if (index < 0 || index >= mSize) {
+      throw new IndexOutOfBoundsException("index: " + index + ", size: " + mSize);
+    }
+    return mBuffer[(mHead + index) % CAPACITY];
+  }
+
+  /** Most recent score, or -1 if empty. */
+  public int getLatest() {
+    return mSize > 0 ? get(mSize - 1) : -1;
+  }
+}
@@ -0,0 +1,62 @@
+package org.mediasoup.droid.lib.model;
+
+import androidx.annotation.NonNull;
+
+import org.webrtc.RtpParameters;
+
+import java.util.Locale;
+
+/** One spatial layer of the webcam producer, lowest layers first. */
+@SuppressWarnings("WeakerAccess")
+public class VideoEncoding {
+
+  private final double mScaleResolutionDownBy;
+  private final int mMaxBitrateBps;
+  // 0 to keep the capture framerate.
+  private final int mMaxFramerate;
+
+  public VideoEncoding(double scaleResolutionDownBy, int maxBitrateBps) {
+    this(scaleResolutionDownBy, maxBitrateBps, 0);
+  }
+
+  public VideoEncoding(double scaleResolutionDownBy, int maxBitrateBps, int maxFramerate) {
+    mScaleResolutionDownBy = scaleResolutionDownBy;
+    mMaxBitrateBps = maxBitrateBps;
+    mMaxFramerate = maxFramerate;
+  }
+
+  public double getScaleResolutionDownBy() {
+    return mScaleResolutionDownBy;
+  }
+
+  public int getMaxBitrateBps() {
+    return mMaxBitrateBps;
+  }
+
+  public int getMaxFramerate() {
+    return mMaxFramerate;
+  }
+
+  /** The encoding to hand to produce(), the rid is assigned by the mediasoup handler. */
+  @NonNull
+  public RtpParameters.Encoding toRtpEncoding() {
+    RtpParameters.Encoding encoding =
+        new RtpParameters.Encoding(null, true, mScaleResolutionDownBy);
+    encoding.maxBitrateBps = mMaxBitrateBps;
+    if (mMaxFramerate > 0) {
+      encoding.maxFramerate = mMaxFramerate;
+    }
+    return encoding;
+  }
+
+  @NonNull
+  @Override
+  public String toString() {
+    return String.format(
+        Locale.US,
+        "VideoEncoding{scaleResolutionDownBy=%.1f, maxBitrateBps=%d, maxFramerate=%d}",
+        mScaleResolutionDownBy,
+        mMaxBitrateBps,
+        mMaxFramerate);
+  }
+}
@@ -0,0 +1,130 @@
+package org.mediasoup.droid.lib.socket;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+import javax.net.SocketFactory;
+
+/**
+ * Plain socket factory counting the bytes that actually go through the network, that is after
+ * WebSocket compression and TLS.
+ */
+class CountingSocketFactory extends SocketFactory {
+
+  private final SignallingByteCounter mByteCounter;
+
+  CountingSocketFactory(SignallingByteCounter byteCounter) {
+    mByteCounter = byteCounter;
+  }
+
+  @Override
+  public Socket createSocket() {
+    return new CountingSocket();
+  }
+
+  // OkHttp always creates unconnected sockets, the other variants are there for completeness.
+  @Override
+  public Socket createSocket(String host, int port) throws IOException {
+    Socket socket = new CountingSocket();
+    socket.connect(new InetSocketAddress(host, port));
+    return socket;
+  }
+
+  @Override
+  public Socket createSocket(String host, int port, InetAddress localHost, int localPort)
+      throws IOException {
+    Socket socket = new CountingSocket();
+    socket.bind(new InetSocketAddress(localHost, localPort));
+    socket.connect(new InetSocketAddress(host, port));
+    return socket;
+  }
+
+  @Override
+  public Socket createSocket(InetAddress host, int port) throws IOException {
+    Socket socket = new CountingSocket();
+    socket.connect(new InetSocketAddress(host, port));
+    return socket;
+  }
+
+  @Override
+  public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort)
+      throws IOException {
+    Socket socket = new CountingSocket();
+    socket.bind(new InetSocketAddress(localAddress, localPort));
+    socket.connect(new InetSocketAddress(address, port));
+    return socket;
+  }
+
+  private class CountingSocket extends Socket {
+
+    private InputStream mInputStream;
+    private OutputStream mOutputStream;
+
+    @Override
+    public synchronized InputStream getInputStream() throws IOException {
+      if (mInputStream == null) {
+        mInputStream = new CountingInputStream(super.getInputStream());
+      }
+      return mInputStream;
+    }
+
+    @Override
+    public synchronized OutputStream getOutputStream() throws IOException {
+      if (mOutputStream == null) {
+        mOutputStream = new CountingOutputStream(super.getOutputStream());
+      }
+      return mOutputStream;
+    }
+  }
+
+  private class CountingInputStream extends FilterInputStream {
+
+    CountingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b != -1) {
+        mByteCounter.onWireIn(1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = super.read(b, off, len);
+      if (read > 0) {
+        mByteCounter.onWireIn(read);
+      }
+      return read;
+    }
+  }
+
+  private class CountingOutputStream extends FilterOutputStream {
+
+    CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      mByteCounter.onWireOut(1);
+    }
+
+    // FilterOutputStream would write byte by byte.
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      mByteCounter.onWireOut(len);
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package org.mediasoup.droid.lib.socket;
+
+import java.util.Random;
+
+/**
+ * Backoff with decorrelated jitter: each delay is drawn between the base delay and three times
+ * the previous one, capped.
+ *
+ * <p>Clients that lost their connection at the same time spread out instead of retrying in
+ * lockstep, while a single client still backs off roughly exponentially.
+ */
+@SuppressWarnings("WeakerAccess")
+public class DecorrelatedJitterScheduler implements ReconnectScheduler {
+
+  private final long mBaseDelayMs;
+  private final long mMaxDelayMs;
+  private final int mMaxAttempts;
+  private final Random mRandom;
+
+  private long mPreviousDelayMs;
+  private int mAttempts;
+
+  public DecorrelatedJitterScheduler(long baseDelayMs, long maxDelayMs, int maxAttempts) {
+    this(baseDelayMs, maxDelayMs, maxAttempts, new Random());
+  }
+
+  public DecorrelatedJitterScheduler(
+      long baseDelayMs, long maxDelayMs, int maxAttempts, Random random) {
+    mBaseDelayMs = baseDelayMs;
+    mMaxDelayMs = maxDelayMs;
+    mMaxAttempts = maxAttempts;
+    mRandom = random;
+    mPreviousDelayMs = baseDelayMs;
+  }
+
+  @Override
+  public synchronized long nextDelayMs() {
+    if (mAttempts >= mMaxAttempts) {
+      return -1;
+    }
+    mAttempts++;
+    long upper = Math.max(mBaseDelayMs + 1, mPreviousDelayMs * 3);
+    long delay = mBaseDelayMs + (long) (mRandom.nextDouble() * (upper - mBaseDelayMs));
+    mPreviousDelayMs = Math.min(mMaxDelayMs, delay);
+    return mPreviousDelayMs;
+  }
+
+  @Override
+  public synchronized void reset() {
+    mAttempts = 0;
+    mPreviousDelayMs = mBaseDelayMs;
+  }
+
+  @Override
+  public synchronized int getAttempts() {
+    return mAttempts;
+  }
+}
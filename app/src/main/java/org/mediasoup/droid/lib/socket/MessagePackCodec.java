@@ -0,0 +1,242 @@
+package org.mediasoup.droid.lib.socket;
+
+import androidx.annotation.NonNull;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * MessagePack encoding of protoo messages, used by the "protoo-msgpack" WebSocket sub-protocol.
+ *
+ * <p>Covers the JSON data model only: maps with string keys, arrays, strings, numbers, booleans
+ * and nil. Other MessagePack types (bin, ext) are rejected.
+ */
+@SuppressWarnings("WeakerAccess")
+public class MessagePackCodec {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private MessagePackCodec() {}
+
+  @NonNull
+  public static byte[] encode(@NonNull JSONObject message) {
+    Writer writer = new Writer();
+    writer.writeObject(message);
+    return writer.toByteArray();
+  }
+
+  /**
+   * Decode a whole message into a JSON tree. The known room notifications are better decoded
+   * straight from the frame by {@link NotificationDecoder#decode(byte[])}.
+   */
+  @NonNull
+  public static JSONObject decode(@NonNull byte[] bytes) throws IOException {
+    MessagePackReader reader = new MessagePackReader(bytes);
+    if (reader.peek() != MessagePackReader.Token.MAP) {
+      throw new IOException("protoo message must be a map");
+    }
+    Object value = readValue(reader);
+    if (!reader.isAtEnd()) {
+      throw new IOException("trailing bytes after protoo message");
+    }
+    return (JSONObject) value;
+  }
+
+  private static class Writer {
+
+    private byte[] mBuffer = new byte[256];
+    private int mSize;
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(mBuffer, mSize);
+    }
+
+    private void ensure(int extra) {
+      if (mSize + extra > mBuffer.length) {
+        mBuffer = Arrays.copyOf(mBuffer, Math.max(mBuffer.length * 2, mSize + extra));
+      }
+    }
+
+    private void put(int b) {
+      ensure(1);
+      mBuffer[mSize++] = (byte) b;
+    }
+
+    private void putShort(int value) {
+      ensure(2);
+      mBuffer[mSize++] = (byte) (value >> 8);
+      mBuffer[mSize++] = (byte) value;
+    }
+
+    private void putInt(int value) {
+      ensure(4);
+      mBuffer[mSize++] = (byte) (value >> 24);
+      mBuffer[mSize++] = (byte) (value >> 16);
+      mBuffer[mSize++] = (byte) (value >> 8);
+      mBuffer[mSize++] = (byte) value;
+    }
+
+    private void putLong(long value) {
+      putInt((int) (value >> 32));
+      putInt((int) value);
+    }
+
+    void writeValue(Object value) {
+      if (value == null || value == JSONObject.NULL) {
+        put(0xc0);
+      } else if (value instanceof Boolean) {
+        put((Boolean) value ? 0xc3 : 0xc2);
+      } else if (value instanceof String) {
+        writeString((String) value);
+      } else if (value instanceof Integer
+          || value instanceof Long
+          || value instanceof Short
+          || value instanceof Byte) {
+        writeLong(((Number) value).longValue());
+      } else if (value instanceof Number) {
+        double number = ((Number) value).doubleValue();
+        if (number == Math.rint(number) && Math.abs(number) < 1L << 53) {
+          writeLong((long) number);
+        } else {
+          put(0xcb);
+          putLong(Double.doubleToLongBits(number));
+        }
+      } else if (value instanceof JSONObject) {
+        writeObject((JSONObject) value);
+      } else if (value instanceof JSONArray) {
+        writeArray((JSONArray) value);
+      } else {
+        // Same as org.json, anything else is written as its string value.
+        writeString(value.toString());
+      }
+    }
+
+    void writeObject(JSONObject object) {
+      writeHeader(object.length(), 0x80, 0xde, 0xdf);
+      Iterator<String> keys = object.keys();
+      while (keys.hasNext()) {
+        String key = keys.next();
+        writeString(key);
+        writeValue(object.opt(key));
+      }
+    }
+
+    void writeArray(JSONArray array) {
+      writeHeader(array.length(), 0x90, 0xdc, 0xdd);
+      for (int i = 0; i < array.length(); i++) {
+        writeValue(array.opt(i));
+      }
+    }
+
+    private void writeHeader(int length, int fix, int type16, int type32) {
+      if (length < 16) {
+        put(fix | length);
+      } else if (length < 0x10000) {
+        put(type16);
+        putShort(length);
+      } else {
+        put(type32);
+        putInt(length);
+      }
+    }
+
+    void writeString(String value) {
+      byte[] bytes = value.getBytes(UTF_8);
+      int length = bytes.length;
+      if (length < 32) {
+        put(0xa0 | length);
+      } else if (length < 0x100) {
+        put(0xd9);
+        put(length);
+      } else if (length < 0x10000) {
+        put(0xda);
+        putShort(length);
+      } else {
+        put(0xdb);
+        putInt(length);
+      }
+      ensure(length);
+      System.arraycopy(bytes, 0, mBuffer, mSize, length);
+      mSize += length;
+    }
+
+    void writeLong(long value) {
+      if (value >= 0) {
+        if (value < 0x80) {
+          put((int) value);
+        } else if (value < 0x100) {
+          put(0xcc);
+          put((int) value);
+        } else if (value < 0x10000) {
+          put(0xcd);
+          putShort((int) value);
+        } else if (value < 0x100000000L) {
+          put(0xce);
+          putInt((int) value);
+        } else {
+          put(0xcf);
+          putLong(value);
+        }
+      } else if (value >= -32) {
+        put((int) value);
+      } else if (value >= Byte.MIN_VALUE) {
+        put(0xd0);
+        put((int) value);
+      } else if (value >= Short.MIN_VALUE) {
+        put(0xd1);
+        putShort((int) value);
+      } else if (value >= Integer.MIN_VALUE) {
+        put(0xd2);
+        putInt((int) value);
+      } else {
+        put(0xd3);
+        putLong(value);
+      }
+    }
+  }
+
+  private static Object readValue(MessagePackReader reader) throws IOException {
+    switch (reader.peek()) {
+      case MAP:
+        {
+          JSONObject object = new JSONObject();
+          reader.beginObject();
+          while (reader.hasNext()) {
+            String key = reader.nextName();
+            try {
+              object.put(key, readValue(reader));
+            } catch (JSONException e) {
+              throw new IOException(e.getMessage());
+            }
+          }
+          reader.endObject();
+          return object;
+        }
+      case ARRAY:
+        {
+          JSONArray array = new JSONArray();
+          reader.beginArray();
+          while (reader.hasNext()) {
+            array.put(readValue(reader));
+          }
+          reader.endArray();
+          return array;
+        }
+      case STRING:
+        return reader.nextString();
+      case BOOLEAN:
+        return reader.nextBoolean();
+      case NULL:
+        reader.nextNull();
+        return JSONObject.NULL;
+      default:
+        return reader.nextNumber();
+    }
+  }
+}
@@ -0,0 +1,364 @@
+package org.mediasoup.droid.lib.socket;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Pull reader over one MessagePack encoded message, read in place without building a tree.
+ *
+ * <p>Covers the JSON data model only: maps with string keys, arrays, strings, numbers, booleans
+ * and nil. Other MessagePack types (bin, ext) are rejected.
+ */
+final class MessagePackReader implements PullReader {
+
+  enum Token {
+    MAP,
+    ARRAY,
+    STRING,
+    NUMBER,
+    BOOLEAN,
+    NULL,
+  }
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final byte[] mBytes;
+  private int mPosition;
+  // Values left in the enclosing maps and arrays, innermost last. A map entry is two values.
+  private long[] mRemaining = new long[8];
+  private int mDepth;
+
+  MessagePackReader(byte[] bytes) {
+    mBytes = bytes;
+  }
+
+  /** Whether the whole buffer has been read. */
+  boolean isAtEnd() {
+    return mDepth == 0 && mPosition == mBytes.length;
+  }
+
+  Token peek() throws IOException {
+    int type = peekType();
+    if (type <= 0x7f || type >= 0xe0 || (type >= 0xca && type <= 0xd3)) {
+      return Token.NUMBER;
+    }
+    if ((type & 0xf0) == 0x80 || type == 0xde || type == 0xdf) {
+      return Token.MAP;
+    }
+    if ((type & 0xf0) == 0x90 || type == 0xdc || type == 0xdd) {
+      return Token.ARRAY;
+    }
+    if ((type & 0xe0) == 0xa0 || (type >= 0xd9 && type <= 0xdb)) {
+      return Token.STRING;
+    }
+    switch (type) {
+      case 0xc0:
+        return Token.NULL;
+      case 0xc2:
+      case 0xc3:
+        return Token.BOOLEAN;
+      default:
+        throw unsupported(type);
+    }
+  }
+
+  @Override
+  public void beginObject() throws IOException {
+    startValue();
+    int type = u8();
+    long length;
+    if ((type & 0xf0) == 0x80) {
+      length = type & 0x0f;
+    } else if (type == 0xde) {
+      length = u16();
+    } else if (type == 0xdf) {
+      length = length(u32());
+    } else {
+      throw new IOException("expected a MessagePack map, got 0x" + Integer.toHexString(type));
+    }
+    push(length * 2);
+  }
+
+  @Override
+  public void endObject() throws IOException {
+    pop();
+  }
+
+  @Override
+  public void beginArray() throws IOException {
+    startValue();
+    int type = u8();
+    long length;
+    if ((type & 0xf0) == 0x90) {
+      length = type & 0x0f;
+    } else if (type == 0xdc) {
+      length = u16();
+    } else if (type == 0xdd) {
+      length = length(u32());
+    } else {
+      throw new IOException("expected a MessagePack array, got 0x" + Integer.toHexString(type));
+    }
+    push(length);
+  }
+
+  @Override
+  public void endArray() throws IOException {
+    pop();
+  }
+
+  @Override
+  public boolean hasNext() {
+    return mDepth > 0 && mRemaining[mDepth - 1] > 0;
+  }
+
+  @Override
+  public String nextName() throws IOException {
+    return nextString();
+  }
+
+  @Override
+  public String nextString() throws IOException {
+    startValue();
+    int type = u8();
+    int length;
+    if ((type & 0xe0) == 0xa0) {
+      length = type & 0x1f;
+    } else if (type == 0xd9) {
+      length = u8();
+    } else if (type == 0xda) {
+      length = u16();
+    } else if (type == 0xdb) {
+      length = length(u32());
+    } else {
+      throw new IOException("expected a MessagePack string, got 0x" + Integer.toHexString(type));
+    }
+    if (mPosition + length > mBytes.length) {
+      throw new IOException("unexpected end of MessagePack data");
+    }
+    String value = new String(mBytes, mPosition, length, UTF_8);
+    mPosition += length;
+    return value;
+  }
+
+  @Override
+  public boolean nextBoolean() throws IOException {
+    startValue();
+    int type = u8();
+    if (type == 0xc2 || type == 0xc3) {
+      return type == 0xc3;
+    }
+    throw new IOException("expected a MessagePack boolean, got 0x" + Integer.toHexString(type));
+  }
+
+  @Override
+  public int nextInt() throws IOException {
+    long value = nextLong();
+    if (value != (int) value) {
+      throw new IOException("MessagePack integer out of range " + value);
+    }
+    return (int) value;
+  }
+
+  @Override
+  public long nextLong() throws IOException {
+    Object value = nextNumber();
+    if (value instanceof Double) {
+      double number = (Double) value;
+      if (number != Math.rint(number)) {
+        throw new IOException("expected a MessagePack integer, got " + number);
+      }
+      return (long) number;
+    }
+    return ((Number) value).longValue();
+  }
+
+  /** Integer when it fits, else Long, or Double for floats, as org.json would have parsed it. */
+  Object nextNumber() throws IOException {
+    startValue();
+    int type = u8();
+    if (type <= 0x7f) {
+      return type;
+    }
+    if (type >= 0xe0) {
+      return (int) (byte) type;
+    }
+    switch (type) {
+      case 0xca:
+        return (double) Float.intBitsToFloat((int) u32());
+      case 0xcb:
+        return Double.longBitsToDouble(i64());
+      case 0xcc:
+        return u8();
+      case 0xcd:
+        return u16();
+      case 0xce:
+        return number(u32());
+      case 0xcf:
+      case 0xd3:
+        return number(i64());
+      case 0xd0:
+        return (int) (byte) u8();
+      case 0xd1:
+        return (int) (short) u16();
+      case 0xd2:
+        return (int) u32();
+      default:
+        throw new IOException("expected a MessagePack number, got 0x" + Integer.toHexString(type));
+    }
+  }
+
+  @Override
+  public boolean peekNull() throws IOException {
+    return peekType() == 0xc0;
+  }
+
+  @Override
+  public void nextNull() throws IOException {
+    startValue();
+    int type = u8();
+    if (type != 0xc0) {
+      throw new IOException("expected MessagePack nil, got 0x" + Integer.toHexString(type));
+    }
+  }
+
+  @Override
+  public void skipValue() throws IOException {
+    startValue();
+    skip(1);
+  }
+
+  // Skip count values, nested ones included, without touching mRemaining.
+  private void skip(long count) throws IOException {
+    while (count-- > 0) {
+      int type = u8();
+      if (type <= 0x7f || type >= 0xe0 || type == 0xc0 || type == 0xc2 || type == 0xc3) {
+        continue;
+      }
+      if ((type & 0xf0) == 0x80) {
+        count += (type & 0x0f) * 2;
+      } else if ((type & 0xf0) == 0x90) {
+        count += type & 0x0f;
+      } else if ((type & 0xe0) == 0xa0) {
+        advance(type & 0x1f);
+      } else {
+        switch (type) {
+          case 0xcc:
+          case 0xd0:
+            advance(1);
+            break;
+          case 0xcd:
+          case 0xd1:
+            advance(2);
+            break;
+          case 0xca:
+          case 0xce:
+          case 0xd2:
+            advance(4);
+            break;
+          case 0xcb:
+          case 0xcf:
+          case 0xd3:
+            advance(8);
+            break;
+          case 0xd9:
+            advance(u8());
+            break;
+          case 0xda:
+            advance(u16());
+            break;
+          case 0xdb:
+            advance(length(u32()));
+            break;
+          case 0xdc:
+            count += u16();
+            break;
+          case 0xdd:
+            count += length(u32());
+            break;
+          case 0xde:
+            count += u16() * 2L;
+            break;
+          case 0xdf:
+            count += length(u32()) * 2L;
+            break;
+          default:
+            throw unsupported(type);
+        }
+      }
+    }
+  }
+
+  // Account for one value of the enclosing map or array.
+  private void startValue() throws IOException {
+    if (mDepth > 0) {
+      if (mRemaining[mDepth - 1] == 0) {
+        throw new IOException("no more values in MessagePack container");
+      }
+      mRemaining[mDepth - 1]--;
+    }
+  }
+
+  private void push(long length) {
+    if (mDepth == mRemaining.length) {
+      mRemaining = Arrays.copyOf(mRemaining, mDepth * 2);
+    }
+    mRemaining[mDepth++] = length;
+  }
+
+  private void pop() throws IOException {
+    if (mDepth == 0 || mRemaining[mDepth - 1] != 0) {
+      throw new IOException("MessagePack container not fully read");
+    }
+    mDepth--;
+  }
+
+  private int peekType() throws IOException {
+    if (mPosition >= mBytes.length) {
+      throw new IOException("unexpected end of MessagePack data");
+    }
+    return mBytes[mPosition] & 0xff;
+  }
+
+  private int u8() throws IOException {
+    if (mPosition >= mBytes.length) {
+      throw new IOException("unexpected end of MessagePack data");
+    }
+    return mBytes[mPosition++] & 0xff;
+  }
+
+  private int u16() throws IOException {
+    return (u8() << 8) | u8();
+  }
+
+  private long u32() throws IOException {
+    return ((long) u16() << 16) | u16();
+  }
+
+  private long i64() throws IOException {
+    return (u32() << 32) | u32();
+  }
+
+  private void advance(int length) throws IOException {
+    if (mPosition + length > mBytes.length) {
+      throw new IOException("unexpected end of MessagePack data");
+    }
+    mPosition += length;
+  }
+
+  // Every element takes at least one byte, so a longer length is necessarily invalid.
+  private int length(long length) throws IOException {
+    if (length > mBytes.length) {
+      throw new IOException("invalid MessagePack length " + length);
+    }
+    return (int) length;
+  }
+
+  private static Object number(long value) {
+    return value == (int) value ? (Object) (int) value : (Object) value;
+  }
+
+  private static IOException unsupported(int type) {
+    return new IOException("unsupported MessagePack type 0x" + Integer.toHexString(type));
+  }
+}
@@ -0,0 +1,438 @@
+package org.mediasoup.droid.lib.socket;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.mediasoup.droid.Logger;
+import org.mediasoup.droid.lib.model.Score;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+/**
+ * Streaming decoder for the protoo notifications of the room protocol.
+ *
+ * <p>Known methods are decoded field by field into {@link RoomNotification} objects, from JSON
+ * text or from a MessagePack frame alike. Anything else (requests, responses, unknown methods,
+ * unexpected layouts) makes {@link #decode(String)} return null so that the caller can fall back
+ * to the generic protoo parsing.
+ */
+@SuppressWarnings("WeakerAccess")
+public class NotificationDecoder {
+
+  private static final String TAG = "NotificationDecoder";
+
+  private NotificationDecoder() {}
+
+  /** Decode a whole protoo message, or return null if it is not a known notification. */
+  @Nullable
+  public static RoomNotification decode(@NonNull String text) {
+    try (JsonReader reader = new JsonReader(new StringReader(text))) {
+      return decodeMessage(new JsonPullReader(reader));
+    } catch (IOException | RuntimeException e) {
+      Logger.w(TAG, "decode() failed, falling back to protoo parsing: " + e.getMessage());
+      return null;
+    }
+  }
+
+  /** Same as {@link #decode(String)} for a MessagePack frame, read in place. */
+  @Nullable
+  public static RoomNotification decode(@NonNull byte[] frame) {
+    try {
+      MessagePackReader reader = new MessagePackReader(frame);
+      RoomNotification notification = decodeMessage(reader);
+      return notification != null && reader.isAtEnd() ? notification : null;
+    } catch (IOException | RuntimeException e) {
+      Logger.w(TAG, "decode() failed, falling back to protoo parsing: " + e.getMessage());
+      return null;
+    }
+  }
+
+  @Nullable
+  private static RoomNotification decodeMessage(@NonNull PullReader reader) throws IOException {
+    boolean notification = false;
+    String method = null;
+    RoomNotification result = null;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "notification":
+          notification = reader.nextBoolean();
+          if (!notification) {
+            return null;
+          }
+          break;
+        case "method":
+          method = reader.nextString();
+          if (!isKnown(method)) {
+            return null;
+          }
+          break;
+        case "data":
+          // protoo writes the method before the data, the other way round is not supported.
+          if (method == null) {
+            return null;
+          }
+          result = decodeData(method, reader);
+          if (result == null) {
+            return null;
+          }
+          break;
+        case "request":
+        case "response":
+          return null;
+        default:
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return notification ? result : null;
+  }
+
+  /** Decode the data of a notification whose method has already been read. */
+  @Nullable
+  public static RoomNotification decodeData(@NonNull String method, @NonNull String data) {
+    try (JsonReader reader = new JsonReader(new StringReader(data))) {
+      return decodeData(method, new JsonPullReader(reader));
+    } catch (IOException | RuntimeException e) {
+      Logger.w(TAG, "decodeData() failed: " + e.getMessage());
+      return null;
+    }
+  }
+
+  public static boolean isKnown(@NonNull String method) {
+    switch (method) {
+      case RoomNotification.PRODUCER_SCORE:
+      case RoomNotification.PEER_CLOSED:
+      case RoomNotification.PEER_DISPLAY_NAME_CHANGED:
+      case RoomNotification.CONSUMER_CLOSED:
+      case RoomNotification.CONSUMER_PAUSED:
+      case RoomNotification.CONSUMER_RESUMED:
+      case RoomNotification.CONSUMER_LAYERS_CHANGED:
+      case RoomNotification.CONSUMER_SCORE:
+      case RoomNotification.DATA_CONSUMER_CLOSED:
+      case RoomNotification.ACTIVE_SPEAKER:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  @Nullable
+  private static RoomNotification decodeData(@NonNull String method, @NonNull PullReader reader)
+      throws IOException {
+    switch (method) {
+      case RoomNotification.PRODUCER_SCORE:
+        return decodeProducerScore(reader);
+      case RoomNotification.CONSUMER_SCORE:
+        return decodeConsumerScore(reader);
+      case RoomNotification.CONSUMER_LAYERS_CHANGED:
+        return decodeConsumerLayersChanged(reader);
+      case RoomNotification.PEER_DISPLAY_NAME_CHANGED:
+        return decodePeerDisplayNameChanged(reader);
+      case RoomNotification.CONSUMER_CLOSED:
+      case RoomNotification.CONSUMER_PAUSED:
+      case RoomNotification.CONSUMER_RESUMED:
+        {
+          String consumerId = readStringField(reader, "consumerId");
+          return consumerId != null
+              ? new RoomNotification.ConsumerStateChanged(method, consumerId)
+              : null;
+        }
+      case RoomNotification.DATA_CONSUMER_CLOSED:
+        {
+          String dataConsumerId = readStringField(reader, "dataConsumerId");
+          return dataConsumerId != null
+              ? new RoomNotification.ConsumerStateChanged(method, dataConsumerId)
+              : null;
+        }
+      case RoomNotification.PEER_CLOSED:
+        {
+          String peerId = readStringField(reader, "peerId");
+          return peerId != null ? new RoomNotification.PeerChanged(method, peerId) : null;
+        }
+      case RoomNotification.ACTIVE_SPEAKER:
+        // Null peer id means nobody is speaking.
+        return new RoomNotification.PeerChanged(method, readStringField(reader, "peerId"));
+      default:
+        reader.skipValue();
+        return null;
+    }
+  }
+
+  // {"producerId":"bdc2e83e-5294-451e-a986-a29c7d591d73","score":[{"score":10,"ssrc":196184265}]}
+  @Nullable
+  private static RoomNotification decodeProducerScore(PullReader reader) throws IOException {
+    String producerId = null;
+    int count = 0;
+    int[] scores = new int[1];
+    long[] ssrcs = new long[1];
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "producerId":
+          producerId = nextStringOrNull(reader);
+          break;
+        case "score":
+          reader.beginArray();
+          while (reader.hasNext()) {
+            if (count == scores.length) {
+              scores = Arrays.copyOf(scores, count * 2);
+              ssrcs = Arrays.copyOf(ssrcs, count * 2);
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+              switch (reader.nextName()) {
+                case "score":
+                  scores[count] = reader.nextInt();
+                  break;
+                case "ssrc":
+                  ssrcs[count] = reader.nextLong();
+                  break;
+                default:
+                  reader.skipValue();
+              }
+            }
+            reader.endObject();
+            count++;
+          }
+          reader.endArray();
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+    if (producerId == null) {
+      return null;
+    }
+    return new RoomNotification.ProducerScore(producerId, Score.ofProducer(ssrcs, scores, count));
+  }
+
+  // {"consumerId":"...","score":{"score":10,"producerScore":10,"producerScores":[10,0,0]}}
+  @Nullable
+  private static RoomNotification decodeConsumerScore(PullReader reader) throws IOException {
+    String consumerId = null;
+    int score = 0;
+    int producerScore = 0;
+    int count = 0;
+    int[] producerScores = new int[3];
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "consumerId":
+          consumerId = nextStringOrNull(reader);
+          break;
+        case "score":
+          reader.beginObject();
+          while (reader.hasNext()) {
+            switch (reader.nextName()) {
+              case "score":
+                score = reader.nextInt();
+                break;
+              case "producerScore":
+                producerScore = reader.nextInt();
+                break;
+              case "producerScores":
+                reader.beginArray();
+                while (reader.hasNext()) {
+                  if (count == producerScores.length) {
+                    producerScores = Arrays.copyOf(producerScores, count * 2);
+                  }
+                  producerScores[count++] = reader.nextInt();
+                }
+                reader.endArray();
+                break;
+              default:
+                reader.skipValue();
+            }
+          }
+          reader.endObject();
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+    if (consumerId == null) {
+      return null;
+    }
+    return new RoomNotification.ConsumerScore(
+        consumerId, Score.ofConsumer(score, producerScore, producerScores, count));
+  }
+
+  // {"consumerId":"...","spatialLayer":2,"temporalLayer":2}, layers are null when paused.
+  @Nullable
+  private static RoomNotification decodeConsumerLayersChanged(PullReader reader)
+      throws IOException {
+    String consumerId = null;
+    int spatialLayer = -1;
+    int temporalLayer = -1;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "consumerId":
+          consumerId = nextStringOrNull(reader);
+          break;
+        case "spatialLayer":
+          spatialLayer = nextIntOrDefault(reader, -1);
+          break;
+        case "temporalLayer":
+          temporalLayer = nextIntOrDefault(reader, -1);
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+    if (consumerId == null) {
+      return null;
+    }
+    return new RoomNotification.ConsumerLayersChanged(consumerId, spatialLayer, temporalLayer);
+  }
+
+  @Nullable
+  private static RoomNotification decodePeerDisplayNameChanged(PullReader reader)
+      throws IOException {
+    String peerId = null;
+    String displayName = "";
+    String oldDisplayName = "";
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "peerId":
+          peerId = nextStringOrNull(reader);
+          break;
+        case "displayName":
+          displayName = nextStringOrDefault(reader, "");
+          break;
+        case "oldDisplayName":
+          oldDisplayName = nextStringOrDefault(reader, "");
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+    if (peerId == null) {
+      return null;
+    }
+    return new RoomNotification.PeerDisplayNameChanged(peerId, displayName, oldDisplayName);
+  }
+
+  // Reads an object and returns the string value of its field {@code name}.
+  @Nullable
+  private static String readStringField(PullReader reader, String name) throws IOException {
+    String value = null;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      if (name.equals(reader.nextName())) {
+        value = nextStringOrNull(reader);
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return value;
+  }
+
+  @Nullable
+  private static String nextStringOrNull(PullReader reader) throws IOException {
+    return nextStringOrDefault(reader, null);
+  }
+
+  private static String nextStringOrDefault(PullReader reader, String defaultValue)
+      throws IOException {
+    if (reader.peekNull()) {
+      reader.nextNull();
+      return defaultValue;
+    }
+    return reader.nextString();
+  }
+
+  private static int nextIntOrDefault(PullReader reader, int defaultValue) throws IOException {
+    if (reader.peekNull()) {
+      reader.nextNull();
+      return defaultValue;
+    }
+    return reader.nextInt();
+  }
+
+  private static class JsonPullReader implements PullReader {
+
+    private final JsonReader mReader;
+
+    JsonPullReader(JsonReader reader) {
+      mReader = reader;
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+      mReader.beginObject();
+    }
+
+    @Override
+    public void endObject() throws IOException {
+      mReader.endObject();
+    }
+
+    @Override
+    public void beginArray() throws IOException {
+      mReader.beginArray();
+    }
+
+    @Override
+    public void endArray() throws IOException {
+      mReader.endArray();
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+      return mReader.hasNext();
+    }
+
+    @Override
+    public String nextName() throws IOException {
+      return mReader.nextName();
+    }
+
+    @Override
+    public String nextString() throws IOException {
+      return mReader.nextString();
+    }
+
+    @Override
+    public boolean nextBoolean() throws IOException {
+      return mReader.nextBoolean();
+    }
+
+    @Override
+    public int nextInt() throws IOException {
+      return mReader.nextInt();
+    }
+
+    @Override
+    public long nextLong() throws IOException {
+      return mReader.nextLong();
+    }
+
+    @Override
+    public boolean peekNull() throws IOException {
+      return mReader.peek() == JsonToken.NULL;
+    }
+
+    @Override
+    public void nextNull() throws IOException {
+      mReader.nextNull();
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+      mReader.skipValue();
+    }
+  }
+}
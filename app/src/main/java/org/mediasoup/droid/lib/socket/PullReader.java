@@ -0,0 +1,38 @@
+package org.mediasoup.droid.lib.socket;
+
+import java.io.IOException;
+
+/**
+ * The calls of {@link android.util.JsonReader} that {@link NotificationDecoder} uses, so that the
+ * same decoding runs over JSON text and over MessagePack frames.
+ */
+interface PullReader {
+
+  void beginObject() throws IOException;
+
+  void endObject() throws IOException;
+
+  void beginArray() throws IOException;
+
+  void endArray() throws IOException;
+
+  /** Whether the current object or array has more elements. */
+  boolean hasNext() throws IOException;
+
+  String nextName() throws IOException;
+
+  String nextString() throws IOException;
+
+  boolean nextBoolean() throws IOException;
+
+  int nextInt() throws IOException;
+
+  long nextLong() throws IOException;
+
+  /** Whether the next value is null, without consuming it. */
+  boolean peekNull() throws IOException;
+
+  void nextNull() throws IOException;
+
+  void skipValue() throws IOException;
+}
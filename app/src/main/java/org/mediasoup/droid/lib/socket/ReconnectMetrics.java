@@ -0,0 +1,89 @@
+package org.mediasoup.droid.lib.socket;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/** Time-to-reconnect statistics of {@link WebSocketTransport}. */
+@SuppressWarnings("WeakerAccess")
+public class ReconnectMetrics {
+
+  // Most recent time-to-reconnect samples kept for the percentiles.
+  private static final int MAX_SAMPLES = 64;
+
+  private final long[] mSamples = new long[MAX_SAMPLES];
+  private int mSampleCount;
+  private int mNextSample;
+  private long mReconnects;
+  private long mAttempts;
+  private long mFastPathAttempts;
+  private long mGiveUps;
+
+  synchronized void onReconnected(long timeToReconnectMs) {
+    mSamples[mNextSample] = timeToReconnectMs;
+    mNextSample = (mNextSample + 1) % MAX_SAMPLES;
+    mSampleCount = Math.min(mSampleCount + 1, MAX_SAMPLES);
+    mReconnects++;
+  }
+
+  synchronized void onAttempt(boolean fastPath) {
+    mAttempts++;
+    if (fastPath) {
+      mFastPathAttempts++;
+    }
+  }
+
+  synchronized void onGiveUp() {
+    mGiveUps++;
+  }
+
+  public synchronized long getReconnects() {
+    return mReconnects;
+  }
+
+  public synchronized long getAttempts() {
+    return mAttempts;
+  }
+
+  /** Attempts started right away because a network became available. */
+  public synchronized long getFastPathAttempts() {
+    return mFastPathAttempts;
+  }
+
+  public synchronized long getGiveUps() {
+    return mGiveUps;
+  }
+
+  /**
+   * Time-to-reconnect percentile over the recent reconnections, in milliseconds, or -1 if there
+   * was none.
+   *
+   * @param percentile between 0 and 100.
+   */
+  public synchronized long getTimeToReconnectMs(double percentile) {
+    if (mSampleCount == 0) {
+      return -1;
+    }
+    long[] sorted = Arrays.copyOf(mSamples, mSampleCount);
+    Arrays.sort(sorted);
+    int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+  }
+
+  @NonNull
+  @Override
+  public String toString() {
+    return String.format(
+        Locale.US,
+        "ReconnectMetrics{reconnects=%d, attempts=%d, fastPathAttempts=%d, giveUps=%d,"
+            + " p50=%d, p90=%d, p99=%d}",
+        getReconnects(),
+        getAttempts(),
+        getFastPathAttempts(),
+        getGiveUps(),
+        getTimeToReconnectMs(50),
+        getTimeToReconnectMs(90),
+        getTimeToReconnectMs(99));
+  }
+}
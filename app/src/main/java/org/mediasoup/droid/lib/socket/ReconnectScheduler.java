@@ -0,0 +1,14 @@
+package org.mediasoup.droid.lib.socket;
+
+/** Decides when {@link WebSocketTransport} retries after losing its connection. */
+public interface ReconnectScheduler {
+
+  /** Delay before the next attempt in milliseconds, or -1 to give up. Counts as an attempt. */
+  long nextDelayMs();
+
+  /** The connection is back, start over on the next failure. */
+  void reset();
+
+  /** Attempts made since the last {@link #reset()}. */
+  int getAttempts();
+}
@@ -0,0 +1,167 @@
+package org.mediasoup.droid.lib.socket;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.mediasoup.droid.lib.model.Score;
+
+/**
+ * Typed protoo notification of the room protocol.
+ *
+ * <p>Built by {@link NotificationDecoder} straight from the socket text or MessagePack frame,
+ * without an intermediate {@link org.json.JSONObject} tree.
+ */
+@SuppressWarnings("WeakerAccess")
+public abstract class RoomNotification {
+
+  public static final String PRODUCER_SCORE = "producerScore";
+  public static final String PEER_CLOSED = "peerClosed";
+  public static final String PEER_DISPLAY_NAME_CHANGED = "peerDisplayNameChanged";
+  public static final String CONSUMER_CLOSED = "consumerClosed";
+  public static final String CONSUMER_PAUSED = "consumerPaused";
+  public static final String CONSUMER_RESUMED = "consumerResumed";
+  public static final String CONSUMER_LAYERS_CHANGED = "consumerLayersChanged";
+  public static final String CONSUMER_SCORE = "consumerScore";
+  public static final String DATA_CONSUMER_CLOSED = "dataConsumerClosed";
+  public static final String ACTIVE_SPEAKER = "activeSpeaker";
+
+  @NonNull private final String mMethod;
+
+  RoomNotification(@NonNull String method) {
+    mMethod = method;
+  }
+
+  @NonNull
+  public String getMethod() {
+    return mMethod;
+  }
+
+  /** producerScore, one entry per encoding of the producer. */
+  public static class ProducerScore extends RoomNotification {
+
+    private final String mProducerId;
+    @NonNull private final Score mScore;
+
+    ProducerScore(String producerId, @NonNull Score score) {
+      super(PRODUCER_SCORE);
+      mProducerId = producerId;
+      mScore = score;
+    }
+
+    public String getProducerId() {
+      return mProducerId;
+    }
+
+    @NonNull
+    public Score getScore() {
+      return mScore;
+    }
+  }
+
+  /** consumerScore. */
+  public static class ConsumerScore extends RoomNotification {
+
+    private final String mConsumerId;
+    @NonNull private final Score mScore;
+
+    ConsumerScore(String consumerId, @NonNull Score score) {
+      super(CONSUMER_SCORE);
+      mConsumerId = consumerId;
+      mScore = score;
+    }
+
+    public String getConsumerId() {
+      return mConsumerId;
+    }
+
+    @NonNull
+    public Score getScore() {
+      return mScore;
+    }
+  }
+
+  /** consumerLayersChanged, layers are -1 when the consumer receives none. */
+  public static class ConsumerLayersChanged extends RoomNotification {
+
+    private final String mConsumerId;
+    private final int mSpatialLayer;
+    private final int mTemporalLayer;
+
+    ConsumerLayersChanged(String consumerId, int spatialLayer, int temporalLayer) {
+      super(CONSUMER_LAYERS_CHANGED);
+      mConsumerId = consumerId;
+      mSpatialLayer = spatialLayer;
+      mTemporalLayer = temporalLayer;
+    }
+
+    public String getConsumerId() {
+      return mConsumerId;
+    }
+
+    public int getSpatialLayer() {
+      return mSpatialLayer;
+    }
+
+    public int getTemporalLayer() {
+      return mTemporalLayer;
+    }
+  }
+
+  /** consumerClosed, consumerPaused, consumerResumed and dataConsumerClosed. */
+  public static class ConsumerStateChanged extends RoomNotification {
+
+    private final String mConsumerId;
+
+    ConsumerStateChanged(@NonNull String method, String consumerId) {
+      super(method);
+      mConsumerId = consumerId;
+    }
+
+    public String getConsumerId() {
+      return mConsumerId;
+    }
+  }
+
+  /** peerClosed and activeSpeaker. The peer id of activeSpeaker is null on silence. */
+  public static class PeerChanged extends RoomNotification {
+
+    @Nullable private final String mPeerId;
+
+    PeerChanged(@NonNull String method, @Nullable String peerId) {
+      super(method);
+      mPeerId = peerId;
+    }
+
+    @Nullable
+    public String getPeerId() {
+      return mPeerId;
+    }
+  }
+
+  /** peerDisplayNameChanged. */
+  public static class PeerDisplayNameChanged extends RoomNotification {
+
+    private final String mPeerId;
+    private final String mDisplayName;
+    private final String mOldDisplayName;
+
+    PeerDisplayNameChanged(String peerId, String displayName, String oldDisplayName) {
+      super(PEER_DISPLAY_NAME_CHANGED);
+      mPeerId = peerId;
+      mDisplayName = displayName;
+      mOldDisplayName = oldDisplayName;
+    }
+
+    public String getPeerId() {
+      return mPeerId;
+    }
+
+    public String getDisplayName() {
+      return mDisplayName;
+    }
+
+    public String getOldDisplayName() {
+      return mOldDisplayName;
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package org.mediasoup.droid.lib.socket;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Counters of the outbound queue of {@link WebSocketTransport}. */
+@SuppressWarnings("WeakerAccess")
+public class SendQueueMetrics {
+
+  private final AtomicInteger mDepth = new AtomicInteger();
+  private final AtomicInteger mMaxDepth = new AtomicInteger();
+  // Messages written to the socket.
+  private final AtomicLong mSent = new AtomicLong();
+  // Messages refused because the queue was full.
+  private final AtomicLong mRejected = new AtomicLong();
+  // Messages dequeued while there was no open socket, or refused by the socket.
+  private final AtomicLong mDropped = new AtomicLong();
+  // Socket thread wakeups, each one drains every queued message.
+  private final AtomicLong mDrains = new AtomicLong();
+  // Time spent in the queue, in milliseconds.
+  private final AtomicLong mTotalLatency = new AtomicLong();
+  private final AtomicLong mMaxLatency = new AtomicLong();
+
+  void onEnqueued(int depth) {
+    mDepth.set(depth);
+    int max;
+    do {
+      max = mMaxDepth.get();
+    } while (depth > max && !mMaxDepth.compareAndSet(max, depth));
+  }
+
+  void onRejected() {
+    mRejected.incrementAndGet();
+  }
+
+  void onDrained(int depth) {
+    mDrains.incrementAndGet();
+    mDepth.set(depth);
+  }
+
+  void onDequeued(long latencyMs, boolean sent) {
+    if (sent) {
+      mSent.incrementAndGet();
+    } else {
+      mDropped.incrementAndGet();
+    }
+    mTotalLatency.addAndGet(latencyMs);
+    long max;
+    do {
+      max = mMaxLatency.get();
+    } while (latencyMs > max && !mMaxLatency.compareAndSet(max, latencyMs));
+  }
+
+  public int getDepth() {
+    return mDepth.get();
+  }
+
+  public int getMaxDepth() {
+    return mMaxDepth.get();
+  }
+
+  public long getSent() {
+    return mSent.get();
+  }
+
+  public long getRejected() {
+    return mRejected.get();
+  }
+
+  public long getDropped() {
+    return mDropped.get();
+  }
+
+  public long getDrains() {
+    return mDrains.get();
+  }
+
+  public double getAverageLatencyMs() {
+    long dequeued = mSent.get() + mDropped.get();
+    return dequeued == 0 ? 0 : (double) mTotalLatency.get() / dequeued;
+  }
+
+  public long getMaxLatencyMs() {
+    return mMaxLatency.get();
+  }
+
+  /** Average number of messages written per socket thread wakeup. */
+  public double getMessagesPerDrain() {
+    long drains = mDrains.get();
+    return drains == 0 ? 0 : (double) (mSent.get() + mDropped.get()) / drains;
+  }
+
+  @NonNull
+  @Override
+  public String toString() {
+    return String.format(
+        Locale.US,
+        "SendQueueMetrics{depth=%d, maxDepth=%d, sent=%d, rejected=%d, dropped=%d,"
+            + " messagesPerDrain=%.2f, avgLatencyMs=%.2f, maxLatencyMs=%d}",
+        getDepth(),
+        getMaxDepth(),
+        getSent(),
+        getRejected(),
+        getDropped(),
+        getMessagesPerDrain(),
+        getAverageLatencyMs(),
+        getMaxLatencyMs());
+  }
+}
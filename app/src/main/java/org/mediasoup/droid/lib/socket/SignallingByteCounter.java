@@ -0,0 +1,137 @@
+package org.mediasoup.droid.lib.socket;
+
+import androidx.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Byte counters of the signalling socket.
+ *
+ * <p>Raw bytes are the frame payloads before compression, per protoo method. Wire bytes are what
+ * went through the network socket (after compression and TLS, including handshakes and frame
+ * headers). Compression works on the stream, so wire bytes can only be counted as a whole.
+ */
+@SuppressWarnings("WeakerAccess")
+public class SignallingByteCounter {
+
+  // Responses are counted under the method of their request, prefixed with this.
+  public static final String RESPONSE_PREFIX = "response:";
+
+  private final AtomicLong mWireBytesIn = new AtomicLong();
+  private final AtomicLong mWireBytesOut = new AtomicLong();
+  private final AtomicLong mRawBytesIn = new AtomicLong();
+  private final AtomicLong mRawBytesOut = new AtomicLong();
+  // method -> {bytes in, bytes out, messages in, messages out}. Guarded by itself.
+  private final Map<String, long[]> mPerMethod = new HashMap<>();
+  private volatile boolean mCompressionNegotiated;
+
+  void onReceived(@NonNull String method, long bytes) {
+    mRawBytesIn.addAndGet(bytes);
+    synchronized (mPerMethod) {
+      long[] counters = counters(method);
+      counters[0] += bytes;
+      counters[2]++;
+    }
+  }
+
+  void onSent(@NonNull String method, long bytes) {
+    mRawBytesOut.addAndGet(bytes);
+    synchronized (mPerMethod) {
+      long[] counters = counters(method);
+      counters[1] += bytes;
+      counters[3]++;
+    }
+  }
+
+  void onWireIn(long bytes) {
+    mWireBytesIn.addAndGet(bytes);
+  }
+
+  void onWireOut(long bytes) {
+    mWireBytesOut.addAndGet(bytes);
+  }
+
+  private long[] counters(String method) {
+    long[] counters = mPerMethod.get(method);
+    if (counters == null) {
+      counters = new long[4];
+      mPerMethod.put(method, counters);
+    }
+    return counters;
+  }
+
+  void setCompressionNegotiated(boolean compressionNegotiated) {
+    mCompressionNegotiated = compressionNegotiated;
+  }
+
+  /** Whether the server accepted permessage-deflate on the current socket. */
+  public boolean isCompressionNegotiated() {
+    return mCompressionNegotiated;
+  }
+
+  public long getRawBytesIn() {
+    return mRawBytesIn.get();
+  }
+
+  public long getRawBytesOut() {
+    return mRawBytesOut.get();
+  }
+
+  public long getWireBytesIn() {
+    return mWireBytesIn.get();
+  }
+
+  public long getWireBytesOut() {
+    return mWireBytesOut.get();
+  }
+
+  /** Raw bytes received for {@code method}. */
+  public long getRawBytesIn(@NonNull String method) {
+    synchronized (mPerMethod) {
+      long[] counters = mPerMethod.get(method);
+      return counters != null ? counters[0] : 0;
+    }
+  }
+
+  /** Raw bytes sent for {@code method}. */
+  public long getRawBytesOut(@NonNull String method) {
+    synchronized (mPerMethod) {
+      long[] counters = mPerMethod.get(method);
+      return counters != null ? counters[1] : 0;
+    }
+  }
+
+  @NonNull
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append(
+        String.format(
+            Locale.US,
+            "SignallingByteCounter{compression=%b, raw in/out=%d/%d, wire in/out=%d/%d",
+            mCompressionNegotiated,
+            getRawBytesIn(),
+            getRawBytesOut(),
+            getWireBytesIn(),
+            getWireBytesOut()));
+    synchronized (mPerMethod) {
+      for (Map.Entry<String, long[]> entry : new TreeMap<>(mPerMethod).entrySet()) {
+        long[] counters = entry.getValue();
+        builder.append(
+            String.format(
+                Locale.US,
+                ", %s in/out=%d/%d (%d/%d msgs)",
+                entry.getKey(),
+                counters[0],
+                counters[1],
+                counters[2],
+                counters[3]));
+      }
+    }
+    return builder.append('}').toString();
+  }
+}
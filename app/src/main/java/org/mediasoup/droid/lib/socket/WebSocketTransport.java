@@ -2,6 +2,7 @@ package org.mediasoup.droid.lib.socket;
 
 import android.os.Handler;
 import android.os.HandlerThread;
+import android.os.SystemClock;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -10,7 +11,11 @@ import org.mediasoup.droid.Logger;
 import org.protoojs.droid.Message;
 import org.protoojs.droid.transports.AbsWebSocketTransport;
 
+import java.io.IOException;
 import java.security.cert.CertificateException;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 
 import javax.net.ssl.SSLContext;
@@ -32,6 +37,15 @@ public class WebSocketTransport extends AbsWebSocketTransport {
 
   // Log tag.
   private static final String TAG = "WebSocketTransport";
+  // Outbound messages waiting for the socket thread, beyond which sendMessage() refuses more.
+  private static final int SEND_QUEUE_CAPACITY = 256;
+  // WebSocket sub-protocols.
+  static final String PROTOCOL_JSON = "protoo";
+  static final String PROTOCOL_MSGPACK = "protoo-msgpack";
+  static final String HEADER_PROTOCOL = "Sec-WebSocket-Protocol";
+  // WebSocket compression extension, offered by OkHttp on every connection.
+  private static final String HEADER_EXTENSIONS = "Sec-WebSocket-Extensions";
+  private static final String PERMESSAGE_DEFLATE = "permessage-deflate";
   // Closed flag.
   private boolean mClosed;
   // Connected flag.
@@ -41,55 +55,83 @@ public class WebSocketTransport extends AbsWebSocketTransport {
   // Handler associate to current thread.
   private final Handler mHandler;
   // Retry operation.
-  private final RetryStrategy mRetryStrategy;
+  private ReconnectScheduler mReconnectScheduler = new DecorrelatedJitterScheduler(500, 8000, 10);
+  private final ReconnectMetrics mReconnectMetrics = new ReconnectMetrics();
+  private final Runnable mReconnectRunnable = () -> reconnect(false);
+  // Whether mReconnectRunnable is posted. Only touched on the socket thread.
+  private boolean mReconnectPending;
+  // When the connection was lost, -1 while connected.
+  private volatile long mDisconnectedTime = -1;
   // WebSocket instance.
   private WebSocket mWebSocket;
+  // Latest socket created, callbacks from older ones are ignored.
+  private volatile WebSocket mCurrentWebSocket;
   // Listener.
   private Listener mListener;
+  // Whether to offer MessagePack framing to the server.
+  private final boolean mOfferBinaryFraming;
+  // Whether the server accepted MessagePack framing on the current socket.
+  private volatile boolean mBinaryFraming;
+  // Whether permessage-deflate compression is offered to the server.
+  private final boolean mOfferCompression;
+  private final SignallingByteCounter mByteCounter = new SignallingByteCounter();
+  // Methods of the requests in flight by id, to count responses under their method.
+  private final Map<Long, String> mSentRequests = new ConcurrentHashMap<>();
+  private final Map<Long, String> mReceivedRequests = new ConcurrentHashMap<>();
+  // Outbound messages, serialised and written on the socket thread. The two queues are swapped
+  // by each drain, guarded by mSendLock.
+  private final Object mSendLock = new Object();
+  private ArrayDeque<PendingMessage> mSendQueue = new ArrayDeque<>();
+  private ArrayDeque<PendingMessage> mDrainQueue = new ArrayDeque<>();
+  private boolean mDrainScheduled;
+  private final SendQueueMetrics mSendQueueMetrics = new SendQueueMetrics();
+  private final Runnable mDrainRunnable = this::drainSendQueue;
+  // Receives the notifications decoded by NotificationDecoder, bypassing Message.parse().
+  private volatile NotificationListener mNotificationListener;
+
+  public interface NotificationListener {
+    void onNotification(@NotNull RoomNotification notification);
+  }
 
-  private static class RetryStrategy {
-
-    private final int retries;
-    private final int factor;
-    private final int minTimeout;
-    private final int maxTimeout;
-
-    private int retryCount = 1;
+  private static class PendingMessage {
 
-    RetryStrategy(int retries, int factor, int minTimeout, int maxTimeout) {
-      this.retries = retries;
-      this.factor = factor;
-      this.minTimeout = minTimeout;
-      this.maxTimeout = maxTimeout;
-    }
+    final JSONObject message;
+    final long enqueueTime;
 
-    void retried() {
-      retryCount++;
-    }
-
-    int getReconnectInterval() {
-      if (retryCount > retries) {
-        return -1;
-      }
-      int reconnectInterval = (int) (minTimeout * Math.pow(factor, retryCount));
-      reconnectInterval = Math.min(reconnectInterval, maxTimeout);
-      return reconnectInterval;
-    }
-
-    void reset() {
-      if (retryCount != 0) {
-        retryCount = 0;
-      }
+    PendingMessage(JSONObject message, long enqueueTime) {
+      this.message = message;
+      this.enqueueTime = enqueueTime;
     }
   }
 
   public WebSocketTransport(String url) {
+    this(url, false, false);
+  }
+
+  /**
+   * @param offerBinaryFraming offer the "protoo-msgpack" sub-protocol before "protoo". Messages
+   *     are MessagePack encoded binary frames only if the server picks it.
+   * @param offerCompression offer permessage-deflate compression. Frames are compressed only if
+   *     the server accepts it.
+   */
+  public WebSocketTransport(String url, boolean offerBinaryFraming, boolean offerCompression) {
     super(url);
+    mOfferBinaryFraming = offerBinaryFraming;
+    mOfferCompression = offerCompression;
     mOkHttpClient = getUnsafeOkHttpClient();
     HandlerThread handlerThread = new HandlerThread("socket");
     handlerThread.start();
     mHandler = new Handler(handlerThread.getLooper());
-    mRetryStrategy = new RetryStrategy(10, 2, 1000, 8 * 1000);
+  }
+
+  /** Replace the default reconnect scheduler, before {@link #connect(Listener)}. */
+  public void setReconnectScheduler(@NotNull ReconnectScheduler reconnectScheduler) {
+    mReconnectScheduler = reconnectScheduler;
+  }
+
+  /** Deliver the known room notifications typed, without building a JSON tree. */
+  public void setNotificationListener(@Nullable NotificationListener listener) {
+    mNotificationListener = listener;
   }
 
   @Override
@@ -101,47 +143,190 @@ public class WebSocketTransport extends AbsWebSocketTransport {
 
   private void newWebSocket() {
     mWebSocket = null;
-    mOkHttpClient.newWebSocket(
-        new Request.Builder().url(mUrl).addHeader("Sec-WebSocket-Protocol", "protoo").build(),
-        new ProtooWebSocketListener());
+    mBinaryFraming = false;
+    mSentRequests.clear();
+    mReceivedRequests.clear();
+    mCurrentWebSocket =
+        mOkHttpClient.newWebSocket(
+            new Request.Builder()
+                .url(mUrl)
+                .addHeader(HEADER_PROTOCOL, offeredProtocols(mOfferBinaryFraming))
+                .build(),
+            new ProtooWebSocketListener());
+  }
+
+  static String offeredProtocols(boolean offerBinaryFraming) {
+    return offerBinaryFraming ? PROTOCOL_MSGPACK + ", " + PROTOCOL_JSON : PROTOCOL_JSON;
+  }
+
+  // Whether the server picked MessagePack framing in its handshake response.
+  static boolean isBinaryFraming(@NotNull Response response) {
+    return PROTOCOL_MSGPACK.equals(response.header(HEADER_PROTOCOL));
+  }
+
+  public boolean isBinaryFraming() {
+    return mBinaryFraming;
   }
 
   private boolean scheduleReconnect() {
-    int reconnectInterval = mRetryStrategy.getReconnectInterval();
+    long reconnectInterval = mReconnectScheduler.nextDelayMs();
     if (reconnectInterval == -1) {
+      mReconnectMetrics.onGiveUp();
       return false;
     }
-    Logger.d(TAG, "scheduleReconnect() ");
-    mHandler.postDelayed(
+    Logger.d(TAG, "scheduleReconnect() in " + reconnectInterval + "ms");
+    mHandler.post(
         () -> {
-          if (mClosed) {
-            return;
-          }
-          Logger.w(TAG, "doing reconnect job, retryCount: " + mRetryStrategy.retryCount);
-          mOkHttpClient.dispatcher().cancelAll();
-          newWebSocket();
-          mRetryStrategy.retried();
-        },
-        reconnectInterval);
+          mHandler.removeCallbacks(mReconnectRunnable);
+          mHandler.postDelayed(mReconnectRunnable, reconnectInterval);
+          mReconnectPending = true;
+        });
     return true;
   }
 
-  @Override
-  public String sendMessage(JSONObject message) {
+  // Runs on the socket thread.
+  private void reconnect(boolean fastPath) {
+    mReconnectPending = false;
     if (mClosed) {
-      throw new IllegalStateException("transport closed");
+      return;
+    }
+    Logger.w(
+        TAG,
+        "doing reconnect job, attempts: "
+            + mReconnectScheduler.getAttempts()
+            + ", fastPath: "
+            + fastPath);
+    mReconnectMetrics.onAttempt(fastPath);
+    // Only drop our own pending connection, the client may be shared with other calls.
+    WebSocket previous = mCurrentWebSocket;
+    if (previous != null) {
+      previous.cancel();
     }
-    String payload = message.toString();
+    newWebSocket();
+  }
+
+  /**
+   * A network became available. If a reconnection is waiting for its backoff delay, start it now:
+   * the failure was most likely caused by the network going away.
+   */
+  public void onNetworkAvailable() {
     mHandler.post(
         () -> {
-          if (mClosed) {
+          if (!mReconnectPending || mClosed) {
             return;
           }
-          if (mWebSocket != null) {
-            mWebSocket.send(payload);
-          }
+          mHandler.removeCallbacks(mReconnectRunnable);
+          reconnect(true);
         });
-    return payload;
+  }
+
+  @NotNull
+  public ReconnectMetrics getReconnectMetrics() {
+    return mReconnectMetrics;
+  }
+
+  /**
+   * Queue {@code message} for the socket thread, which serialises and writes it.
+   *
+   * <p>Throws if the transport is closed or if the queue is full, so that the pending request
+   * fails right away instead of piling up behind a congested socket. Returns an empty payload:
+   * the message is not serialised yet, and protoo only uses the payload length to extend the
+   * request timeout.
+   */
+  @Override
+  public String sendMessage(JSONObject message) {
+    if (mClosed) {
+      throw new IllegalStateException("transport closed");
+    }
+    boolean schedule;
+    synchronized (mSendLock) {
+      if (mSendQueue.size() >= SEND_QUEUE_CAPACITY) {
+        mSendQueueMetrics.onRejected();
+        throw new IllegalStateException("send queue full");
+      }
+      mSendQueue.add(new PendingMessage(message, SystemClock.elapsedRealtime()));
+      mSendQueueMetrics.onEnqueued(mSendQueue.size());
+      schedule = !mDrainScheduled;
+      mDrainScheduled = true;
+    }
+    if (schedule) {
+      mHandler.post(mDrainRunnable);
+    }
+    return "";
+  }
+
+  // Runs on the socket thread, writes every message queued so far in one go.
+  private void drainSendQueue() {
+    ArrayDeque<PendingMessage> batch;
+    synchronized (mSendLock) {
+      batch = mSendQueue;
+      mSendQueue = mDrainQueue;
+      mDrainQueue = batch;
+      mDrainScheduled = false;
+      mSendQueueMetrics.onDrained(0);
+    }
+    long now = SystemClock.elapsedRealtime();
+    PendingMessage pending;
+    while ((pending = batch.poll()) != null) {
+      boolean sent = false;
+      if (!mClosed && mWebSocket != null) {
+        long bytes;
+        if (mBinaryFraming) {
+          ByteString payload = ByteString.of(MessagePackCodec.encode(pending.message));
+          bytes = payload.size();
+          sent = mWebSocket.send(payload);
+        } else {
+          String payload = pending.message.toString();
+          bytes = utf8Length(payload);
+          sent = mWebSocket.send(payload);
+        }
+        if (sent) {
+          mByteCounter.onSent(outboundMethod(pending.message), bytes);
+        }
+      }
+      mSendQueueMetrics.onDequeued(now - pending.enqueueTime, sent);
+    }
+  }
+
+  @NotNull
+  public SendQueueMetrics getSendQueueMetrics() {
+    return mSendQueueMetrics;
+  }
+
+  @NotNull
+  public SignallingByteCounter getByteCounter() {
+    return mByteCounter;
+  }
+
+  private String outboundMethod(JSONObject message) {
+    if (message.optBoolean("request")) {
+      String method = message.optString("method");
+      mSentRequests.put(message.optLong("id"), method);
+      return method;
+    }
+    if (message.optBoolean("response")) {
+      String method = mReceivedRequests.remove(message.optLong("id"));
+      return SignallingByteCounter.RESPONSE_PREFIX + (method != null ? method : "unknown");
+    }
+    return message.optString("method");
+  }
+
+  private static long utf8Length(String text) {
+    long length = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c < 0x80) {
+        length++;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(c)) {
+        length += 4;
+        i++;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
   }
 
   @Override
@@ -154,6 +339,8 @@ public class WebSocketTransport extends AbsWebSocketTransport {
     final CountDownLatch countDownLatch = new CountDownLatch(1);
     mHandler.post(
         () -> {
+          mHandler.removeCallbacks(mReconnectRunnable);
+          mReconnectPending = false;
           if (mWebSocket != null) {
             mWebSocket.close(1000, "bye");
             mWebSocket = null;
@@ -176,27 +363,40 @@ public class WebSocketTransport extends AbsWebSocketTransport {
 
     @Override
     public void onOpen(@NotNull WebSocket webSocket, @NotNull Response response) {
-      if (mClosed) {
+      if (mClosed || webSocket != mCurrentWebSocket) {
         return;
       }
-      Logger.d(TAG, "onOpen() ");
+      mBinaryFraming = isBinaryFraming(response);
+      String extensions = response.header(HEADER_EXTENSIONS);
+      mByteCounter.setCompressionNegotiated(
+          extensions != null && extensions.contains(PERMESSAGE_DEFLATE));
+      Logger.d(
+          TAG,
+          "onOpen() binaryFraming: "
+              + mBinaryFraming
+              + ", compression: "
+              + mByteCounter.isCompressionNegotiated());
       mWebSocket = webSocket;
       mConnected = true;
+      if (mDisconnectedTime != -1) {
+        mReconnectMetrics.onReconnected(SystemClock.elapsedRealtime() - mDisconnectedTime);
+        mDisconnectedTime = -1;
+      }
       if (mListener != null) {
         mListener.onOpen();
       }
-      mRetryStrategy.reset();
+      mReconnectScheduler.reset();
     }
 
     @Override
     public void onClosed(@NotNull WebSocket webSocket, int code, @NotNull String reason) {
       Logger.w(TAG, "onClosed()");
-      if (mClosed) {
+      if (mClosed || webSocket != mCurrentWebSocket) {
         return;
       }
       mClosed = true;
       mConnected = false;
-      mRetryStrategy.reset();
+      mReconnectScheduler.reset();
       if (mListener != null) {
         mListener.onClose();
       }
@@ -211,9 +411,13 @@ public class WebSocketTransport extends AbsWebSocketTransport {
     public void onFailure(
         @NotNull WebSocket webSocket, @NotNull Throwable t, @Nullable Response response) {
       Logger.w(TAG, "onFailure()");
-      if (mClosed) {
+      // Also covers the cancelled sockets replaced by a fast path reconnection.
+      if (mClosed || webSocket != mCurrentWebSocket) {
         return;
       }
+      if (mDisconnectedTime == -1) {
+        mDisconnectedTime = SystemClock.elapsedRealtime();
+      }
       if (scheduleReconnect()) {
         if (mListener != null) {
           if (mConnected) {
@@ -228,7 +432,7 @@ public class WebSocketTransport extends AbsWebSocketTransport {
         if (mListener != null) {
           mListener.onClose();
         }
-        mRetryStrategy.reset();
+        mReconnectScheduler.reset();
       }
     }
 
@@ -238,19 +442,72 @@ public class WebSocketTransport extends AbsWebSocketTransport {
       if (mClosed) {
         return;
       }
-      Message message = Message.parse(text);
+      long bytes = utf8Length(text);
+      if (mNotificationListener != null
+          && dispatchNotification(NotificationDecoder.decode(text), bytes)) {
+        return;
+      }
+      dispatchMessage(Message.parse(text), bytes);
+    }
+
+    @Override
+    public void onMessage(@NotNull WebSocket webSocket, @NotNull ByteString bytes) {
+      Logger.d(TAG, "onMessage()");
+      if (mClosed) {
+        return;
+      }
+      byte[] frame = bytes.toByteArray();
+      // Known notifications, most of the traffic, are read straight from the frame.
+      if (mNotificationListener != null
+          && dispatchNotification(NotificationDecoder.decode(frame), frame.length)) {
+        return;
+      }
+      // protoo only parses text, the other messages go through a JSON tree.
+      JSONObject json;
+      try {
+        json = MessagePackCodec.decode(frame);
+      } catch (IOException e) {
+        Logger.e(TAG, "invalid binary protoo message", e);
+        return;
+      }
+      dispatchMessage(Message.parse(json.toString()), frame.length);
+    }
+
+    private boolean dispatchNotification(@Nullable RoomNotification notification, long bytes) {
+      NotificationListener notificationListener = mNotificationListener;
+      if (notification == null || notificationListener == null) {
+        return false;
+      }
+      mByteCounter.onReceived(notification.getMethod(), bytes);
+      notificationListener.onNotification(notification);
+      return true;
+    }
+
+    private void dispatchMessage(@Nullable Message message, long bytes) {
       if (message == null) {
         return;
       }
+      mByteCounter.onReceived(inboundMethod(message), bytes);
       if (mListener != null) {
         mListener.onMessage(message);
       }
     }
+  }
 
-    @Override
-    public void onMessage(@NotNull WebSocket webSocket, @NotNull ByteString bytes) {
-      Logger.d(TAG, "onMessage()");
+  private String inboundMethod(Message message) {
+    if (message instanceof Message.Request) {
+      Message.Request request = (Message.Request) message;
+      mReceivedRequests.put(request.getId(), request.getMethod());
+      return request.getMethod();
     }
+    if (message instanceof Message.Response) {
+      String method = mSentRequests.remove(((Message.Response) message).getId());
+      return SignallingByteCounter.RESPONSE_PREFIX + (method != null ? method : "unknown");
+    }
+    if (message instanceof Message.Notification) {
+      return ((Message.Notification) message).getMethod();
+    }
+    return "unknown";
   }
 
   private OkHttpClient getUnsafeOkHttpClient() {
@@ -292,7 +549,15 @@ public class WebSocketTransport extends AbsWebSocketTransport {
       OkHttpClient.Builder builder =
           new OkHttpClient.Builder()
               .addInterceptor(httpLoggingInterceptor)
+              .socketFactory(new CountingSocketFactory(mByteCounter))
               .retryOnConnectionFailure(true);
+      if (!mOfferCompression) {
+        // OkHttp offers permessage-deflate on every WebSocket, take the offer back.
+        builder.addInterceptor(
+            chain ->
+                chain.proceed(
+                    chain.request().newBuilder().removeHeader(HEADER_EXTENSIONS).build()));
+      }
       builder.sslSocketFactory(sslSocketFactory, (X509TrustManager) trustAllCerts[0]);
 
       builder.hostnameVerifier((hostname, session) -> true);
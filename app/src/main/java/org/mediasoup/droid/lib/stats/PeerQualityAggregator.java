@@ -0,0 +1,69 @@
+package org.mediasoup.droid.lib.stats;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.mediasoup.droid.lib.model.PeerQuality;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Merges the local and server side stats of the consumers of each remote peer into one {@link
+ * PeerQuality} per peer. Throughput comes from the local side, the score and the round trip time
+ * from the server, loss is the worst of both.
+ */
+@SuppressWarnings("WeakerAccess")
+public class PeerQualityAggregator {
+
+  private static class Totals {
+
+    long mReceiveBitrate = -1;
+    double mFractionLost = -1;
+    double mRoundTripTimeMs = -1;
+    int mScore = -1;
+  }
+
+  private final Map<String, Totals> mPeers = new HashMap<>();
+
+  /** Add one consumer of {@code peerId}, with whatever stats it has so far. */
+  public void add(
+      @NonNull String peerId, @Nullable StatsRecord local, @Nullable RemoteStats remote) {
+    Totals totals = mPeers.get(peerId);
+    if (totals == null) {
+      totals = new Totals();
+      mPeers.put(peerId, totals);
+    }
+    if (local != null) {
+      if (local.getReceiveBitrate() >= 0) {
+        totals.mReceiveBitrate = Math.max(totals.mReceiveBitrate, 0) + local.getReceiveBitrate();
+      }
+      totals.mFractionLost = Math.max(totals.mFractionLost, local.getFractionLost());
+    }
+    if (remote != null) {
+      totals.mFractionLost = Math.max(totals.mFractionLost, remote.getFractionLost());
+      totals.mRoundTripTimeMs = Math.max(totals.mRoundTripTimeMs, remote.getRoundTripTimeMs());
+      if (remote.getScore() >= 0) {
+        totals.mScore =
+            totals.mScore < 0 ? remote.getScore() : Math.min(totals.mScore, remote.getScore());
+      }
+    }
+  }
+
+  @NonNull
+  public Map<String, PeerQuality> build() {
+    Map<String, PeerQuality> qualities = new HashMap<>(mPeers.size());
+    for (Map.Entry<String, Totals> entry : mPeers.entrySet()) {
+      Totals totals = entry.getValue();
+      qualities.put(
+          entry.getKey(),
+          new PeerQuality(
+              entry.getKey(),
+              totals.mReceiveBitrate,
+              totals.mFractionLost,
+              totals.mRoundTripTimeMs,
+              totals.mScore));
+    }
+    return qualities;
+  }
+}
@@ -0,0 +1,204 @@
+package org.mediasoup.droid.lib.stats;
+
+import androidx.annotation.NonNull;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Locale;
+
+/**
+ * Server side stats of a transport, producer, consumer or data consumer, as returned by the
+ * get*Stats requests of the mediasoup-demo server.
+ *
+ * <p>Values are seen from the server: the bitrate of a producer is what the server receives, the
+ * one of a consumer is what it sends to us. Values that the stats did not report are -1.
+ */
+@SuppressWarnings("WeakerAccess")
+public class RemoteStats {
+
+  private final long mTimestamp;
+  private final long mBitrate;
+  private final long mSendBitrate;
+  private final long mRecvBitrate;
+  private final int mScore;
+  private final long mPacketsLost;
+  private final double mFractionLost;
+  private final double mRoundTripTimeMs;
+  private final long mAvailableOutgoingBitrate;
+  private final long mAvailableIncomingBitrate;
+  private final long mMessagesSent;
+  private final long mBytesSent;
+
+  private RemoteStats(
+      long timestamp,
+      long bitrate,
+      long sendBitrate,
+      long recvBitrate,
+      int score,
+      long packetsLost,
+      double fractionLost,
+      double roundTripTimeMs,
+      long availableOutgoingBitrate,
+      long availableIncomingBitrate,
+      long messagesSent,
+      long bytesSent) {
+    mTimestamp = timestamp;
+    mBitrate = bitrate;
+    mSendBitrate = sendBitrate;
+    mRecvBitrate = recvBitrate;
+    mScore = score;
+    mPacketsLost = packetsLost;
+    mFractionLost = fractionLost;
+    mRoundTripTimeMs = roundTripTimeMs;
+    mAvailableOutgoingBitrate = availableOutgoingBitrate;
+    mAvailableIncomingBitrate = availableIncomingBitrate;
+    mMessagesSent = messagesSent;
+    mBytesSent = bytesSent;
+  }
+
+  /**
+   * Parse the stats array of one entity. RTP streams (one per simulcast encoding for producers)
+   * are summed, their score is the best one and their loss the worst one.
+   */
+  @NonNull
+  static RemoteStats parse(long timestamp, @NonNull String data) throws JSONException {
+    JSONArray stats = new JSONArray(data);
+    long bitrate = -1;
+    long sendBitrate = -1;
+    long recvBitrate = -1;
+    int score = -1;
+    long packetsLost = -1;
+    double fractionLost = -1;
+    double roundTripTime = -1;
+    long availableOutgoingBitrate = -1;
+    long availableIncomingBitrate = -1;
+    long messagesSent = -1;
+    long bytesSent = -1;
+    // A consumer also reports the inbound stream of its producer, only its own one matters.
+    String rtpType = data.contains("\"outbound-rtp\"") ? "outbound-rtp" : "inbound-rtp";
+    for (int i = 0; i < stats.length(); i++) {
+      JSONObject stat = stats.optJSONObject(i);
+      if (stat == null) {
+        continue;
+      }
+      switch (stat.optString("type")) {
+        case "webrtc-transport":
+        case "plain-rtp-transport":
+          sendBitrate = stat.optLong("sendBitrate", -1);
+          recvBitrate = stat.optLong("recvBitrate", -1);
+          availableOutgoingBitrate = stat.optLong("availableOutgoingBitrate", -1);
+          availableIncomingBitrate = stat.optLong("availableIncomingBitrate", -1);
+          break;
+        case "inbound-rtp":
+        case "outbound-rtp":
+          if (!rtpType.equals(stat.optString("type"))) {
+            break;
+          }
+          bitrate = Math.max(bitrate, 0) + stat.optLong("bitrate", 0);
+          packetsLost = Math.max(packetsLost, 0) + stat.optLong("packetsLost", 0);
+          score = Math.max(score, stat.optInt("score", -1));
+          if (stat.has("fractionLost")) {
+            // 0 to 255 as in RTCP receiver reports.
+            fractionLost = Math.max(fractionLost, stat.optDouble("fractionLost", 0) / 256);
+          }
+          roundTripTime = Math.max(roundTripTime, stat.optDouble("roundTripTime", -1));
+          break;
+        case "data-consumer":
+        case "data-producer":
+          messagesSent = stat.optLong("messagesSent", stat.optLong("messagesReceived", -1));
+          bytesSent = stat.optLong("bytesSent", stat.optLong("bytesReceived", -1));
+          break;
+        default:
+          break;
+      }
+    }
+    return new RemoteStats(
+        timestamp,
+        bitrate,
+        sendBitrate,
+        recvBitrate,
+        score,
+        packetsLost,
+        fractionLost,
+        roundTripTime,
+        availableOutgoingBitrate,
+        availableIncomingBitrate,
+        messagesSent,
+        bytesSent);
+  }
+
+  /** SystemClock.elapsedRealtime() of the response. */
+  public long getTimestamp() {
+    return mTimestamp;
+  }
+
+  /** Bits per second of the RTP streams of a producer or consumer. */
+  public long getBitrate() {
+    return mBitrate;
+  }
+
+  /** Bits per second the server sends on a transport. */
+  public long getSendBitrate() {
+    return mSendBitrate;
+  }
+
+  /** Bits per second the server receives on a transport. */
+  public long getRecvBitrate() {
+    return mRecvBitrate;
+  }
+
+  /** 0 to 10. */
+  public int getScore() {
+    return mScore;
+  }
+
+  public long getPacketsLost() {
+    return mPacketsLost;
+  }
+
+  /** 0 to 1. */
+  public double getFractionLost() {
+    return mFractionLost;
+  }
+
+  public double getRoundTripTimeMs() {
+    return mRoundTripTimeMs;
+  }
+
+  /** Server estimate of the downlink, bits per second. */
+  public long getAvailableOutgoingBitrate() {
+    return mAvailableOutgoingBitrate;
+  }
+
+  /** Server estimate of the uplink, bits per second. */
+  public long getAvailableIncomingBitrate() {
+    return mAvailableIncomingBitrate;
+  }
+
+  public long getMessagesSent() {
+    return mMessagesSent;
+  }
+
+  public long getBytesSent() {
+    return mBytesSent;
+  }
+
+  @NonNull
+  @Override
+  public String toString() {
+    return String.format(
+        Locale.US,
+        "RemoteStats{bitrate=%d, sendBitrate=%d, recvBitrate=%d, score=%d, fractionLost=%.3f,"
+            + " rttMs=%.1f, availableOutgoingBitrate=%d, availableIncomingBitrate=%d}",
+        mBitrate,
+        mSendBitrate,
+        mRecvBitrate,
+        mScore,
+        mFractionLost,
+        mRoundTripTimeMs,
+        mAvailableOutgoingBitrate,
+        mAvailableIncomingBitrate);
+  }
+}
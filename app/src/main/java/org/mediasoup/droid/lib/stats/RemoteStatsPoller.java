@@ -0,0 +1,235 @@
+package org.mediasoup.droid.lib.stats;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import org.mediasoup.droid.Logger;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Polls the server side stats of the tracked transports, producers, consumers and data consumers.
+ *
+ * <p>The server has one request per entity and no batch one, so a cycle every {@link
+ * #INTERVAL_MS} sends at most {@link #MAX_REQUESTS_PER_CYCLE} requests, going round the entities:
+ * a room with many consumers gets each of them refreshed less often instead of more signalling.
+ * A cycle ends when all its responses are in, then the {@link Listener} is called once. A tick
+ * that comes while the previous cycle is still waiting is skipped.
+ *
+ * <p>Everything but the getters runs on the handler, the one the requests answer on.
+ */
+@SuppressWarnings("WeakerAccess")
+public class RemoteStatsPoller {
+
+  private static final String TAG = "RemoteStatsPoller";
+
+  public static final long INTERVAL_MS = 4000;
+  static final int MAX_REQUESTS_PER_CYCLE = 8;
+
+  public enum Kind {
+    TRANSPORT("getTransportStats", "transportId"),
+    PRODUCER("getProducerStats", "producerId"),
+    CONSUMER("getConsumerStats", "consumerId"),
+    DATA_PRODUCER("getDataProducerStats", "dataProducerId"),
+    DATA_CONSUMER("getDataConsumerStats", "dataConsumerId");
+
+    final String mMethod;
+    final String mIdKey;
+
+    Kind(String method, String idKey) {
+      mMethod = method;
+      mIdKey = idKey;
+    }
+  }
+
+  public interface Callback {
+    void onResponse(String data);
+
+    void onError(Throwable throwable);
+  }
+
+  public interface Requester {
+    /** Send {@code method} with {@code idKey} set to {@code id}, answer on the handler. */
+    @WorkerThread
+    void request(
+        @NonNull String method,
+        @NonNull String idKey,
+        @NonNull String id,
+        @NonNull Callback callback);
+  }
+
+  public interface Listener {
+    @WorkerThread
+    void onCycle(@NonNull RemoteStatsPoller poller);
+  }
+
+  private static class Entity {
+
+    final String mId;
+    final String mAlias;
+    final String mGroup;
+    final Kind mKind;
+
+    Entity(String id, String alias, String group, Kind kind) {
+      mId = id;
+      mAlias = alias;
+      mGroup = group;
+      mKind = kind;
+    }
+  }
+
+  private final Handler mHandler;
+  private final Requester mRequester;
+  private final Listener mListener;
+  private final Runnable mCycle = this::cycle;
+  // Only touched on mHandler, in tracking order.
+  private final Map<String, Entity> mEntities = new LinkedHashMap<>();
+  private final List<Entity> mOrder = new ArrayList<>();
+  private int mCursor;
+  private int mPending;
+  // Bumped by stop(), answers of an older cycle are dropped.
+  private int mGeneration;
+  private boolean mStarted;
+  // Read from any thread.
+  private final Map<String, RemoteStats> mLatest = new ConcurrentHashMap<>();
+  private final Map<String, String> mAliases = new ConcurrentHashMap<>();
+
+  public RemoteStatsPoller(
+      @NonNull Handler handler, @NonNull Requester requester, @NonNull Listener listener) {
+    mHandler = handler;
+    mRequester = requester;
+    mListener = listener;
+  }
+
+  @WorkerThread
+  public void start() {
+    if (mStarted) {
+      return;
+    }
+    mStarted = true;
+    mHandler.postDelayed(mCycle, INTERVAL_MS);
+  }
+
+  @WorkerThread
+  public void stop() {
+    mStarted = false;
+    mHandler.removeCallbacks(mCycle);
+    mEntities.clear();
+    mOrder.clear();
+    mLatest.clear();
+    mAliases.clear();
+    mPending = 0;
+    mGeneration++;
+  }
+
+  @WorkerThread
+  public void track(
+      @NonNull String id, @Nullable String alias, @Nullable String group, @NonNull Kind kind) {
+    untrack(id);
+    Entity entity = new Entity(id, alias, group, kind);
+    mEntities.put(id, entity);
+    mOrder.add(entity);
+    if (alias != null) {
+      mAliases.put(alias, id);
+    }
+  }
+
+  @WorkerThread
+  public void untrack(@NonNull String id) {
+    Entity entity = mEntities.remove(id);
+    if (entity == null) {
+      return;
+    }
+    int index = mOrder.indexOf(entity);
+    mOrder.remove(index);
+    if (index < mCursor) {
+      mCursor--;
+    }
+    mLatest.remove(id);
+    if (entity.mAlias != null) {
+      mAliases.remove(entity.mAlias, id);
+    }
+  }
+
+  @WorkerThread
+  public void untrackGroup(@NonNull String group) {
+    for (Entity entity : new ArrayList<>(mOrder)) {
+      if (group.equals(entity.mGroup) || group.equals(entity.mId)) {
+        untrack(entity.mId);
+      }
+    }
+  }
+
+  @Nullable
+  public RemoteStats getLatest(@NonNull String idOrAlias) {
+    String id = mAliases.get(idOrAlias);
+    return mLatest.get(id != null ? id : idOrAlias);
+  }
+
+  @WorkerThread
+  private void cycle() {
+    if (!mStarted) {
+      return;
+    }
+    mHandler.postDelayed(mCycle, INTERVAL_MS);
+    if (mPending > 0 || mOrder.isEmpty()) {
+      return;
+    }
+
+    int count = Math.min(MAX_REQUESTS_PER_CYCLE, mOrder.size());
+    List<Entity> batch = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      mCursor %= mOrder.size();
+      batch.add(mOrder.get(mCursor++));
+    }
+    mPending = count;
+    int generation = mGeneration;
+    for (Entity entity : batch) {
+      mRequester.request(
+          entity.mKind.mMethod,
+          entity.mKind.mIdKey,
+          entity.mId,
+          new Callback() {
+            @Override
+            public void onResponse(String data) {
+              if (generation != mGeneration) {
+                return;
+              }
+              // Ignore late answers about untracked entities.
+              if (mEntities.get(entity.mId) == entity) {
+                try {
+                  mLatest.put(entity.mId, RemoteStats.parse(SystemClock.elapsedRealtime(), data));
+                } catch (Exception e) {
+                  Logger.w(TAG, entity.mKind.mMethod + " parse failed: " + e.getMessage());
+                }
+              }
+              onAnswered();
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+              if (generation != mGeneration) {
+                return;
+              }
+              Logger.w(TAG, entity.mKind.mMethod + " failed: " + throwable.getMessage());
+              onAnswered();
+            }
+          });
+    }
+  }
+
+  @WorkerThread
+  private void onAnswered() {
+    if (--mPending == 0 && mStarted) {
+      mListener.onCycle(this);
+    }
+  }
+}
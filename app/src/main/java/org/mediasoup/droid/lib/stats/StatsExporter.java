@@ -0,0 +1,135 @@
+package org.mediasoup.droid.lib.stats;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Converts a stats file to CSV or JSON for analysis pipelines, one row or object per sample with
+ * the wall clock time, the entity and every field of {@link StatsRecord}.
+ *
+ * <p>Plain Java, usable from a desktop JVM:
+ *
+ * <pre>
+ * java -cp app-classes org.mediasoup.droid.lib.stats.StatsExporter stats-1600000000000.mss json
+ * </pre>
+ */
+@SuppressWarnings("WeakerAccess")
+public class StatsExporter {
+
+  private StatsExporter() {}
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1 || args.length > 2) {
+      System.err.println("usage: StatsExporter <file> [csv|json]");
+      System.exit(2);
+      return;
+    }
+    Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StatsFileFormat.UTF_8));
+    if (args.length == 2 && "json".equals(args[1])) {
+      toJson(new File(args[0]), out);
+    } else {
+      toCsv(new File(args[0]), out);
+    }
+    out.flush();
+  }
+
+  public static void toCsv(File file, Writer out) throws IOException {
+    out.write("wallTimeMs,entityId,alias");
+    for (String field : StatsFileFormat.FIELDS) {
+      out.write(',');
+      out.write(field);
+    }
+    out.write('\n');
+    try (StatsFileReader reader = new StatsFileReader(file)) {
+      reader.read(
+          (entityId, alias, wallTimeMs, record) -> {
+            out.write(Long.toString(wallTimeMs));
+            out.write(',');
+            out.write(csv(entityId));
+            out.write(',');
+            out.write(alias != null ? csv(alias) : "");
+            for (String value : values(record)) {
+              out.write(',');
+              out.write(value);
+            }
+            out.write('\n');
+          });
+    }
+  }
+
+  /** A JSON array of objects, the entity as "entityId" and "alias", then the fields. */
+  public static void toJson(File file, Writer out) throws IOException {
+    out.write('[');
+    boolean[] first = {true};
+    try (StatsFileReader reader = new StatsFileReader(file)) {
+      reader.read(
+          (entityId, alias, wallTimeMs, record) -> {
+            out.write(first[0] ? "\n" : ",\n");
+            first[0] = false;
+            out.write("{\"wallTimeMs\":");
+            out.write(Long.toString(wallTimeMs));
+            out.write(",\"entityId\":");
+            out.write(json(entityId));
+            out.write(",\"alias\":");
+            out.write(alias != null ? json(alias) : "null");
+            String[] values = values(record);
+            for (int i = 0; i < values.length; i++) {
+              out.write(",\"");
+              out.write(StatsFileFormat.FIELDS[i]);
+              out.write("\":");
+              out.write(values[i]);
+            }
+            out.write('}');
+          });
+    }
+    out.write("\n]\n");
+  }
+
+  // In StatsFileFormat.FIELDS order.
+  private static String[] values(StatsRecord record) {
+    return new String[] {
+      Long.toString(record.mTimestamp),
+      Long.toString(record.mBytesSent),
+      Long.toString(record.mBytesReceived),
+      Long.toString(record.mSendBitrate),
+      Long.toString(record.mReceiveBitrate),
+      Long.toString(record.mPacketsSent),
+      Long.toString(record.mPacketsReceived),
+      Long.toString(record.mPacketsLost),
+      String.format(Locale.US, "%.4f", record.mFractionLost),
+      String.format(Locale.US, "%.1f", record.mJitterMs),
+      String.format(Locale.US, "%.1f", record.mRoundTripTimeMs),
+      Long.toString(record.mFramesEncoded),
+      Long.toString(record.mFramesDecoded),
+      Long.toString(record.mFramesDropped),
+      String.format(Locale.US, "%.2f", record.mEncodeTimeMs),
+      Long.toString(record.mAvailableOutgoingBitrate),
+    };
+  }
+
+  private static String csv(String value) {
+    if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+      return value;
+    }
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+
+  private static String json(String value) {
+    StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        builder.append('\\').append(c);
+      } else if (c < 0x20) {
+        builder.append(String.format(Locale.US, "\\u%04x", (int) c));
+      } else {
+        builder.append(c);
+      }
+    }
+    return builder.append('"').toString();
+  }
+}
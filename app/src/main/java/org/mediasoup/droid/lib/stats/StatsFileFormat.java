@@ -0,0 +1,166 @@
+package org.mediasoup.droid.lib.stats;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Layout of the stats files written by {@link StatsRecorder} and read by {@link StatsFileReader}.
+ *
+ * <pre>
+ * file   := MAGIC version:byte startWallMs:varint startElapsedMs:varint block*
+ * block  := ENTITY index:varint id:string alias:string
+ *         | SAMPLE index:varint delta:svarint{FIELD_COUNT}
+ * string := length:varint utf8-bytes, an empty alias meaning none
+ * </pre>
+ *
+ * <p>Every field of a sample is the zigzag varint of its difference with the same field of the
+ * previous sample of the entity (0 before the first one), so steady counters and rates take one
+ * or two bytes. Decimal fields are stored as fixed point. Timestamps are elapsedRealtime(), the
+ * header maps them to wall clock time.
+ *
+ * <p>Plain Java only, so that the reader runs on any JVM.
+ */
+final class StatsFileFormat {
+
+  static final byte[] MAGIC = {'M', 'S', 'S', 'T'};
+  static final int VERSION = 1;
+
+  static final int ENTITY = 1;
+  static final int SAMPLE = 2;
+
+  static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  // Order of the fields of a sample.
+  static final String[] FIELDS = {
+    "timestamp",
+    "bytesSent",
+    "bytesReceived",
+    "sendBitrate",
+    "receiveBitrate",
+    "packetsSent",
+    "packetsReceived",
+    "packetsLost",
+    "fractionLost",
+    "jitterMs",
+    "roundTripTimeMs",
+    "framesEncoded",
+    "framesDecoded",
+    "framesDropped",
+    "encodeTimeMs",
+    "availableOutgoingBitrate",
+  };
+  static final int FIELD_COUNT = FIELDS.length;
+
+  private static final double FRACTION_LOST_SCALE = 10000;
+  private static final double MS_SCALE = 10;
+  private static final double ENCODE_TIME_SCALE = 100;
+
+  private StatsFileFormat() {}
+
+  static void toValues(StatsRecord record, long[] values) {
+    values[0] = record.mTimestamp;
+    values[1] = record.mBytesSent;
+    values[2] = record.mBytesReceived;
+    values[3] = record.mSendBitrate;
+    values[4] = record.mReceiveBitrate;
+    values[5] = record.mPacketsSent;
+    values[6] = record.mPacketsReceived;
+    values[7] = record.mPacketsLost;
+    values[8] = Math.round(record.mFractionLost * FRACTION_LOST_SCALE);
+    values[9] = Math.round(record.mJitterMs * MS_SCALE);
+    values[10] = Math.round(record.mRoundTripTimeMs * MS_SCALE);
+    values[11] = record.mFramesEncoded;
+    values[12] = record.mFramesDecoded;
+    values[13] = record.mFramesDropped;
+    values[14] = Math.round(record.mEncodeTimeMs * ENCODE_TIME_SCALE);
+    values[15] = record.mAvailableOutgoingBitrate;
+  }
+
+  static StatsRecord fromValues(long[] values) {
+    return new StatsRecord(
+        values[0],
+        values[1],
+        values[2],
+        values[3],
+        values[4],
+        values[5],
+        values[6],
+        values[7],
+        values[8] / FRACTION_LOST_SCALE,
+        values[9] / MS_SCALE,
+        values[10] / MS_SCALE,
+        values[11],
+        values[12],
+        values[13],
+        values[14] / ENCODE_TIME_SCALE,
+        values[15]);
+  }
+
+  /** Put {@code value} as an unsigned LEB128 varint in {@code buffer}, return the new offset. */
+  static int putVarint(byte[] buffer, int offset, long value) {
+    while ((value & ~0x7fL) != 0) {
+      buffer[offset++] = (byte) ((value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    buffer[offset++] = (byte) value;
+    return offset;
+  }
+
+  static int putSignedVarint(byte[] buffer, int offset, long value) {
+    return putVarint(buffer, offset, (value << 1) ^ (value >> 63));
+  }
+
+  static void writeVarint(OutputStream out, long value) throws IOException {
+    while ((value & ~0x7fL) != 0) {
+      out.write((int) ((value & 0x7f) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+
+  static void writeString(OutputStream out, String value) throws IOException {
+    byte[] bytes = value != null ? value.getBytes(UTF_8) : new byte[0];
+    writeVarint(out, bytes.length);
+    out.write(bytes);
+  }
+
+  static long readVarint(InputStream in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.read();
+      if (b < 0) {
+        throw new EOFException();
+      }
+      value |= (long) (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("malformed varint");
+  }
+
+  static long readSignedVarint(InputStream in) throws IOException {
+    long value = readVarint(in);
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  static String readString(InputStream in) throws IOException {
+    long length = readVarint(in);
+    if (length < 0 || length > 4096) {
+      throw new IOException("bad string length " + length);
+    }
+    byte[] bytes = new byte[(int) length];
+    int read = 0;
+    while (read < bytes.length) {
+      int count = in.read(bytes, read, bytes.length - read);
+      if (count < 0) {
+        throw new EOFException();
+      }
+      read += count;
+    }
+    return new String(bytes, UTF_8);
+  }
+}
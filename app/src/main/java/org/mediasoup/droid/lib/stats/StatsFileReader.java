@@ -0,0 +1,132 @@
+package org.mediasoup.droid.lib.stats;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a file written by {@link StatsRecorder}. Plain Java, it runs on a desktop JVM as well as
+ * on the device.
+ *
+ * <p>A file cut short by a crash reads fine up to its last complete sample.
+ */
+@SuppressWarnings("WeakerAccess")
+public class StatsFileReader implements Closeable {
+
+  public interface SampleHandler {
+    /**
+     * @param wallTimeMs wall clock time of the sample, in ms since the epoch.
+     * @param alias the stable name the entity was tracked with, such as "cam", or null.
+     */
+    void onSample(String entityId, String alias, long wallTimeMs, StatsRecord record)
+        throws IOException;
+  }
+
+  private static class Entity {
+
+    final String mId;
+    final String mAlias;
+    final long[] mValues = new long[StatsFileFormat.FIELD_COUNT];
+
+    Entity(String id, String alias) {
+      mId = id;
+      mAlias = alias;
+    }
+  }
+
+  private final InputStream mIn;
+  private final long mStartWallMs;
+  private final long mStartElapsedMs;
+  private final List<Entity> mEntities = new ArrayList<>();
+
+  public StatsFileReader(File file) throws IOException {
+    this(new BufferedInputStream(new FileInputStream(file)));
+  }
+
+  public StatsFileReader(InputStream in) throws IOException {
+    mIn = in;
+    for (byte b : StatsFileFormat.MAGIC) {
+      if (in.read() != b) {
+        throw new IOException("not a stats file");
+      }
+    }
+    int version = in.read();
+    if (version != StatsFileFormat.VERSION) {
+      throw new IOException("unsupported stats file version " + version);
+    }
+    mStartWallMs = StatsFileFormat.readVarint(in);
+    mStartElapsedMs = StatsFileFormat.readVarint(in);
+  }
+
+  /** Wall clock time the session started, in ms since the epoch. */
+  public long getStartWallMs() {
+    return mStartWallMs;
+  }
+
+  /** Names of the fields of a sample, in file order. */
+  public static String[] getFieldNames() {
+    return StatsFileFormat.FIELDS.clone();
+  }
+
+  /** Read every sample, in file order. */
+  public void read(SampleHandler handler) throws IOException {
+    while (true) {
+      int tag = mIn.read();
+      if (tag < 0) {
+        return;
+      }
+      try {
+        switch (tag) {
+          case StatsFileFormat.ENTITY:
+            readEntity();
+            break;
+          case StatsFileFormat.SAMPLE:
+            readSample(handler);
+            break;
+          default:
+            throw new IOException("unknown block " + tag);
+        }
+      } catch (EOFException e) {
+        // Truncated last block.
+        return;
+      }
+    }
+  }
+
+  private void readEntity() throws IOException {
+    long index = StatsFileFormat.readVarint(mIn);
+    String id = StatsFileFormat.readString(mIn);
+    String alias = StatsFileFormat.readString(mIn);
+    if (index != mEntities.size()) {
+      throw new IOException("unexpected entity index " + index);
+    }
+    mEntities.add(new Entity(id, alias.isEmpty() ? null : alias));
+  }
+
+  private void readSample(SampleHandler handler) throws IOException {
+    long index = StatsFileFormat.readVarint(mIn);
+    if (index < 0 || index >= mEntities.size()) {
+      throw new IOException("unknown entity index " + index);
+    }
+    Entity entity = mEntities.get((int) index);
+    // Decode the whole sample before touching the entity, in case it is truncated.
+    long[] values = new long[StatsFileFormat.FIELD_COUNT];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = entity.mValues[i] + StatsFileFormat.readSignedVarint(mIn);
+    }
+    System.arraycopy(values, 0, entity.mValues, 0, values.length);
+    long wallTimeMs = mStartWallMs + values[0] - mStartElapsedMs;
+    handler.onSample(entity.mId, entity.mAlias, wallTimeMs, StatsFileFormat.fromValues(values));
+  }
+
+  @Override
+  public void close() throws IOException {
+    mIn.close();
+  }
+}
@@ -0,0 +1,169 @@
+package org.mediasoup.droid.lib.stats;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Ring buffer of the last {@link #CAPACITY} samples of one entity, stored field by field in
+ * primitive arrays so that sampling allocates nothing. {@link StatsRecord} objects are only built
+ * when read.
+ *
+ * <p>Written by the sampler thread, readable from any thread.
+ */
+@SuppressWarnings("WeakerAccess")
+public class StatsHistory {
+
+  public static final int CAPACITY = 60;
+
+  private final boolean mTransport;
+  private final long[] mTimestamp = new long[CAPACITY];
+  private final long[] mBytesSent = new long[CAPACITY];
+  private final long[] mBytesReceived = new long[CAPACITY];
+  private final long[] mSendBitrate = new long[CAPACITY];
+  private final long[] mReceiveBitrate = new long[CAPACITY];
+  private final long[] mPacketsSent = new long[CAPACITY];
+  private final long[] mPacketsReceived = new long[CAPACITY];
+  private final long[] mPacketsLost = new long[CAPACITY];
+  private final double[] mFractionLost = new double[CAPACITY];
+  private final double[] mJitterMs = new double[CAPACITY];
+  private final double[] mRoundTripTimeMs = new double[CAPACITY];
+  private final long[] mFramesEncoded = new long[CAPACITY];
+  private final long[] mFramesDecoded = new long[CAPACITY];
+  private final long[] mFramesDropped = new long[CAPACITY];
+  private final double[] mEncodeTimeMs = new double[CAPACITY];
+  private final long[] mAvailableOutgoingBitrate = new long[CAPACITY];
+  // Total encode time of the latest sample, in seconds.
+  private double mTotalEncodeTime;
+  // Index of the oldest sample.
+  private int mStart;
+  private int mSize;
+
+  /** @param transport whether the entity is a transport rather than a producer or consumer. */
+  StatsHistory(boolean transport) {
+    mTransport = transport;
+  }
+
+  synchronized void add(long timestamp, @NonNull StatsParser.Totals totals) {
+    long bytesSent;
+    long bytesReceived;
+    double roundTripTime;
+    if (mTransport && totals.hasPair) {
+      bytesSent = totals.pairBytesSent;
+      bytesReceived = totals.pairBytesReceived;
+      roundTripTime = totals.pairRoundTripTime;
+    } else {
+      bytesSent = totals.bytesSent;
+      bytesReceived = totals.bytesReceived;
+      roundTripTime =
+          totals.rtpRoundTripTime >= 0 ? totals.rtpRoundTripTime : totals.pairRoundTripTime;
+    }
+
+    int previous = mSize > 0 ? index(mSize - 1) : -1;
+    int i;
+    if (mSize < CAPACITY) {
+      i = index(mSize);
+      mSize++;
+    } else {
+      i = mStart;
+      mStart = (mStart + 1) % CAPACITY;
+    }
+
+    mTimestamp[i] = timestamp;
+    mBytesSent[i] = bytesSent;
+    mBytesReceived[i] = bytesReceived;
+    mPacketsSent[i] = totals.packetsSent;
+    mPacketsReceived[i] = totals.packetsReceived;
+    mPacketsLost[i] = totals.packetsLost;
+    mJitterMs[i] = totals.jitter >= 0 ? totals.jitter * 1000 : -1;
+    mRoundTripTimeMs[i] = roundTripTime >= 0 ? roundTripTime * 1000 : -1;
+    mFramesEncoded[i] = totals.framesEncoded;
+    mFramesDecoded[i] = totals.framesDecoded;
+    mFramesDropped[i] = totals.framesDropped;
+    mAvailableOutgoingBitrate[i] = totals.availableOutgoingBitrate;
+
+    long interval = previous >= 0 ? timestamp - mTimestamp[previous] : 0;
+    if (interval > 0) {
+      mSendBitrate[i] = rate(bytesSent - mBytesSent[previous], interval);
+      mReceiveBitrate[i] = rate(bytesReceived - mBytesReceived[previous], interval);
+      long lost = Math.max(0, totals.packetsLost - mPacketsLost[previous]);
+      long received = totals.packetsReceived - mPacketsReceived[previous];
+      long sent = totals.packetsSent - mPacketsSent[previous];
+      // Inbound loss is against what arrived, outbound loss against what was sent.
+      long expected = totals.packetsReceived > 0 ? received + lost : sent;
+      mFractionLost[i] = expected > 0 ? Math.min(1, (double) lost / expected) : 0;
+      long frames = totals.framesEncoded - mFramesEncoded[previous];
+      mEncodeTimeMs[i] =
+          frames > 0 ? (totals.totalEncodeTime - mTotalEncodeTime) * 1000 / frames : -1;
+    } else {
+      mSendBitrate[i] = -1;
+      mReceiveBitrate[i] = -1;
+      mFractionLost[i] = -1;
+      mEncodeTimeMs[i] = -1;
+    }
+    mTotalEncodeTime = totals.totalEncodeTime;
+  }
+
+  private static long rate(long bytes, long intervalMs) {
+    // A counter going backwards means a new stream, not a negative rate.
+    return bytes >= 0 ? bytes * 8000 / intervalMs : -1;
+  }
+
+  private int index(int i) {
+    return (mStart + i) % CAPACITY;
+  }
+
+  public synchronized int size() {
+    return mSize;
+  }
+
+  /** Sample {@code i}, 0 being the oldest one kept. */
+  @NonNull
+  public synchronized StatsRecord get(int i) {
+    if (i < 0 || i >= mSize) {
+      throw new IndexOutOfBoundsException("index " + i + ", size " + mSize);
+    }
+    int j = index(i);
+    return new StatsRecord(
+        mTimestamp[j],
+        mBytesSent[j],
+        mBytesReceived[j],
+        mSendBitrate[j],
+        mReceiveBitrate[j],
+        mPacketsSent[j],
+        mPacketsReceived[j],
+        mPacketsLost[j],
+        mFractionLost[j],
+        mJitterMs[j],
+        mRoundTripTimeMs[j],
+        mFramesEncoded[j],
+        mFramesDecoded[j],
+        mFramesDropped[j],
+        mEncodeTimeMs[j],
+        mAvailableOutgoingBitrate[j]);
+  }
+
+  @Nullable
+  public synchronized StatsRecord getLatest() {
+    return mSize > 0 ? get(mSize - 1) : null;
+  }
+
+  /** Copy the send bitrates, oldest first, into {@code out} and return how many were copied. */
+  public synchronized int copySendBitrates(@NonNull long[] out) {
+    return copy(mSendBitrate, out);
+  }
+
+  /** Copy the receive bitrates, oldest first, into {@code out} and return how many were copied. */
+  public synchronized int copyReceiveBitrates(@NonNull long[] out) {
+    return copy(mReceiveBitrate, out);
+  }
+
+  private int copy(long[] values, long[] out) {
+    int count = Math.min(mSize, out.length);
+    // Most recent ones when out is shorter.
+    int first = mSize - count;
+    for (int k = 0; k < count; k++) {
+      out[k] = values[index(first + k)];
+    }
+    return count;
+  }
+}
@@ -0,0 +1,229 @@
+package org.mediasoup.droid.lib.stats;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * Streaming parser of the stats report returned by getStats() of transports, producers and
+ * consumers, an array (or an id keyed map) of RTCStats objects.
+ *
+ * <p>Only the few members a {@link StatsRecord} needs are read into a reusable {@link Totals},
+ * everything else is skipped without being materialized.
+ */
+class StatsParser {
+
+  /** Raw totals of one report, reused from one sample to the next. */
+  static class Totals {
+
+    long bytesSent;
+    long bytesReceived;
+    long packetsSent;
+    long packetsReceived;
+    long packetsLost;
+    long framesEncoded;
+    long framesDecoded;
+    long framesDropped;
+    // Seconds, as reported.
+    double totalEncodeTime;
+    double jitter;
+    double rtpRoundTripTime;
+    // Selected candidate pair.
+    long pairBytesSent;
+    long pairBytesReceived;
+    double pairRoundTripTime;
+    long availableOutgoingBitrate;
+    boolean hasPair;
+
+    void reset() {
+      bytesSent = 0;
+      bytesReceived = 0;
+      packetsSent = 0;
+      packetsReceived = 0;
+      packetsLost = 0;
+      framesEncoded = 0;
+      framesDecoded = 0;
+      framesDropped = 0;
+      totalEncodeTime = 0;
+      jitter = -1;
+      rtpRoundTripTime = -1;
+      pairBytesSent = 0;
+      pairBytesReceived = 0;
+      pairRoundTripTime = -1;
+      availableOutgoingBitrate = -1;
+      hasPair = false;
+    }
+  }
+
+  // Members of the RTCStats object being read.
+  private String mType;
+  private String mState;
+  private boolean mNominated;
+  private long mBytesSent;
+  private long mBytesReceived;
+  private long mPacketsSent;
+  private long mPacketsReceived;
+  private long mPacketsLost;
+  private long mFramesEncoded;
+  private long mFramesDecoded;
+  private long mFramesDropped;
+  private double mTotalEncodeTime;
+  private double mJitter;
+  private double mRoundTripTime;
+  private double mCurrentRoundTripTime;
+  private long mAvailableOutgoingBitrate;
+
+  void parse(@NonNull String report, @NonNull Totals totals) throws IOException {
+    totals.reset();
+    try (JsonReader reader = new JsonReader(new StringReader(report))) {
+      if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+        reader.beginArray();
+        while (reader.hasNext()) {
+          parseStats(reader, totals);
+        }
+        reader.endArray();
+      } else {
+        reader.beginObject();
+        while (reader.hasNext()) {
+          reader.nextName();
+          parseStats(reader, totals);
+        }
+        reader.endObject();
+      }
+    }
+  }
+
+  private void parseStats(JsonReader reader, Totals totals) throws IOException {
+    if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+      reader.skipValue();
+      return;
+    }
+    mType = null;
+    mState = null;
+    mNominated = false;
+    mBytesSent = 0;
+    mBytesReceived = 0;
+    mPacketsSent = 0;
+    mPacketsReceived = 0;
+    mPacketsLost = 0;
+    mFramesEncoded = 0;
+    mFramesDecoded = 0;
+    mFramesDropped = 0;
+    mTotalEncodeTime = 0;
+    mJitter = -1;
+    mRoundTripTime = -1;
+    mCurrentRoundTripTime = -1;
+    mAvailableOutgoingBitrate = -1;
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if (reader.peek() == JsonToken.NULL) {
+        reader.nextNull();
+        continue;
+      }
+      // Numbers may come as strings (64 bit members), JsonReader converts them.
+      switch (name) {
+        case "type":
+          mType = reader.nextString();
+          break;
+        case "state":
+          mState = reader.nextString();
+          break;
+        case "nominated":
+          mNominated = reader.nextBoolean();
+          break;
+        case "bytesSent":
+          mBytesSent = (long) reader.nextDouble();
+          break;
+        case "bytesReceived":
+          mBytesReceived = (long) reader.nextDouble();
+          break;
+        case "packetsSent":
+          mPacketsSent = (long) reader.nextDouble();
+          break;
+        case "packetsReceived":
+          mPacketsReceived = (long) reader.nextDouble();
+          break;
+        case "packetsLost":
+          mPacketsLost = (long) reader.nextDouble();
+          break;
+        case "framesEncoded":
+          mFramesEncoded = (long) reader.nextDouble();
+          break;
+        case "framesDecoded":
+          mFramesDecoded = (long) reader.nextDouble();
+          break;
+        case "framesDropped":
+          mFramesDropped = (long) reader.nextDouble();
+          break;
+        case "totalEncodeTime":
+          mTotalEncodeTime = reader.nextDouble();
+          break;
+        case "jitter":
+          mJitter = reader.nextDouble();
+          break;
+        case "roundTripTime":
+          mRoundTripTime = reader.nextDouble();
+          break;
+        case "currentRoundTripTime":
+          mCurrentRoundTripTime = reader.nextDouble();
+          break;
+        case "availableOutgoingBitrate":
+          mAvailableOutgoingBitrate = (long) reader.nextDouble();
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+
+    if (mType == null) {
+      return;
+    }
+    switch (mType) {
+      case "outbound-rtp":
+        totals.bytesSent += mBytesSent;
+        totals.packetsSent += mPacketsSent;
+        totals.framesEncoded += mFramesEncoded;
+        totals.totalEncodeTime += mTotalEncodeTime;
+        break;
+      case "inbound-rtp":
+        totals.bytesReceived += mBytesReceived;
+        totals.packetsReceived += mPacketsReceived;
+        totals.packetsLost += mPacketsLost;
+        totals.framesDecoded += mFramesDecoded;
+        totals.framesDropped += mFramesDropped;
+        totals.jitter = Math.max(totals.jitter, mJitter);
+        break;
+      case "remote-inbound-rtp":
+        // What the remote side saw of our outbound streams.
+        totals.packetsLost += mPacketsLost;
+        totals.jitter = Math.max(totals.jitter, mJitter);
+        totals.rtpRoundTripTime = Math.max(totals.rtpRoundTripTime, mRoundTripTime);
+        break;
+      case "track":
+        // Older WebRTC reports dropped frames on the track only.
+        totals.framesDropped += mFramesDropped;
+        break;
+      case "candidate-pair":
+        if ((mNominated || "succeeded".equals(mState))
+            && (!totals.hasPair
+                || mBytesSent + mBytesReceived
+                    > totals.pairBytesSent + totals.pairBytesReceived)) {
+          totals.hasPair = true;
+          totals.pairBytesSent = mBytesSent;
+          totals.pairBytesReceived = mBytesReceived;
+          totals.pairRoundTripTime = mCurrentRoundTripTime;
+          totals.availableOutgoingBitrate = mAvailableOutgoingBitrate;
+        }
+        break;
+      default:
+        break;
+    }
+  }
+}
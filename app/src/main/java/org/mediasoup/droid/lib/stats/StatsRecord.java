@@ -0,0 +1,157 @@
+package org.mediasoup.droid.lib.stats;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+
+/**
+ * One sample of the local WebRTC stats of a transport, producer or consumer.
+ *
+ * <p>Counters are totals since the entity was created. Rates and averages cover the interval since
+ * the previous sample. Values that the stats did not report are -1.
+ */
+@SuppressWarnings("WeakerAccess")
+public class StatsRecord {
+
+  final long mTimestamp;
+  final long mBytesSent;
+  final long mBytesReceived;
+  final long mSendBitrate;
+  final long mReceiveBitrate;
+  final long mPacketsSent;
+  final long mPacketsReceived;
+  final long mPacketsLost;
+  final double mFractionLost;
+  final double mJitterMs;
+  final double mRoundTripTimeMs;
+  final long mFramesEncoded;
+  final long mFramesDecoded;
+  final long mFramesDropped;
+  final double mEncodeTimeMs;
+  final long mAvailableOutgoingBitrate;
+
+  StatsRecord(
+      long timestamp,
+      long bytesSent,
+      long bytesReceived,
+      long sendBitrate,
+      long receiveBitrate,
+      long packetsSent,
+      long packetsReceived,
+      long packetsLost,
+      double fractionLost,
+      double jitterMs,
+      double roundTripTimeMs,
+      long framesEncoded,
+      long framesDecoded,
+      long framesDropped,
+      double encodeTimeMs,
+      long availableOutgoingBitrate) {
+    mTimestamp = timestamp;
+    mBytesSent = bytesSent;
+    mBytesReceived = bytesReceived;
+    mSendBitrate = sendBitrate;
+    mReceiveBitrate = receiveBitrate;
+    mPacketsSent = packetsSent;
+    mPacketsReceived = packetsReceived;
+    mPacketsLost = packetsLost;
+    mFractionLost = fractionLost;
+    mJitterMs = jitterMs;
+    mRoundTripTimeMs = roundTripTimeMs;
+    mFramesEncoded = framesEncoded;
+    mFramesDecoded = framesDecoded;
+    mFramesDropped = framesDropped;
+    mEncodeTimeMs = encodeTimeMs;
+    mAvailableOutgoingBitrate = availableOutgoingBitrate;
+  }
+
+  /** SystemClock.elapsedRealtime() of the sample. */
+  public long getTimestamp() {
+    return mTimestamp;
+  }
+
+  public long getBytesSent() {
+    return mBytesSent;
+  }
+
+  public long getBytesReceived() {
+    return mBytesReceived;
+  }
+
+  /** Bits per second. */
+  public long getSendBitrate() {
+    return mSendBitrate;
+  }
+
+  /** Bits per second. */
+  public long getReceiveBitrate() {
+    return mReceiveBitrate;
+  }
+
+  public long getPacketsSent() {
+    return mPacketsSent;
+  }
+
+  public long getPacketsReceived() {
+    return mPacketsReceived;
+  }
+
+  public long getPacketsLost() {
+    return mPacketsLost;
+  }
+
+  /** Lost share of the packets of the interval, 0 to 1. */
+  public double getFractionLost() {
+    return mFractionLost;
+  }
+
+  public double getJitterMs() {
+    return mJitterMs;
+  }
+
+  public double getRoundTripTimeMs() {
+    return mRoundTripTimeMs;
+  }
+
+  public long getFramesEncoded() {
+    return mFramesEncoded;
+  }
+
+  public long getFramesDecoded() {
+    return mFramesDecoded;
+  }
+
+  public long getFramesDropped() {
+    return mFramesDropped;
+  }
+
+  /** Average encode time per frame of the interval. */
+  public double getEncodeTimeMs() {
+    return mEncodeTimeMs;
+  }
+
+  /** Uplink estimate of the selected candidate pair, bits per second. */
+  public long getAvailableOutgoingBitrate() {
+    return mAvailableOutgoingBitrate;
+  }
+
+  @NonNull
+  @Override
+  public String toString() {
+    return String.format(
+        Locale.US,
+        "StatsRecord{sendBitrate=%d, receiveBitrate=%d, fractionLost=%.3f, jitterMs=%.1f,"
+            + " rttMs=%.1f, framesEncoded=%d, framesDecoded=%d, framesDropped=%d,"
+            + " encodeTimeMs=%.2f, availableOutgoingBitrate=%d}",
+        mSendBitrate,
+        mReceiveBitrate,
+        mFractionLost,
+        mJitterMs,
+        mRoundTripTimeMs,
+        mFramesEncoded,
+        mFramesDecoded,
+        mFramesDropped,
+        mEncodeTimeMs,
+        mAvailableOutgoingBitrate);
+  }
+}
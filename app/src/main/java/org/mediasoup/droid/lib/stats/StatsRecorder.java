@@ -0,0 +1,174 @@
+package org.mediasoup.droid.lib.stats;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import org.mediasoup.droid.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Appends every new sample of a {@link StatsSampler} to a file, one file per room session, in the
+ * compact {@link StatsFileFormat}. {@link StatsFileReader} reads them back.
+ *
+ * <p>Files go to {@code stats-<wall clock ms>.mss} in the given directory. Only the {@link
+ * #MAX_FILES} most recent sessions are kept and a file stops growing at {@link #MAX_FILE_BYTES}.
+ * Writes are buffered and flushed once per sampling pass, on the sampler thread.
+ */
+@SuppressWarnings("WeakerAccess")
+public class StatsRecorder implements StatsSampler.Listener {
+
+  private static final String TAG = "StatsRecorder";
+
+  public static final String FILE_PREFIX = "stats-";
+  public static final String FILE_SUFFIX = ".mss";
+  static final int MAX_FILES = 10;
+  static final long MAX_FILE_BYTES = 8 * 1024 * 1024;
+
+  private static class EntityState {
+
+    final int mIndex;
+    final long[] mPrevious = new long[StatsFileFormat.FIELD_COUNT];
+
+    EntityState(int index) {
+      mIndex = index;
+    }
+  }
+
+  private final File mDirectory;
+  // Guarded by this.
+  private final Map<String, EntityState> mEntities = new HashMap<>();
+  private final long[] mValues = new long[StatsFileFormat.FIELD_COUNT];
+  // One sample at most: index, and 10 bytes per field.
+  private final byte[] mBuffer = new byte[10 * (StatsFileFormat.FIELD_COUNT + 2)];
+  private final StatsSampler.Visitor mWriter = this::write;
+  @Nullable private File mFile;
+  @Nullable private OutputStream mOut;
+  private long mWritten;
+  // First write failure of the pass in progress.
+  @Nullable private IOException mError;
+  private boolean mClosed;
+
+  public StatsRecorder(@NonNull File directory) {
+    mDirectory = directory;
+  }
+
+  /** File of this session, null until the first sample. */
+  @Nullable
+  public synchronized File getFile() {
+    return mFile;
+  }
+
+  @WorkerThread
+  @Override
+  public synchronized void onSampled(@NonNull StatsSampler sampler) {
+    if (mClosed || mWritten >= MAX_FILE_BYTES) {
+      return;
+    }
+    try {
+      if (mOut == null) {
+        open();
+      }
+      sampler.forEach(mWriter);
+      if (mError != null) {
+        throw mError;
+      }
+      mOut.flush();
+    } catch (IOException e) {
+      Logger.e(TAG, "onSampled() failed, recording stops", e);
+      close();
+    }
+  }
+
+  private void open() throws IOException {
+    if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+      throw new IOException("cannot create " + mDirectory);
+    }
+    deleteOldFiles();
+    long startWallMs = System.currentTimeMillis();
+    mFile = new File(mDirectory, FILE_PREFIX + startWallMs + FILE_SUFFIX);
+    mOut = new BufferedOutputStream(new FileOutputStream(mFile), 16 * 1024);
+    mOut.write(StatsFileFormat.MAGIC);
+    mOut.write(StatsFileFormat.VERSION);
+    StatsFileFormat.writeVarint(mOut, startWallMs);
+    StatsFileFormat.writeVarint(mOut, SystemClock.elapsedRealtime());
+    Logger.d(TAG, "open() " + mFile);
+  }
+
+  // Keep MAX_FILES - 1 older sessions next to the new one.
+  private void deleteOldFiles() {
+    File[] files =
+        mDirectory.listFiles(
+            (dir, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+    if (files == null || files.length < MAX_FILES) {
+      return;
+    }
+    // Same length names, so the name order is the time order.
+    Arrays.sort(files);
+    for (int i = 0; i <= files.length - MAX_FILES; i++) {
+      if (!files[i].delete()) {
+        Logger.w(TAG, "deleteOldFiles() cannot delete " + files[i]);
+      }
+    }
+  }
+
+  private void write(String id, String alias, StatsHistory history) {
+    StatsRecord record = history.getLatest();
+    if (record == null || mError != null) {
+      return;
+    }
+    try {
+      EntityState state = mEntities.get(id);
+      if (state == null) {
+        state = new EntityState(mEntities.size());
+        mEntities.put(id, state);
+        mOut.write(StatsFileFormat.ENTITY);
+        StatsFileFormat.writeVarint(mOut, state.mIndex);
+        StatsFileFormat.writeString(mOut, id);
+        StatsFileFormat.writeString(mOut, alias);
+        mWritten += 3 + id.length() + (alias != null ? alias.length() : 0);
+      } else if (record.mTimestamp <= state.mPrevious[0]) {
+        // Not sampled again since the last pass.
+        return;
+      }
+
+      StatsFileFormat.toValues(record, mValues);
+      int length = 0;
+      mBuffer[length++] = StatsFileFormat.SAMPLE;
+      length = StatsFileFormat.putVarint(mBuffer, length, state.mIndex);
+      for (int i = 0; i < StatsFileFormat.FIELD_COUNT; i++) {
+        length = StatsFileFormat.putSignedVarint(mBuffer, length, mValues[i] - state.mPrevious[i]);
+        state.mPrevious[i] = mValues[i];
+      }
+      mOut.write(mBuffer, 0, length);
+      mWritten += length;
+    } catch (IOException e) {
+      mError = e;
+    }
+  }
+
+  /** Flush and close the file of the session, later samples are ignored. */
+  public synchronized void close() {
+    mClosed = true;
+    if (mOut == null) {
+      return;
+    }
+    try {
+      mOut.close();
+    } catch (IOException e) {
+      Logger.w(TAG, "close() failed: " + e.getMessage());
+    }
+    mOut = null;
+    Logger.d(TAG, "close() " + mFile + ", " + mWritten + " bytes");
+  }
+}
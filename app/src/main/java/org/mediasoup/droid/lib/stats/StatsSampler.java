@@ -0,0 +1,205 @@
+package org.mediasoup.droid.lib.stats;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import org.mediasoup.droid.Logger;
+import org.mediasoup.droid.MediasoupException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Polls getStats() of every tracked transport, producer and consumer every {@link #INTERVAL_MS}
+ * on its own thread, so that the JSON work never delays the room worker, and keeps a {@link
+ * StatsHistory} per entity.
+ *
+ * <p>An entity must be untracked before it is closed: {@link #untrack(String)} waits for a pass
+ * in progress, so getStats() is never called on a closed native object.
+ */
+@SuppressWarnings("WeakerAccess")
+public class StatsSampler {
+
+  private static final String TAG = "StatsSampler";
+
+  public static final long INTERVAL_MS = 2000;
+
+  public interface StatsSource {
+    @NonNull
+    String getStats() throws MediasoupException;
+  }
+
+  public interface Listener {
+    /** Called on the sampler thread after each pass. */
+    @WorkerThread
+    void onSampled(@NonNull StatsSampler sampler);
+  }
+
+  public interface Visitor {
+    void visit(@NonNull String id, @Nullable String alias, @NonNull StatsHistory history);
+  }
+
+  private static class Entity {
+
+    final String mId;
+    final String mAlias;
+    final String mGroup;
+    final StatsSource mSource;
+    final StatsHistory mHistory;
+
+    Entity(String id, String alias, String group, boolean transport, StatsSource source) {
+      mId = id;
+      mAlias = alias;
+      mGroup = group;
+      mSource = source;
+      mHistory = new StatsHistory(transport);
+    }
+  }
+
+  private final Object mLock = new Object();
+  private final Map<String, Entity> mEntities = new ConcurrentHashMap<>();
+  private final Map<String, Entity> mAliases = new ConcurrentHashMap<>();
+  // Only touched on the sampler thread, under mLock.
+  private final StatsParser mParser = new StatsParser();
+  private final StatsParser.Totals mTotals = new StatsParser.Totals();
+  private final List<Entity> mPass = new ArrayList<>();
+  private final Runnable mSample = this::sample;
+  private final CopyOnWriteArrayList<Listener> mListeners = new CopyOnWriteArrayList<>();
+  @Nullable private HandlerThread mThread;
+  @Nullable private Handler mHandler;
+
+  public StatsSampler(@Nullable Listener listener) {
+    if (listener != null) {
+      mListeners.add(listener);
+    }
+  }
+
+  public void addListener(@NonNull Listener listener) {
+    mListeners.addIfAbsent(listener);
+  }
+
+  public void removeListener(@NonNull Listener listener) {
+    mListeners.remove(listener);
+  }
+
+  public synchronized void start() {
+    if (mThread != null) {
+      return;
+    }
+    mThread = new HandlerThread("stats");
+    mThread.start();
+    mHandler = new Handler(mThread.getLooper());
+    mHandler.postDelayed(mSample, INTERVAL_MS);
+  }
+
+  public synchronized void stop() {
+    if (mThread == null) {
+      return;
+    }
+    mHandler.removeCallbacks(mSample);
+    mThread.quit();
+    mThread = null;
+    mHandler = null;
+    synchronized (mLock) {
+      mEntities.clear();
+      mAliases.clear();
+    }
+  }
+
+  /**
+   * @param alias optional stable name to query the entity by, such as "cam".
+   * @param group optional name to untrack several entities at once, such as their transport id.
+   */
+  public void track(
+      @NonNull String id,
+      @Nullable String alias,
+      @Nullable String group,
+      boolean transport,
+      @NonNull StatsSource source) {
+    Entity entity = new Entity(id, alias, group, transport, source);
+    synchronized (mLock) {
+      mEntities.put(id, entity);
+      if (alias != null) {
+        mAliases.put(alias, entity);
+      }
+    }
+  }
+
+  public void untrack(@NonNull String id) {
+    synchronized (mLock) {
+      Entity entity = mEntities.remove(id);
+      if (entity != null && entity.mAlias != null) {
+        mAliases.remove(entity.mAlias, entity);
+      }
+    }
+  }
+
+  public void untrackGroup(@NonNull String group) {
+    synchronized (mLock) {
+      for (Entity entity : new ArrayList<>(mEntities.values())) {
+        if (group.equals(entity.mGroup) || group.equals(entity.mId)) {
+          untrack(entity.mId);
+        }
+      }
+    }
+  }
+
+  @Nullable
+  public StatsHistory getHistory(@NonNull String idOrAlias) {
+    Entity entity = mAliases.get(idOrAlias);
+    if (entity == null) {
+      entity = mEntities.get(idOrAlias);
+    }
+    return entity != null ? entity.mHistory : null;
+  }
+
+  @Nullable
+  public StatsRecord getLatest(@NonNull String idOrAlias) {
+    StatsHistory history = getHistory(idOrAlias);
+    return history != null ? history.getLatest() : null;
+  }
+
+  /** Visit every tracked entity. */
+  public void forEach(@NonNull Visitor visitor) {
+    for (Entity entity : mEntities.values()) {
+      visitor.visit(entity.mId, entity.mAlias, entity.mHistory);
+    }
+  }
+
+  @WorkerThread
+  private void sample() {
+    long start = SystemClock.elapsedRealtime();
+    synchronized (mLock) {
+      mPass.clear();
+      mPass.addAll(mEntities.values());
+      for (Entity entity : mPass) {
+        try {
+          mParser.parse(entity.mSource.getStats(), mTotals);
+          entity.mHistory.add(SystemClock.elapsedRealtime(), mTotals);
+        } catch (Exception e) {
+          Logger.w(TAG, "sample() " + entity.mId + " failed: " + e.getMessage());
+        }
+      }
+      mPass.clear();
+    }
+    for (Listener listener : mListeners) {
+      listener.onSampled(this);
+    }
+
+    synchronized (this) {
+      if (mHandler != null) {
+        // Keep the period whatever the pass took.
+        long elapsed = SystemClock.elapsedRealtime() - start;
+        mHandler.postDelayed(mSample, Math.max(INTERVAL_MS / 4, INTERVAL_MS - elapsed));
+      }
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package org.mediasoup.droid.lib;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ConsumerLayerControllerTest {
+
+  // 1280x720 top layer, so 640x360 and 320x180 below it.
+  private static final long TOP_LAYER_AREA = 1280 * 720;
+  private static final long LOW_LAYER_AREA = 320 * 180;
+  private static final long MIDDLE_LAYER_AREA = 640 * 360;
+
+  @Test
+  public void parsesScalabilityModes() {
+    assertArrayEquals(new int[] {1, 3}, ConsumerLayerController.parseLayers(rtpParameters("L1T3")));
+    assertArrayEquals(new int[] {3, 3}, ConsumerLayerController.parseLayers(rtpParameters("L3T3")));
+    assertArrayEquals(new int[] {3, 3}, ConsumerLayerController.parseLayers(rtpParameters("S3T3")));
+    assertArrayEquals(
+        new int[] {2, 3}, ConsumerLayerController.parseLayers(rtpParameters("L2T3_KEY")));
+  }
+
+  @Test
+  public void fallsBackToASingleLayerOnMalformedParameters() {
+    int[] single = {1, 1};
+    assertArrayEquals(single, ConsumerLayerController.parseLayers(null));
+    assertArrayEquals(single, ConsumerLayerController.parseLayers(""));
+    assertArrayEquals(single, ConsumerLayerController.parseLayers("{\"encodings\":"));
+    assertArrayEquals(single, ConsumerLayerController.parseLayers("{}"));
+    assertArrayEquals(single, ConsumerLayerController.parseLayers("{\"encodings\":[]}"));
+    assertArrayEquals(single, ConsumerLayerController.parseLayers("{\"encodings\":\"L3T3\"}"));
+    assertArrayEquals(single, ConsumerLayerController.parseLayers("{\"encodings\":[{}]}"));
+    assertArrayEquals(single, ConsumerLayerController.parseLayers(rtpParameters("X3T3")));
+    assertArrayEquals(single, ConsumerLayerController.parseLayers(rtpParameters("LxT3")));
+  }
+
+  @Test
+  public void picksTheSmallestLayerCoveringSixtyPercentOfTheView() {
+    // A layer covering exactly 60% of the view is enough, one pixel more is not.
+    long lowLimit = LOW_LAYER_AREA * 10 / 6;
+    assertEquals(0, ConsumerLayerController.selectSpatialLayer(lowLimit, TOP_LAYER_AREA, 3));
+    assertEquals(1, ConsumerLayerController.selectSpatialLayer(lowLimit + 1, TOP_LAYER_AREA, 3));
+    long middleLimit = MIDDLE_LAYER_AREA * 10 / 6;
+    assertEquals(1, ConsumerLayerController.selectSpatialLayer(middleLimit, TOP_LAYER_AREA, 3));
+    assertEquals(
+        2, ConsumerLayerController.selectSpatialLayer(middleLimit + 1, TOP_LAYER_AREA, 3));
+  }
+
+  @Test
+  public void staysWithinTheAvailableLayers() {
+    assertEquals(0, ConsumerLayerController.selectSpatialLayer(1, TOP_LAYER_AREA, 3));
+    assertEquals(2, ConsumerLayerController.selectSpatialLayer(4096 * 2160, TOP_LAYER_AREA, 3));
+    assertEquals(0, ConsumerLayerController.selectSpatialLayer(4096 * 2160, TOP_LAYER_AREA, 1));
+    // Two layers: 640x360 and 1280x720.
+    assertEquals(0, ConsumerLayerController.selectSpatialLayer(384000, TOP_LAYER_AREA, 2));
+    assertEquals(1, ConsumerLayerController.selectSpatialLayer(384001, TOP_LAYER_AREA, 2));
+  }
+
+  private static String rtpParameters(String scalabilityMode) {
+    return "{\"codecs\":[],\"encodings\":[{\"ssrc\":1234,\"scalabilityMode\":\""
+        + scalabilityMode
+        + "\"},{\"ssrc\":5678}]}";
+  }
+}
@@ -0,0 +1,86 @@
+package org.mediasoup.droid.lib.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class HashTrieMapTest {
+
+  @Test
+  public void behavesLikeALinkedHashMap() {
+    Random random = new Random(42);
+    Map<String, Integer> expected = new LinkedHashMap<>();
+    HashTrieMap<Integer> map = HashTrieMap.empty();
+    List<String> keys = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      keys.add("consumer-" + i);
+    }
+    // Same String hash codes.
+    keys.addAll(Arrays.asList("AaAa", "AaBB", "BBAa", "BBBB"));
+
+    for (int step = 0; step < 20000; step++) {
+      String key = keys.get(random.nextInt(keys.size()));
+      if (random.nextInt(3) == 0) {
+        expected.remove(key);
+        map = map.remove(key);
+      } else {
+        expected.put(key, step);
+        map = map.put(key, step);
+      }
+      assertEquals(expected.size(), map.size());
+      assertEquals(expected.get(key), map.get(key));
+    }
+
+    for (String key : keys) {
+      assertEquals(expected.get(key), map.get(key));
+      assertEquals(expected.containsKey(key), map.containsKey(key));
+    }
+    assertEquals(new ArrayList<>(expected.values()), map.values());
+  }
+
+  @Test
+  public void leavesPreviousVersionsUntouched() {
+    HashTrieMap<String> v1 = HashTrieMap.<String>empty().put("a", "1").put("b", "2");
+    HashTrieMap<String> v2 = v1.put("a", "3").remove("b").put("c", "4");
+
+    assertEquals(Arrays.asList("1", "2"), v1.values());
+    assertEquals(Arrays.asList("3", "4"), v2.values());
+    assertNull(v2.get("b"));
+  }
+
+  @Test
+  public void returnsTheSameMapWhenNothingChanges() {
+    String value = "value";
+    HashTrieMap<String> map = HashTrieMap.<String>empty().put("key", value);
+
+    assertSame(map, map.put("key", value));
+    assertSame(map, map.remove("missing"));
+    assertTrue(map.remove("key").isEmpty());
+    assertFalse(map.isEmpty());
+  }
+
+  @Test
+  public void collidingKeysCanBeRemovedInAnyOrder() {
+    HashTrieMap<String> map = HashTrieMap.empty();
+    for (String key : new String[] {"AaAa", "AaBB", "BBAa", "BBBB", "x"}) {
+      map = map.put(key, key);
+    }
+
+    map = map.remove("AaBB").remove("x").remove("BBBB");
+
+    assertEquals(Arrays.asList("AaAa", "BBAa"), map.values());
+    assertEquals("BBAa", map.get("BBAa"));
+    assertNull(map.get("BBBB"));
+  }
+}
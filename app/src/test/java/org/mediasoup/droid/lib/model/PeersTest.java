@@ -0,0 +1,59 @@
+package org.mediasoup.droid.lib.model;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class PeersTest {
+
+  private static final int PEER_COUNT = 200;
+
+  @Test
+  public void buildsALargeRoom() throws JSONException {
+    Peers peers = new Peers();
+    for (int i = 0; i < PEER_COUNT; i++) {
+      String peerId = "peer" + i;
+      peers = peers.addPeer(peerId, peerInfo(peerId));
+      peers = peers.addConsumer(peerId, peerId + "-audio");
+      peers = peers.addConsumer(peerId, peerId + "-video");
+    }
+    for (int i = 0; i < PEER_COUNT; i++) {
+      peers = peers.setPeerDisplayName("peer" + i, "renamed" + i);
+    }
+    for (int i = 0; i < PEER_COUNT; i += 2) {
+      String peerId = "peer" + i;
+      peers = peers.removeConsumer(peerId, peerId + "-video");
+      peers = peers.removePeer(peerId);
+    }
+
+    assertEquals(PEER_COUNT / 2, peers.getAllPeers().size());
+    assertNull(peers.getPeer("peer0"));
+    Peer peer = peers.getPeer("peer1");
+    assertEquals("renamed1", peer.getDisplayName());
+    assertEquals(2, peer.getConsumers().size());
+  }
+
+  @Test
+  public void sharesUnchangedPeers() throws JSONException {
+    Peers peers = new Peers().addPeer("a", peerInfo("a")).addPeer("b", peerInfo("b"));
+    peers = peers.addConsumer("a", "c1");
+
+    Peers renamed = peers.setPeerDisplayName("a", "alice");
+
+    assertSame(peers.getPeer("b"), renamed.getPeer("b"));
+    assertNotSame(peers.getPeer("a"), renamed.getPeer("a"));
+    assertEquals("a", peers.getPeer("a").getDisplayName());
+    assertSame(peers, peers.addConsumer("a", "c1"));
+    assertSame(peers, peers.removeConsumer("b", "c1"));
+    assertSame(peers, peers.removePeer("unknown"));
+  }
+
+  private static JSONObject peerInfo(String peerId) throws JSONException {
+    return new JSONObject().put("id", peerId).put("displayName", peerId);
+  }
+}
@@ -0,0 +1,103 @@
+package org.mediasoup.droid.lib.socket;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DecorrelatedJitterSchedulerTest {
+
+  private static final long BASE_MS = 500;
+  private static final long MAX_MS = 8000;
+  private static final int MAX_ATTEMPTS = 10;
+
+  @Test
+  public void delaysStayWithinBounds() {
+    for (long seed = 0; seed < 100; seed++) {
+      ReconnectScheduler scheduler = scheduler(new Random(seed));
+      long previous = BASE_MS;
+      for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+        long delay = scheduler.nextDelayMs();
+        assertTrue("seed " + seed + ": " + delay, delay >= BASE_MS && delay <= MAX_MS);
+        // At most three times the previous delay.
+        assertTrue("seed " + seed + ": " + delay, delay <= Math.max(BASE_MS + 1, previous * 3));
+        previous = delay;
+      }
+    }
+  }
+
+  @Test
+  public void sameSeedSameDelays() {
+    ReconnectScheduler first = scheduler(new Random(7));
+    ReconnectScheduler second = scheduler(new Random(7));
+    for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+      assertEquals(first.nextDelayMs(), second.nextDelayMs());
+    }
+  }
+
+  @Test
+  public void backsOffUpToTheCap() {
+    // Always the top of the range, three times the previous delay until capped.
+    ReconnectScheduler scheduler = scheduler(new FixedRandom(1));
+    assertEquals(1500, scheduler.nextDelayMs());
+    assertEquals(4500, scheduler.nextDelayMs());
+    assertEquals(MAX_MS, scheduler.nextDelayMs());
+    assertEquals(MAX_MS, scheduler.nextDelayMs());
+
+    // Always the bottom of the range.
+    scheduler = scheduler(new FixedRandom(0));
+    for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+      assertEquals(BASE_MS, scheduler.nextDelayMs());
+    }
+  }
+
+  @Test
+  public void givesUpAfterMaxAttempts() {
+    ReconnectScheduler scheduler = scheduler(new Random(1));
+    for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+      assertTrue(scheduler.nextDelayMs() >= BASE_MS);
+      assertEquals(attempt, scheduler.getAttempts());
+    }
+
+    assertEquals(-1, scheduler.nextDelayMs());
+    assertEquals(-1, scheduler.nextDelayMs());
+    assertEquals(MAX_ATTEMPTS, scheduler.getAttempts());
+  }
+
+  @Test
+  public void resetStartsOver() {
+    ReconnectScheduler scheduler = scheduler(new FixedRandom(1));
+    for (int attempt = 0; attempt <= MAX_ATTEMPTS; attempt++) {
+      scheduler.nextDelayMs();
+    }
+
+    scheduler.reset();
+
+    assertEquals(0, scheduler.getAttempts());
+    // Three times the base delay again, not the capped one.
+    assertEquals(1500, scheduler.nextDelayMs());
+    assertEquals(4500, scheduler.nextDelayMs());
+    assertEquals(2, scheduler.getAttempts());
+  }
+
+  private static ReconnectScheduler scheduler(Random random) {
+    return new DecorrelatedJitterScheduler(BASE_MS, MAX_MS, MAX_ATTEMPTS, random);
+  }
+
+  // nextDouble() is in [0, 1), 1 stands for its upper end.
+  private static class FixedRandom extends Random {
+
+    private final double mValue;
+
+    FixedRandom(double value) {
+      mValue = value;
+    }
+
+    @Override
+    public double nextDouble() {
+      return mValue;
+    }
+  }
+}
@@ -0,0 +1,188 @@
+package org.mediasoup.droid.lib.socket;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MessagePackCodecTest {
+
+  @Test
+  public void roundTripsEveryJsonType() throws Exception {
+    char[] longChars = new char[300];
+    Arrays.fill(longChars, 'x');
+    JSONObject data = new JSONObject();
+    data.put("fixint", 7);
+    data.put("negative", -5);
+    data.put("int8", -100);
+    data.put("uint16", 60000);
+    data.put("int32", -70000);
+    data.put("uint32", 3000000000L);
+    data.put("int64", -(1L << 40));
+    data.put("double", 0.25);
+    data.put("true", true);
+    data.put("false", false);
+    data.put("nil", JSONObject.NULL);
+    data.put("short", "h\u00e9llo");
+    data.put("str8", "a string longer than thirty one bytes");
+    data.put("str16", new String(longChars));
+    data.put("array", new JSONArray().put(1).put("two").put(new JSONObject().put("three", 3)));
+    JSONObject map16 = new JSONObject();
+    for (int i = 0; i < 20; i++) {
+      map16.put("key" + i, i);
+    }
+    data.put("map16", map16);
+    JSONObject message =
+        new JSONObject()
+            .put("request", true)
+            .put("id", 12345678)
+            .put("method", "produce")
+            .put("data", data);
+
+    byte[] encoded = MessagePackCodec.encode(message);
+
+    assertJsonEquals(message, MessagePackCodec.decode(encoded));
+  }
+
+  @Test
+  public void integralDoublesAreEncodedAsIntegers() throws Exception {
+    byte[] encoded = MessagePackCodec.encode(new JSONObject().put("value", 2.0));
+
+    assertArrayEquals(new byte[] {(byte) 0x81, (byte) 0xa5, 'v', 'a', 'l', 'u', 'e', 2}, encoded);
+  }
+
+  @Test
+  public void rejectsMalformedFrames() throws Exception {
+    byte[] encoded = MessagePackCodec.encode(new JSONObject().put("method", "peerClosed"));
+    assertDecodeFails(Arrays.copyOf(encoded, encoded.length - 1));
+    assertDecodeFails(Arrays.copyOf(encoded, encoded.length + 1));
+    // Top level array.
+    assertDecodeFails(new byte[] {(byte) 0x91, 1});
+    // Integer map key.
+    assertDecodeFails(new byte[] {(byte) 0x81, 1, 2});
+    // bin 8.
+    assertDecodeFails(new byte[] {(byte) 0x81, (byte) 0xa1, 'b', (byte) 0xc4, 1, 0});
+    // Length beyond the frame.
+    assertDecodeFails(new byte[] {(byte) 0xdf, 0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xff});
+  }
+
+  @Test
+  public void decodesNotificationsStraightFromTheFrame() throws Exception {
+    byte[] frame =
+        MessagePackFrames.notification(
+            "consumerScore",
+            new JSONObject(
+                "{\"consumerId\":\"c1\",\"score\":"
+                    + "{\"score\":9,\"producerScore\":8,\"producerScores\":[8,7,0]},"
+                    + "\"extra\":{\"ignored\":[1,{\"a\":null}]}}"));
+
+    RoomNotification notification = NotificationDecoder.decode(frame);
+
+    assertNotNull(notification);
+    RoomNotification.ConsumerScore consumerScore = (RoomNotification.ConsumerScore) notification;
+    assertEquals("c1", consumerScore.getConsumerId());
+    assertEquals(9, consumerScore.getScore().getScore());
+    assertEquals(8, consumerScore.getScore().getProducerScore());
+    assertEquals(3, consumerScore.getScore().getCount());
+    assertEquals(7, consumerScore.getScore().getScore(1));
+  }
+
+  @Test
+  public void decodesProducerScoreAndNullPeerIds() throws Exception {
+    RoomNotification producerScore =
+        NotificationDecoder.decode(
+            MessagePackFrames.notification(
+                "producerScore",
+                new JSONObject(
+                    "{\"producerId\":\"p1\",\"score\":"
+                        + "[{\"score\":10,\"ssrc\":4000000000},{\"score\":3,\"ssrc\":2}]}")));
+    RoomNotification activeSpeaker =
+        NotificationDecoder.decode(
+            MessagePackFrames.notification(
+                "activeSpeaker", new JSONObject().put("peerId", JSONObject.NULL)));
+
+    assertNotNull(producerScore);
+    RoomNotification.ProducerScore score = (RoomNotification.ProducerScore) producerScore;
+    assertEquals("p1", score.getProducerId());
+    assertEquals(2, score.getScore().getCount());
+    assertEquals(4000000000L, score.getScore().getSsrc(0));
+    assertEquals(10, score.getScore().getScore());
+    assertNotNull(activeSpeaker);
+    assertNull(((RoomNotification.PeerChanged) activeSpeaker).getPeerId());
+  }
+
+  @Test
+  public void leavesOtherMessagesToProtoo() throws Exception {
+    assertNull(
+        NotificationDecoder.decode(
+            MessagePackFrames.map(
+                "request", true, "method", "newConsumer", "data", new JSONObject())));
+    assertNull(
+        NotificationDecoder.decode(
+            MessagePackFrames.notification("newPeer", new JSONObject().put("id", "p"))));
+    // Data before method.
+    assertNull(
+        NotificationDecoder.decode(
+            MessagePackFrames.map(
+                "notification",
+                true,
+                "data",
+                new JSONObject().put("peerId", "p"),
+                "method",
+                "peerClosed")));
+    // Trailing bytes.
+    byte[] frame =
+        MessagePackFrames.notification("peerClosed", new JSONObject().put("peerId", "p"));
+    assertNotNull(NotificationDecoder.decode(frame));
+    assertNull(NotificationDecoder.decode(Arrays.copyOf(frame, frame.length + 1)));
+  }
+
+  private static void assertDecodeFails(byte[] bytes) {
+    try {
+      MessagePackCodec.decode(bytes);
+      fail("decoded " + Arrays.toString(bytes));
+    } catch (IOException expected) {
+      // Expected.
+    }
+    assertNull(NotificationDecoder.decode(bytes));
+  }
+
+  private static void assertJsonEquals(Object expected, Object actual) {
+    if (expected instanceof JSONObject) {
+      assertTrue(actual instanceof JSONObject);
+      JSONObject expectedObject = (JSONObject) expected;
+      JSONObject actualObject = (JSONObject) actual;
+      assertEquals(expectedObject.length(), actualObject.length());
+      Iterator<String> keys = expectedObject.keys();
+      while (keys.hasNext()) {
+        String key = keys.next();
+        assertJsonEquals(expectedObject.opt(key), actualObject.opt(key));
+      }
+    } else if (expected instanceof JSONArray) {
+      assertTrue(actual instanceof JSONArray);
+      JSONArray expectedArray = (JSONArray) expected;
+      JSONArray actualArray = (JSONArray) actual;
+      assertEquals(expectedArray.length(), actualArray.length());
+      for (int i = 0; i < expectedArray.length(); i++) {
+        assertJsonEquals(expectedArray.opt(i), actualArray.opt(i));
+      }
+    } else if (expected instanceof Number) {
+      assertTrue(actual instanceof Number);
+      assertEquals(((Number) expected).doubleValue(), ((Number) actual).doubleValue(), 0);
+      assertFalse(expected instanceof Long && actual instanceof Integer);
+    } else {
+      assertEquals(expected, actual);
+    }
+  }
+}
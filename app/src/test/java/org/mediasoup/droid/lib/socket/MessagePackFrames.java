@@ -0,0 +1,36 @@
+package org.mediasoup.droid.lib.socket;
+
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+
+/** Builds protoo frames with their keys in a given order, which org.json does not keep. */
+final class MessagePackFrames {
+
+  private MessagePackFrames() {}
+
+  /** {"notification":true,"method":method,"data":data}, in that order as protoo writes it. */
+  static byte[] notification(String method, JSONObject data) {
+    return map("notification", true, "method", method, "data", data);
+  }
+
+  /** A map of the given keys and values, which are booleans, short strings or JSONObjects. */
+  static byte[] map(Object... keysAndValues) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(0x80 | keysAndValues.length / 2);
+    for (Object value : keysAndValues) {
+      if (value instanceof Boolean) {
+        out.write((Boolean) value ? 0xc3 : 0xc2);
+      } else if (value instanceof String) {
+        byte[] bytes = ((String) value).getBytes(Charset.forName("UTF-8"));
+        out.write(0xa0 | bytes.length);
+        out.write(bytes, 0, bytes.length);
+      } else {
+        byte[] bytes = MessagePackCodec.encode((JSONObject) value);
+        out.write(bytes, 0, bytes.length);
+      }
+    }
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,204 @@
+package org.mediasoup.droid.lib.socket;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.ByteString;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The "protoo-msgpack" sub-protocol against a stand-in server, which picks it when offered and
+ * answers every request, in MessagePack or JSON depending on the negotiated sub-protocol.
+ */
+public class MessagePackLoopbackTest {
+
+  private static final long TIMEOUT_S = 5;
+
+  private final MockWebServer mServer = new MockWebServer();
+  private final OkHttpClient mClient = new OkHttpClient();
+  private final BlockingQueue<Response> mOpened = new LinkedBlockingQueue<>();
+  // Frames received by the client, String or ByteString.
+  private final BlockingQueue<Object> mReceived = new LinkedBlockingQueue<>();
+
+  @Before
+  public void setUp() throws IOException {
+    mServer.setDispatcher(
+        new Dispatcher() {
+          @Override
+          public MockResponse dispatch(RecordedRequest request) {
+            String offered = request.getHeader(WebSocketTransport.HEADER_PROTOCOL);
+            boolean binary =
+                offered != null && offered.contains(WebSocketTransport.PROTOCOL_MSGPACK);
+            return new MockResponse()
+                .setHeader(
+                    WebSocketTransport.HEADER_PROTOCOL,
+                    binary ? WebSocketTransport.PROTOCOL_MSGPACK : WebSocketTransport.PROTOCOL_JSON)
+                .withWebSocketUpgrade(new StandInServer(binary));
+          }
+        });
+    mServer.start();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    mClient.dispatcher().executorService().shutdown();
+    mServer.shutdown();
+  }
+
+  @Test
+  public void exchangesMessagePackFramesWhenOffered() throws Exception {
+    WebSocket socket = connect(true);
+
+    Response response = mOpened.poll(TIMEOUT_S, TimeUnit.SECONDS);
+    assertNotNull(response);
+    assertTrue(WebSocketTransport.isBinaryFraming(response));
+
+    // Notification pushed by the server.
+    ByteString notificationFrame = (ByteString) mReceived.poll(TIMEOUT_S, TimeUnit.SECONDS);
+    assertNotNull(notificationFrame);
+    RoomNotification notification = NotificationDecoder.decode(notificationFrame.toByteArray());
+    assertNotNull(notification);
+    assertEquals(RoomNotification.CONSUMER_SCORE, notification.getMethod());
+    assertEquals("c1", ((RoomNotification.ConsumerScore) notification).getConsumerId());
+
+    // Request and its response.
+    JSONObject request =
+        new JSONObject()
+            .put("request", true)
+            .put("id", 42)
+            .put("method", "getRouterRtpCapabilities")
+            .put("data", new JSONObject());
+    assertTrue(socket.send(ByteString.of(MessagePackCodec.encode(request))));
+    ByteString responseFrame = (ByteString) mReceived.poll(TIMEOUT_S, TimeUnit.SECONDS);
+    assertNotNull(responseFrame);
+    // Left to protoo.
+    assertNull(NotificationDecoder.decode(responseFrame.toByteArray()));
+    JSONObject answer = MessagePackCodec.decode(responseFrame.toByteArray());
+    assertTrue(answer.getBoolean("response"));
+    assertEquals(42, answer.getLong("id"));
+    assertEquals("getRouterRtpCapabilities", answer.getJSONObject("data").getString("method"));
+
+    socket.close(1000, "bye");
+  }
+
+  @Test
+  public void staysOnJsonWhenNotOffered() throws Exception {
+    WebSocket socket = connect(false);
+
+    Response response = mOpened.poll(TIMEOUT_S, TimeUnit.SECONDS);
+    assertNotNull(response);
+    assertFalse(WebSocketTransport.isBinaryFraming(response));
+    Object notificationFrame = mReceived.poll(TIMEOUT_S, TimeUnit.SECONDS);
+    assertTrue(notificationFrame instanceof String);
+    assertEquals(
+        RoomNotification.CONSUMER_SCORE, new JSONObject((String) notificationFrame).get("method"));
+
+    socket.close(1000, "bye");
+  }
+
+  private WebSocket connect(boolean offerBinaryFraming) {
+    return mClient.newWebSocket(
+        new Request.Builder()
+            .url(mServer.url("/"))
+            .addHeader(
+                WebSocketTransport.HEADER_PROTOCOL,
+                WebSocketTransport.offeredProtocols(offerBinaryFraming))
+            .build(),
+        new WebSocketListener() {
+          @Override
+          public void onOpen(WebSocket webSocket, Response response) {
+            mOpened.add(response);
+          }
+
+          @Override
+          public void onMessage(WebSocket webSocket, String text) {
+            mReceived.add(text);
+          }
+
+          @Override
+          public void onMessage(WebSocket webSocket, ByteString bytes) {
+            mReceived.add(bytes);
+          }
+        });
+  }
+
+  private static class StandInServer extends WebSocketListener {
+
+    private final boolean mBinary;
+
+    StandInServer(boolean binary) {
+      mBinary = binary;
+    }
+
+    @Override
+    public void onOpen(WebSocket webSocket, Response response) {
+      try {
+        JSONObject data =
+            new JSONObject(
+                "{\"consumerId\":\"c1\",\"score\":"
+                    + "{\"score\":10,\"producerScore\":10,\"producerScores\":[10]}}");
+        if (mBinary) {
+          webSocket.send(ByteString.of(MessagePackFrames.notification("consumerScore", data)));
+        } else {
+          webSocket.send(
+              new JSONObject()
+                  .put("notification", true)
+                  .put("method", "consumerScore")
+                  .put("data", data)
+                  .toString());
+        }
+      } catch (JSONException e) {
+        throw new AssertionError(e);
+      }
+    }
+
+    @Override
+    public void onMessage(WebSocket webSocket, ByteString bytes) {
+      try {
+        JSONObject request = MessagePackCodec.decode(bytes.toByteArray());
+        webSocket.send(ByteString.of(MessagePackCodec.encode(answer(request))));
+      } catch (IOException | JSONException e) {
+        throw new AssertionError(e);
+      }
+    }
+
+    @Override
+    public void onMessage(WebSocket webSocket, String text) {
+      try {
+        webSocket.send(answer(new JSONObject(text)).toString());
+      } catch (JSONException e) {
+        throw new AssertionError(e);
+      }
+    }
+
+    private static JSONObject answer(JSONObject request) throws JSONException {
+      return new JSONObject()
+          .put("response", true)
+          .put("id", request.getLong("id"))
+          .put("ok", true)
+          .put("data", new JSONObject().put("method", request.getString("method")));
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package org.mediasoup.droid.lib.socket;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReconnectMetricsTest {
+
+  @Test
+  public void noPercentileWithoutReconnections() {
+    ReconnectMetrics metrics = new ReconnectMetrics();
+
+    assertEquals(-1, metrics.getTimeToReconnectMs(50));
+    assertEquals(-1, metrics.getTimeToReconnectMs(99));
+  }
+
+  @Test
+  public void nearestRankPercentiles() {
+    ReconnectMetrics metrics = new ReconnectMetrics();
+    // Out of order on purpose.
+    for (long sample : new long[] {40, 10, 30, 20}) {
+      metrics.onReconnected(sample);
+    }
+
+    assertEquals(10, metrics.getTimeToReconnectMs(0));
+    assertEquals(10, metrics.getTimeToReconnectMs(25));
+    assertEquals(20, metrics.getTimeToReconnectMs(26));
+    assertEquals(20, metrics.getTimeToReconnectMs(50));
+    assertEquals(30, metrics.getTimeToReconnectMs(75));
+    assertEquals(40, metrics.getTimeToReconnectMs(76));
+    assertEquals(40, metrics.getTimeToReconnectMs(100));
+  }
+
+  @Test
+  public void percentilesOnlyCoverTheRecentReconnections() {
+    ReconnectMetrics metrics = new ReconnectMetrics();
+    // The 64 most recent are kept, 37 to 100.
+    for (long sample = 1; sample <= 100; sample++) {
+      metrics.onReconnected(sample);
+    }
+
+    assertEquals(37, metrics.getTimeToReconnectMs(0));
+    assertEquals(68, metrics.getTimeToReconnectMs(50));
+    assertEquals(94, metrics.getTimeToReconnectMs(90));
+    assertEquals(100, metrics.getTimeToReconnectMs(99));
+    assertEquals(100, metrics.getReconnects());
+  }
+
+  @Test
+  public void countsAttemptsAndGiveUps() {
+    ReconnectMetrics metrics = new ReconnectMetrics();
+    metrics.onAttempt(false);
+    metrics.onAttempt(true);
+    metrics.onAttempt(false);
+    metrics.onGiveUp();
+    metrics.onReconnected(1200);
+
+    assertEquals(3, metrics.getAttempts());
+    assertEquals(1, metrics.getFastPathAttempts());
+    assertEquals(1, metrics.getGiveUps());
+    assertEquals(1, metrics.getReconnects());
+    assertEquals(1200, metrics.getTimeToReconnectMs(50));
+  }
+}
@@ -0,0 +1,201 @@
+package org.mediasoup.droid.lib.stats;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class StatsFileTest {
+
+  private static final int PASSES = 20;
+
+  @Rule public TemporaryFolder mFolder = new TemporaryFolder();
+
+  @Test
+  public void varintsRoundTrip() throws IOException {
+    long[] values = {0, 1, -1, 63, -64, 64, 300, -300, Long.MAX_VALUE, Long.MIN_VALUE};
+    byte[] buffer = new byte[10 * values.length];
+    int length = 0;
+    for (long value : values) {
+      length = StatsFileFormat.putSignedVarint(buffer, length, value);
+    }
+
+    ByteArrayInputStream in = new ByteArrayInputStream(buffer, 0, length);
+    for (long value : values) {
+      assertEquals(value, StatsFileFormat.readSignedVarint(in));
+    }
+    assertEquals(-1, in.read());
+  }
+
+  @Test
+  public void smallDeltasTakeOneByte() {
+    byte[] buffer = new byte[10];
+    assertEquals(1, StatsFileFormat.putSignedVarint(buffer, 0, 0));
+    assertEquals(1, StatsFileFormat.putSignedVarint(buffer, 0, -64));
+    assertEquals(1, StatsFileFormat.putSignedVarint(buffer, 0, 63));
+    assertEquals(2, StatsFileFormat.putSignedVarint(buffer, 0, 64));
+    assertEquals(10, StatsFileFormat.putSignedVarint(buffer, 0, Long.MIN_VALUE));
+  }
+
+  @Test
+  public void stringsRoundTrip() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    StatsFileFormat.writeString(out, "cam\u00e9ra");
+    StatsFileFormat.writeString(out, null);
+
+    ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+    assertEquals("cam\u00e9ra", StatsFileFormat.readString(in));
+    assertEquals("", StatsFileFormat.readString(in));
+  }
+
+  @Test
+  public void readsBackWhatTheRecorderWrote() throws IOException {
+    Map<String, List<StatsRecord>> written = new HashMap<>();
+    File file = record(written);
+
+    Map<String, List<StatsRecord>> read = new HashMap<>();
+    Map<String, String> aliases = new HashMap<>();
+    try (StatsFileReader reader = new StatsFileReader(file)) {
+      read(reader, read, aliases);
+    }
+
+    assertEquals(written.keySet(), read.keySet());
+    for (String id : written.keySet()) {
+      assertRecordsEqual(written.get(id), read.get(id));
+    }
+    assertEquals("cam", aliases.get("producer"));
+    assertNull(aliases.get("transport"));
+  }
+
+  @Test
+  public void readsATruncatedFileUpToItsLastCompleteSample() throws IOException {
+    Map<String, List<StatsRecord>> written = new HashMap<>();
+    byte[] bytes = Files.readAllBytes(record(written).toPath());
+    int total = written.get("transport").size() + written.get("producer").size();
+
+    // Cut inside the last sample, whatever its length.
+    for (int cut = 1; cut <= 3; cut++) {
+      Map<String, List<StatsRecord>> read = new HashMap<>();
+      try (StatsFileReader reader =
+          new StatsFileReader(
+              new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - cut)))) {
+        read(reader, read, new HashMap<>());
+      }
+
+      assertEquals(total - 1, read.get("transport").size() + read.get("producer").size());
+      for (String id : read.keySet()) {
+        List<StatsRecord> expected = written.get(id);
+        assertRecordsEqual(expected.subList(0, read.get(id).size()), read.get(id));
+      }
+    }
+  }
+
+  // Record PASSES sampling passes of a transport and a producer, with counters going backwards
+  // and fractional fields, and collect what the sampler held after each pass.
+  private File record(Map<String, List<StatsRecord>> written) throws IOException {
+    StatsSampler sampler = new StatsSampler(null);
+    StatsSampler.StatsSource source = () -> "[]";
+    sampler.track("transport", null, null, true, source);
+    sampler.track("producer", "cam", "transport", false, source);
+    StatsRecorder recorder = new StatsRecorder(mFolder.newFolder());
+    StatsParser.Totals totals = new StatsParser.Totals();
+
+    for (int i = 0; i < PASSES; i++) {
+      long timestamp = 5_000_000L + i * 1000L + (i % 3);
+      totals.reset();
+      totals.hasPair = true;
+      totals.pairBytesSent = 1L << 40 | i * 125_000L;
+      totals.pairBytesReceived = i * 4_000L;
+      totals.pairRoundTripTime = 0.0123 + i * 0.0001;
+      totals.availableOutgoingBitrate = 1_500_000 - i * 7_000;
+      addSample(sampler, "transport", timestamp, totals);
+
+      totals.reset();
+      totals.bytesSent = i < 10 ? i * 100_000L : (i - 10) * 90_000L;
+      totals.packetsSent = i < 10 ? i * 100L : (i - 10) * 90L;
+      totals.packetsLost = i < 10 ? i * 3 : 1;
+      totals.framesEncoded = i * 30L;
+      totals.framesDropped = i / 4;
+      totals.totalEncodeTime = i * 0.1234567;
+      totals.jitter = (i % 4) * 0.00321;
+      totals.rtpRoundTripTime = i % 5 == 0 ? -1 : 0.0456;
+      addSample(sampler, "producer", timestamp + 3, totals);
+
+      recorder.onSampled(sampler);
+      written.computeIfAbsent("transport", id -> new ArrayList<>())
+          .add(sampler.getLatest("transport"));
+      written.computeIfAbsent("producer", id -> new ArrayList<>())
+          .add(sampler.getLatest("producer"));
+    }
+    recorder.close();
+    assertNotNull(recorder.getFile());
+    return recorder.getFile();
+  }
+
+  private static void addSample(
+      StatsSampler sampler, String id, long timestamp, StatsParser.Totals totals) {
+    StatsHistory history = sampler.getHistory(id);
+    assertNotNull(history);
+    history.add(timestamp, totals);
+  }
+
+  private static void read(
+      StatsFileReader reader,
+      Map<String, List<StatsRecord>> records,
+      Map<String, String> aliases)
+      throws IOException {
+    long[] firstSample = new long[2];
+    reader.read(
+        (entityId, alias, wallTimeMs, record) -> {
+          records.computeIfAbsent(entityId, id -> new ArrayList<>()).add(record);
+          aliases.put(entityId, alias);
+          // Wall clock time moves along with the elapsed time of the samples.
+          if (firstSample[0] == 0) {
+            firstSample[0] = wallTimeMs;
+            firstSample[1] = record.getTimestamp();
+          }
+          assertEquals(record.getTimestamp() - firstSample[1], wallTimeMs - firstSample[0]);
+          assertTrue(wallTimeMs >= reader.getStartWallMs() - 1);
+        });
+  }
+
+  private static void assertRecordsEqual(List<StatsRecord> expected, List<StatsRecord> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      StatsRecord e = expected.get(i);
+      StatsRecord a = actual.get(i);
+      assertEquals(e.getTimestamp(), a.getTimestamp());
+      assertEquals(e.getBytesSent(), a.getBytesSent());
+      assertEquals(e.getBytesReceived(), a.getBytesReceived());
+      assertEquals(e.getSendBitrate(), a.getSendBitrate());
+      assertEquals(e.getReceiveBitrate(), a.getReceiveBitrate());
+      assertEquals(e.getPacketsSent(), a.getPacketsSent());
+      assertEquals(e.getPacketsReceived(), a.getPacketsReceived());
+      assertEquals(e.getPacketsLost(), a.getPacketsLost());
+      assertEquals(e.getFramesEncoded(), a.getFramesEncoded());
+      assertEquals(e.getFramesDecoded(), a.getFramesDecoded());
+      assertEquals(e.getFramesDropped(), a.getFramesDropped());
+      assertEquals(e.getAvailableOutgoingBitrate(), a.getAvailableOutgoingBitrate());
+      // Fixed point: 1/10000 for the fraction lost, 1/10 ms and 1/100 ms for the durations.
+      assertEquals(e.getFractionLost(), a.getFractionLost(), 0.00005);
+      assertEquals(e.getJitterMs(), a.getJitterMs(), 0.05);
+      assertEquals(e.getRoundTripTimeMs(), a.getRoundTripTimeMs(), 0.05);
+      assertEquals(e.getEncodeTimeMs(), a.getEncodeTimeMs(), 0.005);
+    }
+  }
+}